@@ -4,18 +4,21 @@ import os
 import numpy as np
 from deepface import DeepFace
 import cv2
-from datetime import datetime
-import pickle
-import shutil
-import uuid
+from embedding_store import EmbeddingStore, migrate_pickle
+from matching import embedding_vector, find_distance, find_threshold
 
 app = Flask(__name__)
 
+# Reject oversized uploads before they are read (kept in line with the backend limit)
+MAX_IMAGE_BYTES = int(os.environ.get('MAX_IMAGE_BYTES', 5 * 1024 * 1024))
+app.config['MAX_CONTENT_LENGTH'] = MAX_IMAGE_BYTES + 64 * 1024
+
 # Configure directories
 BASE_DIR = os.path.dirname(os.path.abspath(__file__))
 UPLOAD_FOLDER = os.path.join(BASE_DIR, 'uploads')
 DATABASE_FOLDER = os.path.join(BASE_DIR, 'face_db')
-EMBEDDINGS_FILE = os.path.join(DATABASE_FOLDER, 'face_embeddings.pkl')
+EMBEDDINGS_FILE = os.path.join(DATABASE_FOLDER, 'embeddings.bin')
+LEGACY_EMBEDDINGS_FILE = os.path.join(DATABASE_FOLDER, 'face_embeddings.pkl')
 
 # Create necessary directories
 os.makedirs(UPLOAD_FOLDER, exist_ok=True)
@@ -25,35 +28,35 @@ os.makedirs(DATABASE_FOLDER, exist_ok=True)
 MODEL_NAME = "VGG-Face"
 DISTANCE_METRIC = "cosine"
 DETECTOR_BACKEND = "opencv"
+THRESHOLD = find_threshold(MODEL_NAME, DISTANCE_METRIC)
 
-# Load existing embeddings or create empty database
-face_db = {}
-if os.path.exists(EMBEDDINGS_FILE):
-    with open(EMBEDDINGS_FILE, 'rb') as f:
-        face_db = pickle.load(f)
+# Append-only embedding store, the old pickle is imported once on first start
+face_db = EmbeddingStore(EMBEDDINGS_FILE)
+migrated = migrate_pickle(LEGACY_EMBEDDINGS_FILE, face_db, embedding_vector)
+if migrated:
+    app.logger.info("Migrated %d embeddings from %s", migrated, LEGACY_EMBEDDINGS_FILE)
 
-def save_embeddings():
-    with open(EMBEDDINGS_FILE, 'wb') as f:
-        pickle.dump(face_db, f)
+def read_image(image):
+    # decode the upload in memory, no temporary file
+    data = image.read()
+    img = cv2.imdecode(np.frombuffer(data, np.uint8), cv2.IMREAD_COLOR)
+    return data, img
 
 def process_image(image_path):
     try:
-        # detect faces (1 face max)
-        faces = DeepFace.extract_faces(image_path, detector_backend=DETECTOR_BACKEND)
-        
-        if len(faces) == 0:
-            return None, "No face detected in the image"
-        elif len(faces) > 1:
-            return None, "Multiple faces detected in the image"
-        
-        # Get embedding
+        # one detection + embedding pass, the face count comes from the same result
         embedding = DeepFace.represent(image_path, 
                                        model_name=MODEL_NAME, 
                                        detector_backend=DETECTOR_BACKEND)
         
+        if len(embedding) == 0:
+            return None, "No face detected in the image"
+        elif len(embedding) > 1:
+            return None, "Multiple faces detected in the image"
+        
         return embedding, None
     except Exception as e:
-        return None, f"Error processing image: {"Could not detect face"}"
+        return None, "Error processing image: Could not detect face"
 
 @app.route('/register-face', methods=['POST'])
 def register_face():
@@ -64,36 +67,27 @@ def register_face():
         return jsonify({'success': False, 'error': 'No employee ID provided'}), 400
     
     employee_id = request.form['employee_id']
-    image = request.files['image']
-    
-    # Save image temporarily
-    temp_filename = f"{uuid.uuid4()}.jpg"
-    temp_path = os.path.join(UPLOAD_FOLDER, temp_filename)
-    image.save(temp_path)
+    data, img = read_image(request.files['image'])
+    if img is None:
+        return jsonify({'success': False, 'error': 'Invalid image'}), 400
     
     try:
         # get face embedding from image
-        embedding, error = process_image(temp_path)
+        embedding, error = process_image(img)
         if error:
             return jsonify({'success': False, 'error': error}), 400
         
-        # Save face information in database
-        face_db[employee_id] = {
-            'embedding': embedding,
-            'registered_at': datetime.now().isoformat(),
-            'last_updated': datetime.now().isoformat()
-        }
-        
         # If this is a new registration, create a folder for the employee
         employee_folder = os.path.join(DATABASE_FOLDER, employee_id)
         os.makedirs(employee_folder, exist_ok=True)
         
         # Save the image
         registration_image = os.path.join(employee_folder, f"registered_face.jpg")
-        shutil.copy(temp_path, registration_image)
+        with open(registration_image, 'wb') as f:
+            f.write(data)
         
-        # Save embeddings
-        save_embeddings()
+        # Append the embedding (one fixed-size record), the latest registration wins
+        face_db.put(employee_id, embedding_vector(embedding))
         
         return jsonify({
             'success': True, 
@@ -102,10 +96,6 @@ def register_face():
         
     except Exception as e:
         return jsonify({'success': False, 'error': str(e)}), 500
-    finally:
-        # Clean up temporary file
-        if os.path.exists(temp_path):
-            os.remove(temp_path)
 
 @app.route('/verify-face', methods=['POST'])
 def verify_face():
@@ -116,50 +106,33 @@ def verify_face():
         return jsonify({'success': False, 'error': 'No employee ID provided'}), 400
     
     employee_id = request.form['employee_id']
-    image = request.files['image']
     
     # Employee exists?
     if employee_id not in face_db:
         return jsonify({'success': False, 'error': 'Employee not registered'}), 404
     
-    # Save temp image
-    temp_filename = f"{uuid.uuid4()}.jpg"
-    temp_path = os.path.join(UPLOAD_FOLDER, temp_filename)
-    image.save(temp_path)
+    _, img = read_image(request.files['image'])
+    if img is None:
+        return jsonify({'success': False, 'error': 'Invalid image'}), 400
     
     try:
         # Get current face embedding
-        current_embedding, error = process_image(temp_path)
+        current_embedding, error = process_image(img)
         if error:
             return jsonify({'success': False, 'error': error}), 400
         
         # Get registered embedding
-        registered_embedding = face_db[employee_id]['embedding']
+        registered_embedding = face_db.get(employee_id)
         
-        # Verify face
+        # Compare against the stored embedding, no second model pass on the registered image
         try:
-            # save the sent image to use it with deepface
-            registered_face_path = os.path.join(UPLOAD_FOLDER, f"{uuid.uuid4()}_reg.jpg")
-            shutil.copy(os.path.join(DATABASE_FOLDER, employee_id, "registered_face.jpg"), registered_face_path)
+            distance = find_distance(current_embedding, registered_embedding, DISTANCE_METRIC)
             
-            # use deepface
-            result = DeepFace.verify(
-                img1_path=temp_path,
-                img2_path=registered_face_path,
-                model_name=MODEL_NAME,
-                distance_metric=DISTANCE_METRIC,
-                detector_backend=DETECTOR_BACKEND
-            )
-            
-            # delete temp files
-            if os.path.exists(registered_face_path):
-                os.remove(registered_face_path)
-                
             return jsonify({
                 'success': True,
-                'match': bool(result['verified']),
-                'confidence': float(result['distance']),
-                'threshold': float(result['threshold']),
+                'match': distance <= THRESHOLD,
+                'confidence': distance,
+                'threshold': THRESHOLD,
                 'employee_id': employee_id
             })
             
@@ -168,9 +141,41 @@ def verify_face():
         
     except Exception as e:
         return jsonify({'success': False, 'error': str(e)}), 500
-    finally:
-        if os.path.exists(temp_path):
-            os.remove(temp_path)
+
+@app.route('/embed', methods=['POST'])
+def embed_face():
+    # embedding of a single face, used by the backend for 1:N identification
+    if 'image' not in request.files:
+        return jsonify({'success': False, 'error': 'No image provided'}), 400
+    
+    _, img = read_image(request.files['image'])
+    if img is None:
+        return jsonify({'success': False, 'error': 'Invalid image'}), 400
+    
+    embedding, error = process_image(img)
+    if error:
+        return jsonify({'success': False, 'error': error}), 400
+    
+    return jsonify({
+        'success': True,
+        'embedding': embedding_vector(embedding).tolist(),
+        'distance_metric': DISTANCE_METRIC,
+        'threshold': THRESHOLD
+    })
+
+@app.route('/embeddings', methods=['POST'])
+def get_embeddings():
+    # registered embeddings of the requested employees, unknown ids are skipped
+    payload = request.get_json(silent=True) or {}
+    employee_ids = [str(employee_id) for employee_id in payload.get('employee_ids', [])]
+    
+    return jsonify({
+        'success': True,
+        'embeddings': {
+            employee_id: face_db.get(employee_id).tolist()
+            for employee_id in employee_ids if employee_id in face_db
+        }
+    })
 
 if __name__ == '__main__':
     app.run(host='0.0.0.0', port=5000)
\ No newline at end of file
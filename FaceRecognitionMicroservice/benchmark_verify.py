@@ -0,0 +1,62 @@
+"""Offline latency benchmark of the verification path.
+
+Compares the former flow (DeepFace.verify on the upload and the registered image)
+with the embedding flow (one represent pass + distance against the stored embedding).
+
+Usage: python benchmark_verify.py <registered_image> <probe_image> [iterations]
+"""
+import sys
+import time
+
+import numpy as np
+from deepface import DeepFace
+
+from matching import find_distance, find_threshold
+
+MODEL_NAME = "VGG-Face"
+DISTANCE_METRIC = "cosine"
+DETECTOR_BACKEND = "opencv"
+
+
+def timed(fn, iterations):
+    timings = []
+    for _ in range(iterations):
+        start = time.perf_counter()
+        fn()
+        timings.append((time.perf_counter() - start) * 1000)
+    return np.array(timings)
+
+
+def report(name, timings):
+    print(f"{name:<12} p50={np.percentile(timings, 50):8.1f} ms  "
+          f"p95={np.percentile(timings, 95):8.1f} ms  mean={timings.mean():8.1f} ms")
+
+
+def main():
+    if len(sys.argv) < 3:
+        print(__doc__)
+        sys.exit(1)
+    registered, probe = sys.argv[1], sys.argv[2]
+    iterations = int(sys.argv[3]) if len(sys.argv) > 3 else 20
+
+    stored = DeepFace.represent(registered, model_name=MODEL_NAME, detector_backend=DETECTOR_BACKEND)
+    threshold = find_threshold(MODEL_NAME, DISTANCE_METRIC)
+
+    def legacy():
+        DeepFace.represent(probe, model_name=MODEL_NAME, detector_backend=DETECTOR_BACKEND)
+        return DeepFace.verify(img1_path=probe, img2_path=registered, model_name=MODEL_NAME,
+                               distance_metric=DISTANCE_METRIC, detector_backend=DETECTOR_BACKEND)
+
+    def embedding():
+        current = DeepFace.represent(probe, model_name=MODEL_NAME, detector_backend=DETECTOR_BACKEND)
+        return find_distance(current, stored, DISTANCE_METRIC) <= threshold
+
+    # warm up the model once so loading time is not measured
+    embedding()
+
+    report("legacy", timed(legacy, iterations))
+    report("embedding", timed(embedding, iterations))
+
+
+if __name__ == "__main__":
+    main()
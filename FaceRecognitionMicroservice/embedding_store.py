@@ -0,0 +1,206 @@
+"""Append-only, fixed-width store of face embeddings.
+
+File layout (little endian):
+    header : 8s magic b"FEMBLOG1", uint32 dimension, uint32 reserved
+    record : 64s employee id (utf-8, NUL padded), float64 registered_at (epoch seconds),
+             int32 flags (0 = live, 1 = deleted), int32 padding, float32[dimension] vector
+
+A registration appends one record, the last record of an id wins. Records are read through a
+numpy memmap so start-up only scans the id column. Compaction rewrites the live records to a
+temporary file and swaps it in with os.replace.
+"""
+import os
+import struct
+import threading
+import time
+
+import numpy as np
+
+MAGIC = b"FEMBLOG1"
+HEADER = struct.Struct("<8sII")
+ID_BYTES = 64
+FLAG_LIVE = 0
+FLAG_DELETED = 1
+
+# compact once more than half of the records are dead
+COMPACTION_MIN_RECORDS = 1000
+COMPACTION_DEAD_RATIO = 0.5
+
+
+def record_dtype(dimension):
+    return np.dtype([
+        ('id', f'S{ID_BYTES}'),
+        ('registered_at', '<f8'),
+        ('flags', '<i4'),
+        ('padding', '<i4'),
+        ('vector', '<f4', (dimension,)),
+    ])
+
+
+class EmbeddingStore:
+
+    def __init__(self, path):
+        self.path = path
+        self.lock = threading.Lock()
+        self.dimension = None
+        self.records = None
+        self.index = {}
+        self.record_count = 0
+        self._load()
+
+    def __contains__(self, employee_id):
+        return str(employee_id) in self.index
+
+    def __len__(self):
+        return len(self.index)
+
+    def get(self, employee_id):
+        row = self.index.get(str(employee_id))
+        return None if row is None else self.records[row]['vector']
+
+    def registered_at(self, employee_id):
+        row = self.index.get(str(employee_id))
+        return None if row is None else float(self.records[row]['registered_at'])
+
+    def put(self, employee_id, vector, registered_at=None):
+        self.put_many([(employee_id, vector, registered_at)])
+
+    def put_many(self, entries):
+        # one write and one fsync for the whole batch (bulk onboarding)
+        with self.lock:
+            entries = [(str(employee_id), np.asarray(vector, dtype='<f4').ravel(), registered_at)
+                       for employee_id, vector, registered_at in entries]
+            if not entries:
+                return
+            if self.dimension is None:
+                self._create(entries[0][1].shape[0])
+
+            batch = np.zeros(len(entries), dtype=record_dtype(self.dimension))
+            for i, (employee_id, vector, registered_at) in enumerate(entries):
+                if vector.shape[0] != self.dimension:
+                    raise ValueError(f"Embedding dimension {vector.shape[0]} does not match the store ({self.dimension})")
+                batch[i] = (self._encode_id(employee_id), registered_at or time.time(), FLAG_LIVE, 0, vector)
+            self._append(batch)
+            self._compact_if_needed()
+
+    def delete(self, employee_id):
+        with self.lock:
+            employee_id = str(employee_id)
+            if employee_id not in self.index:
+                return
+            tombstone = np.zeros(1, dtype=record_dtype(self.dimension))
+            tombstone['id'] = self._encode_id(employee_id)
+            tombstone['registered_at'] = time.time()
+            tombstone['flags'] = FLAG_DELETED
+            self._append(tombstone)
+            self._compact_if_needed()
+
+    def compact(self):
+        with self.lock:
+            self._compact()
+
+    def _load(self):
+        if not os.path.exists(self.path):
+            return
+        with open(self.path, 'r+b') as f:
+            magic, dimension, _ = HEADER.unpack(f.read(HEADER.size))
+            if magic != MAGIC:
+                raise ValueError(f"{self.path} is not an embedding store")
+            record_size = record_dtype(dimension).itemsize
+            size = os.fstat(f.fileno()).st_size
+            complete = (size - HEADER.size) // record_size
+            # a crash in the middle of an append leaves a partial record, drop it
+            if HEADER.size + complete * record_size != size:
+                f.truncate(HEADER.size + complete * record_size)
+        self.dimension = dimension
+        self._map(complete)
+
+    def _map(self, count, indexed=0):
+        # remapping is cheap, only the rows after 'indexed' are added to the id index
+        self.record_count = count
+        self.records = np.memmap(self.path, dtype=record_dtype(self.dimension), mode='r',
+                                 offset=HEADER.size, shape=(count,)) if count else None
+        if indexed == 0:
+            self.index = {}
+        if count > indexed:
+            ids = self.records['id'][indexed:]
+            flags = self.records['flags'][indexed:]
+            for offset, raw_id in enumerate(ids):
+                employee_id = raw_id.decode('utf-8')
+                if flags[offset] == FLAG_DELETED:
+                    self.index.pop(employee_id, None)
+                else:
+                    self.index[employee_id] = indexed + offset
+
+    def _create(self, dimension):
+        self._write_header(self.path, dimension)
+        self.dimension = dimension
+
+    def _append(self, batch):
+        with open(self.path, 'ab') as f:
+            f.write(batch.tobytes())
+            f.flush()
+            os.fsync(f.fileno())
+        self._map(self.record_count + len(batch), indexed=self.record_count)
+
+    def _compact_if_needed(self):
+        dead = self.record_count - len(self.index)
+        if self.record_count >= COMPACTION_MIN_RECORDS and dead > self.record_count * COMPACTION_DEAD_RATIO:
+            self._compact()
+
+    def _compact(self):
+        if self.records is None:
+            return
+        rows = sorted(self.index.values())
+        temp_path = self.path + '.compact'
+        self._write_header(temp_path, self.dimension)
+        with open(temp_path, 'ab') as f:
+            f.write(np.asarray(self.records[rows]).tobytes())
+            f.flush()
+            os.fsync(f.fileno())
+        self.records = None
+        os.replace(temp_path, self.path)
+        self._fsync_directory()
+        self._map(len(rows))
+
+    def _fsync_directory(self):
+        if hasattr(os, 'O_DIRECTORY'):
+            fd = os.open(os.path.dirname(os.path.abspath(self.path)), os.O_DIRECTORY)
+            try:
+                os.fsync(fd)
+            finally:
+                os.close(fd)
+
+    @staticmethod
+    def _write_header(path, dimension):
+        with open(path, 'wb') as f:
+            f.write(HEADER.pack(MAGIC, dimension, 0))
+            f.flush()
+            os.fsync(f.fileno())
+
+    @staticmethod
+    def _encode_id(employee_id):
+        encoded = employee_id.encode('utf-8')
+        if len(encoded) > ID_BYTES:
+            raise ValueError(f"Employee id longer than {ID_BYTES} bytes")
+        return encoded
+
+
+def migrate_pickle(pickle_path, store, vector_of):
+    """Import a legacy face_embeddings.pkl once, then keep it aside as .migrated."""
+    import pickle
+    from datetime import datetime
+
+    if not os.path.exists(pickle_path):
+        return 0
+    with open(pickle_path, 'rb') as f:
+        legacy = pickle.load(f)
+
+    entries = []
+    for employee_id, entry in legacy.items():
+        registered_at = entry.get('last_updated') or entry.get('registered_at')
+        timestamp = datetime.fromisoformat(registered_at).timestamp() if registered_at else None
+        entries.append((employee_id, vector_of(entry['embedding']), timestamp))
+    store.put_many(entries)
+    os.replace(pickle_path, pickle_path + '.migrated')
+    return len(entries)
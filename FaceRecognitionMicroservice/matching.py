@@ -0,0 +1,38 @@
+import numpy as np
+
+# Fallback thresholds (DeepFace defaults) when the installed version does not expose them
+DEFAULT_THRESHOLDS = {
+    "VGG-Face": {"cosine": 0.68, "euclidean": 1.17, "euclidean_l2": 1.17},
+    "Facenet": {"cosine": 0.40, "euclidean": 10, "euclidean_l2": 0.80},
+    "Facenet512": {"cosine": 0.30, "euclidean": 23.56, "euclidean_l2": 1.04},
+    "ArcFace": {"cosine": 0.68, "euclidean": 4.15, "euclidean_l2": 1.13},
+}
+
+def find_threshold(model_name, distance_metric):
+    try:
+        from deepface.modules.verification import find_threshold as deepface_threshold
+        return float(deepface_threshold(model_name, distance_metric))
+    except ImportError:
+        pass
+    try:
+        from deepface.commons.distance import findThreshold as deepface_threshold
+        return float(deepface_threshold(model_name, distance_metric))
+    except ImportError:
+        return DEFAULT_THRESHOLDS[model_name][distance_metric]
+
+def embedding_vector(embedding):
+    # stored embeddings are DeepFace.represent results: [{'embedding': [...], ...}]
+    if isinstance(embedding, list) and embedding and isinstance(embedding[0], dict):
+        embedding = embedding[0]['embedding']
+    return np.asarray(embedding, dtype=np.float64)
+
+def find_distance(a, b, distance_metric):
+    a = embedding_vector(a)
+    b = embedding_vector(b)
+    if distance_metric == "cosine":
+        return float(1 - np.dot(a, b) / (np.linalg.norm(a) * np.linalg.norm(b)))
+    if distance_metric == "euclidean":
+        return float(np.linalg.norm(a - b))
+    if distance_metric == "euclidean_l2":
+        return float(np.linalg.norm(a / np.linalg.norm(a) - b / np.linalg.norm(b)))
+    raise ValueError(f"Unsupported distance metric: {distance_metric}")
@@ -0,0 +1,70 @@
+-- Query plans and latencies of the (employee_id, date) lookups on a seeded million-row dataset.
+--
+-- Run against a scratch database migrated by the backend (V1 + V2), never against production:
+--   mysql -u root -p attendance_bench < benchmark/employee_date_lookups.sql
+-- To compare with the schema before V2, run it once more after:
+--   ALTER TABLE presence DROP INDEX uk_presence_employee_date, DROP INDEX idx_presence_date_status;
+--   ALTER TABLE schedule DROP INDEX uk_schedule_employee_date, DROP INDEX idx_schedule_date_employee;
+-- EXPLAIN ANALYZE prints the plan with the actual time of every step.
+
+SET SESSION cte_max_recursion_depth = 1000000;
+
+-- 1 entreprise, 1 manager, 2 000 employees, 500 days: 1 000 000 presences and schedules
+INSERT INTO entreprise (name, time_zone) VALUES ('bench', 'UTC');
+SET @entreprise = LAST_INSERT_ID();
+INSERT INTO `user` (user_type, username, first_name, last_name, email, phone_number, password, role, enabled, entreprise_id)
+VALUES ('MANAGER', 'bench-manager', 'Bench', 'Manager', 'manager@bench', '0', '-', 'MANAGER', TRUE, @entreprise);
+SET @manager = LAST_INSERT_ID();
+INSERT INTO manager_settings (manager_id, absence_threshold_minutes, late_threshold_minutes) VALUES (@manager, 60, 10);
+
+INSERT INTO `user` (user_type, username, first_name, last_name, email, phone_number, password, role, enabled,
+                    entreprise_id, manager_id, position_title, has_registered_face)
+WITH RECURSIVE n (i) AS (SELECT 1 UNION ALL SELECT i + 1 FROM n WHERE i < 2000)
+SELECT 'EMPLOYEE', CONCAT('bench-', i), 'Bench', CONCAT('Employee ', i), CONCAT(i, '@bench'), '0', '-', 'EMPLOYEE',
+       TRUE, @entreprise, @manager, 'NONE', FALSE
+FROM n;
+
+CREATE TEMPORARY TABLE bench_day (d DATE PRIMARY KEY);
+INSERT INTO bench_day
+WITH RECURSIVE n (i) AS (SELECT 0 UNION ALL SELECT i + 1 FROM n WHERE i < 499)
+SELECT CURRENT_DATE - INTERVAL i DAY FROM n;
+
+INSERT INTO schedule (employee_id, schedule_name, date, checkin_time, checkout_time, is_day_off)
+SELECT e.id, 'Bench', d.d, '09:00:00', '17:00:00', FALSE
+FROM `user` e CROSS JOIN bench_day d
+WHERE e.entreprise_id = @entreprise AND e.user_type = 'EMPLOYEE';
+
+INSERT INTO presence (employee_id, date, checkin_time, status)
+SELECT e.id, d.d, '09:05:00', ELT(1 + (e.id + DAYOFYEAR(d.d)) % 4, 'PRESENT', 'LATE', 'ABSENT', 'FREE')
+FROM `user` e CROSS JOIN bench_day d
+WHERE e.entreprise_id = @entreprise AND e.user_type = 'EMPLOYEE';
+
+ANALYZE TABLE presence, schedule, `user`;
+
+SELECT MIN(id) + 1000 INTO @employee FROM `user` WHERE entreprise_id = @entreprise AND user_type = 'EMPLOYEE';
+SET @day = CURRENT_DATE - INTERVAL 100 DAY;
+
+-- PresenceRepository.findByEmployeeIdAndDate / existsByEmployeeAndDate
+EXPLAIN ANALYZE SELECT * FROM presence WHERE employee_id = @employee AND date = @day;
+
+-- ScheduleRepository.findByEmployeeIdAndDate
+EXPLAIN ANALYZE SELECT * FROM schedule WHERE employee_id = @employee AND date = @day;
+
+-- PresenceRepository.findByEmployeeIdAndDateIsBeforeOrderByDateDesc (dashboard, first page of 7)
+EXPLAIN ANALYZE SELECT * FROM presence WHERE employee_id = @employee AND date < @day ORDER BY date DESC LIMIT 7;
+
+-- ScheduleRepository.findByEmployeeIdAndDateIsAfterOrderByDateAsc (upcoming schedules, first page of 5)
+EXPLAIN ANALYZE SELECT * FROM schedule WHERE employee_id = @employee AND date > @day ORDER BY date LIMIT 5;
+
+-- PresenceRepository.findByDate and the day counters
+EXPLAIN ANALYZE SELECT status, COUNT(*) FROM presence WHERE date = @day GROUP BY status;
+
+-- PresenceJdbcRepository.findAbsenceCandidates (day scan joined to the schedules)
+EXPLAIN ANALYZE
+SELECT e.id, p.id
+FROM schedule s
+JOIN `user` e ON e.id = s.employee_id AND e.user_type = 'EMPLOYEE'
+LEFT JOIN presence p ON p.employee_id = e.id AND p.date = s.date
+WHERE s.date IN (@day, @day + INTERVAL 1 DAY)
+  AND (s.is_day_off IS NULL OR s.is_day_off = FALSE)
+  AND (p.id IS NULL OR p.status = 'NOT_OPENED');
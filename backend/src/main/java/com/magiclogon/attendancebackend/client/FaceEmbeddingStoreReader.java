@@ -0,0 +1,93 @@
+package com.magiclogon.attendancebackend.client;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+// Reads the recognition service's append-only embedding file (embedding_store.py) when it is on a shared volume,
+// so the backend can build its index without going over HTTP.
+// Layout: header "FEMBLOG1" + int32 dimension + int32 reserved,
+// then records of 64-byte id, float64 registered_at, int32 flags, int32 padding, float32[dimension].
+@Component
+public class FaceEmbeddingStoreReader {
+
+    private static final byte[] MAGIC = "FEMBLOG1".getBytes(StandardCharsets.US_ASCII);
+    private static final int HEADER_BYTES = 16;
+    private static final int ID_BYTES = 64;
+    private static final int FLAG_DELETED = 1;
+
+    private final String path;
+
+    public FaceEmbeddingStoreReader(@Value("${face-recognition.embedding-store-path:}") String path) {
+        this.path = path;
+    }
+
+    public boolean isEnabled() {
+        return !path.isBlank();
+    }
+
+    // Latest live embedding of each requested employee, keyed by employee id
+    public Map<String, float[]> read(Collection<Integer> employeeIds) throws IOException {
+        Set<String> wanted = employeeIds.stream().map(String::valueOf).collect(Collectors.toSet());
+        Map<String, float[]> embeddings = new HashMap<>();
+
+        try (FileChannel channel = FileChannel.open(Path.of(path), StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+            byte[] magic = new byte[MAGIC.length];
+            buffer.get(magic);
+            if (!Arrays.equals(magic, MAGIC)) {
+                throw new IOException(path + " is not an embedding store");
+            }
+            int dimension = buffer.getInt();
+            buffer.getInt();
+
+            int recordBytes = ID_BYTES + 8 + 4 + 4 + dimension * Float.BYTES;
+            // A partial record at the end is an append in progress, it is skipped
+            long records = (channel.size() - HEADER_BYTES) / recordBytes;
+            byte[] id = new byte[ID_BYTES];
+            for (long record = 0; record < records; record++) {
+                int offset = HEADER_BYTES + (int) (record * recordBytes);
+                buffer.get(offset, id);
+                String employeeId = decodeId(id);
+                if (!wanted.contains(employeeId)) {
+                    continue;
+                }
+                int flags = buffer.getInt(offset + ID_BYTES + 8);
+                if (flags == FLAG_DELETED) {
+                    embeddings.remove(employeeId);
+                    continue;
+                }
+                float[] vector = new float[dimension];
+                buffer.slice(offset + ID_BYTES + 16, dimension * Float.BYTES)
+                        .order(ByteOrder.LITTLE_ENDIAN)
+                        .asFloatBuffer()
+                        .get(vector);
+                embeddings.put(employeeId, vector);
+            }
+        }
+        return embeddings;
+    }
+
+    private static String decodeId(byte[] id) {
+        int length = 0;
+        while (length < id.length && id[length] != 0) {
+            length++;
+        }
+        return new String(id, 0, length, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,211 @@
+package com.magiclogon.attendancebackend.client;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.magiclogon.attendancebackend.dto.FaceEmbeddingResponseDTO;
+import com.magiclogon.attendancebackend.dto.FaceEmbeddingsResponseDTO;
+import com.magiclogon.attendancebackend.dto.FaceVerificationResponseDTO;
+import com.magiclogon.attendancebackend.utils.CircuitBreaker;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+// Shared client for the Python face recognition service.
+// One pooled HttpClient, bounded concurrency (bulkhead) and a circuit breaker so a slow service fails fast
+// instead of holding Tomcat threads.
+@Component
+public class FaceRecognitionClient {
+
+    private final String baseUrl;
+    private final Duration readTimeout;
+    private final long bulkheadWaitMs;
+    private final long maxImageBytes;
+    private final HttpClient httpClient;
+    private final Semaphore bulkhead;
+    private final CircuitBreaker circuitBreaker;
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    @Autowired
+    public FaceRecognitionClient(@Value("${face-recognition.base-url}") String baseUrl,
+                                 @Value("${face-recognition.http-version:HTTP_1_1}") HttpClient.Version httpVersion,
+                                 @Value("${face-recognition.connect-timeout-ms:2000}") long connectTimeoutMs,
+                                 @Value("${face-recognition.read-timeout-ms:10000}") long readTimeoutMs,
+                                 @Value("${face-recognition.max-concurrent-calls:16}") int maxConcurrentCalls,
+                                 @Value("${face-recognition.bulkhead-wait-ms:200}") long bulkheadWaitMs,
+                                 @Value("${face-recognition.circuit-breaker.failure-threshold:5}") int failureThreshold,
+                                 @Value("${face-recognition.circuit-breaker.open-duration-ms:30000}") long openDurationMs,
+                                 @Value("${face-recognition.max-image-bytes:5242880}") long maxImageBytes) {
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+        this.readTimeout = Duration.ofMillis(readTimeoutMs);
+        this.bulkheadWaitMs = bulkheadWaitMs;
+        this.maxImageBytes = maxImageBytes;
+        this.httpClient = HttpClient.newBuilder()
+                .version(httpVersion)
+                .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+                .build();
+        this.bulkhead = new Semaphore(maxConcurrentCalls, true);
+        this.circuitBreaker = new CircuitBreaker(failureThreshold, Duration.ofMillis(openDurationMs));
+    }
+
+    // 1:1 verification of an employee against the registered face
+    public FaceVerificationResponseDTO verifyFace(String employeeId, MultipartFile file) throws IOException {
+        String body = postImage("/verify-face", employeeId, file);
+        return objectMapper.readValue(body, FaceVerificationResponseDTO.class);
+    }
+
+    // Same verification for an image already held in memory (buffered kiosk events)
+    public FaceVerificationResponseDTO verifyFace(String employeeId, byte[] image) throws IOException {
+        String body = postImage("/verify-face", employeeId, "image.jpg", "image/jpeg", image.length,
+                () -> new ByteArrayInputStream(image));
+        return objectMapper.readValue(body, FaceVerificationResponseDTO.class);
+    }
+
+    // Register (or replace) the face of an employee, returns the raw service response
+    public String registerFace(String employeeId, MultipartFile file) throws IOException {
+        return postImage("/register-face", employeeId, file);
+    }
+
+    // Embedding of the single face in the image, for 1:N identification
+    public FaceEmbeddingResponseDTO embed(MultipartFile file) throws IOException {
+        String body = postImage("/embed", null, file);
+        return objectMapper.readValue(body, FaceEmbeddingResponseDTO.class);
+    }
+
+    // Registered embeddings of the given employees, keyed by employee id. Unregistered ids are absent.
+    public Map<String, float[]> fetchEmbeddings(Collection<Integer> employeeIds) throws IOException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/embeddings"))
+                .timeout(readTimeout)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(
+                        objectMapper.writeValueAsBytes(Map.of("employee_ids", employeeIds))))
+                .build();
+        FaceEmbeddingsResponseDTO response = objectMapper.readValue(send(request), FaceEmbeddingsResponseDTO.class);
+        return response.getEmbeddings() != null ? response.getEmbeddings() : Map.of();
+    }
+
+    public CircuitBreaker.State getCircuitState() {
+        return circuitBreaker.getState();
+    }
+
+    public long getMaxImageBytes() {
+        return maxImageBytes;
+    }
+
+    private String postImage(String path, String employeeId, MultipartFile file) {
+        return postImage(path, employeeId, file.getOriginalFilename(), file.getContentType(), file.getSize(), () -> {
+            try {
+                return file.getInputStream();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    private String postImage(String path, String employeeId, String filename, String contentType,
+                             long size, Supplier<InputStream> image) {
+        if (size > maxImageBytes) {
+            throw new IllegalArgumentException("Image exceeds the maximum size of " + maxImageBytes + " bytes");
+        }
+        String boundary = "----attendance-" + UUID.randomUUID();
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .timeout(readTimeout)
+                .header("Content-Type", "multipart/form-data; boundary=" + boundary)
+                .POST(multipartBody(boundary, employeeId, filename, contentType, size, image))
+                .build();
+        return send(request);
+    }
+
+    private String send(HttpRequest request) {
+        boolean acquired;
+        try {
+            acquired = bulkhead.tryAcquire(bulkheadWaitMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new FaceRecognitionUnavailableException("Face recognition unavailable", e);
+        }
+        if (!acquired) {
+            throw new FaceRecognitionUnavailableException("Face recognition is busy");
+        }
+
+        try {
+            if (!circuitBreaker.tryAcquirePermission()) {
+                throw new FaceRecognitionUnavailableException("Face recognition unavailable");
+            }
+
+            HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+            int status = response.statusCode();
+            if (status >= 500) {
+                circuitBreaker.recordFailure();
+                throw new FaceRecognitionException(status, response.body());
+            }
+            // A 4xx is a verdict on the request, the service itself is healthy
+            circuitBreaker.recordSuccess();
+            if (status >= 400) {
+                throw new FaceRecognitionException(status, response.body());
+            }
+            return response.body();
+        } catch (HttpTimeoutException e) {
+            circuitBreaker.recordFailure();
+            throw new FaceRecognitionUnavailableException("Face recognition timed out", e);
+        } catch (IOException e) {
+            circuitBreaker.recordFailure();
+            throw new FaceRecognitionUnavailableException("Face recognition unavailable", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            circuitBreaker.recordFailure();
+            throw new FaceRecognitionUnavailableException("Face recognition unavailable", e);
+        } finally {
+            bulkhead.release();
+        }
+    }
+
+    // Multipart body whose image part is read straight from the upload, never copied into a byte[]
+    static HttpRequest.BodyPublisher multipartBody(String boundary, String employeeId, String filename,
+                                                   String contentType, long size, Supplier<InputStream> image) {
+        filename = filename != null ? headerValue(filename).replace("\\", "\\\\").replace("\"", "\\\"") : "image.jpg";
+        contentType = contentType != null ? headerValue(contentType) : "application/octet-stream";
+
+        String employeePart = employeeId == null ? "" : "--" + boundary + "\r\n"
+                + "Content-Disposition: form-data; name=\"employee_id\"\r\n\r\n"
+                + employeeId + "\r\n";
+        byte[] head = (employeePart
+                + "--" + boundary + "\r\n"
+                + "Content-Disposition: form-data; name=\"image\"; filename=\"" + filename + "\"\r\n"
+                + "Content-Type: " + contentType + "\r\n\r\n").getBytes(StandardCharsets.UTF_8);
+        byte[] tail = ("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.UTF_8);
+
+        // Declaring the length keeps a fixed Content-Length instead of chunked encoding
+        HttpRequest.BodyPublisher imagePart = HttpRequest.BodyPublishers.fromPublisher(
+                HttpRequest.BodyPublishers.ofInputStream(image), size);
+
+        return HttpRequest.BodyPublishers.concat(
+                HttpRequest.BodyPublishers.ofByteArray(head),
+                imagePart,
+                HttpRequest.BodyPublishers.ofByteArray(tail));
+    }
+
+    // Values sent by the uploader must not end the header line and start another part header
+    private static String headerValue(String value) {
+        return value.replace("\r", "").replace("\n", "");
+    }
+}
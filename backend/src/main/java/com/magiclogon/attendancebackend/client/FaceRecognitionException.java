@@ -0,0 +1,16 @@
+package com.magiclogon.attendancebackend.client;
+
+import lombok.Getter;
+
+// The face recognition service answered with an error status
+@Getter
+public class FaceRecognitionException extends RuntimeException {
+    private final int status;
+    private final String responseBody;
+
+    public FaceRecognitionException(int status, String responseBody) {
+        super("Face recognition service returned " + status);
+        this.status = status;
+        this.responseBody = responseBody;
+    }
+}
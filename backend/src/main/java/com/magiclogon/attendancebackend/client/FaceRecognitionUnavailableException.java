@@ -0,0 +1,12 @@
+package com.magiclogon.attendancebackend.client;
+
+// The face recognition service could not be reached in time (timeout, circuit open, too many calls in flight)
+public class FaceRecognitionUnavailableException extends RuntimeException {
+    public FaceRecognitionUnavailableException(String message) {
+        super(message);
+    }
+
+    public FaceRecognitionUnavailableException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,169 @@
+package com.magiclogon.attendancebackend.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.EncodedResource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Applies the versioned scripts of db/migration (V<n>__<description>.sql) in order, once per database.
+// Applied versions are recorded in schema_version with a checksum, an edited script stops the start-up.
+// Replicas starting together serialize on a named MySQL lock. MySQL DDL is not transactional: a script
+// failing halfway must be fixed by hand before the next start.
+@Slf4j
+@Component(SchemaMigrationRunner.BEAN_NAME)
+public class SchemaMigrationRunner implements InitializingBean {
+
+    public static final String BEAN_NAME = "schemaMigrationRunner";
+
+    private static final Pattern SCRIPT_NAME = Pattern.compile("V(\\d+)__(\\w+)\\.sql");
+    private static final String LOCK_NAME = "attendance_schema_migration";
+    private static final int LOCK_TIMEOUT_SECONDS = 300;
+
+    private record Script(int version, String description, String checksum, Resource resource) {}
+
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean enabled;
+    private final String location;
+
+    public SchemaMigrationRunner(JdbcTemplate jdbcTemplate,
+                                 @Value("${schema.migrations.enabled:true}") boolean enabled,
+                                 @Value("${schema.migrations.location:classpath:db/migration/*.sql}") String location) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.enabled = enabled;
+        this.location = location;
+    }
+
+    @Override
+    public void afterPropertiesSet() throws IOException {
+        if (!enabled) {
+            log.info("Schema migrations disabled");
+            return;
+        }
+        List<Script> scripts = loadScripts();
+        // The lock is held by the connection, so everything runs on one
+        jdbcTemplate.execute((Connection connection) -> {
+            lock(connection);
+            try {
+                migrate(connection, scripts);
+            } finally {
+                unlock(connection);
+            }
+            return null;
+        });
+    }
+
+    private void migrate(Connection connection, List<Script> scripts) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("""
+                    CREATE TABLE IF NOT EXISTS schema_version (
+                        version INT NOT NULL,
+                        description VARCHAR(200) NOT NULL,
+                        checksum VARCHAR(64) NOT NULL,
+                        installed_at DATETIME(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3),
+                        execution_ms BIGINT NOT NULL,
+                        PRIMARY KEY (version)
+                    ) ENGINE = InnoDB
+                    """);
+        }
+        Map<Integer, String> applied = new TreeMap<>();
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT version, checksum FROM schema_version")) {
+            while (rs.next()) {
+                applied.put(rs.getInt("version"), rs.getString("checksum"));
+            }
+        }
+
+        int executed = 0;
+        for (Script script : scripts) {
+            String checksum = applied.get(script.version());
+            if (checksum != null) {
+                if (!checksum.equals(script.checksum())) {
+                    throw new IllegalStateException("Migration V" + script.version() + " was changed after it was applied.");
+                }
+                continue;
+            }
+            long start = System.nanoTime();
+            log.info("Applying migration V{} {}", script.version(), script.description());
+            ScriptUtils.executeSqlScript(connection, new EncodedResource(script.resource(), StandardCharsets.UTF_8));
+            try (PreparedStatement insert = connection.prepareStatement(
+                    "INSERT INTO schema_version (version, description, checksum, execution_ms) VALUES (?, ?, ?, ?)")) {
+                insert.setInt(1, script.version());
+                insert.setString(2, script.description());
+                insert.setString(3, script.checksum());
+                insert.setLong(4, (System.nanoTime() - start) / 1_000_000);
+                insert.executeUpdate();
+            }
+            executed++;
+        }
+        log.info("Schema is at version {} ({} migrations applied now)",
+                scripts.isEmpty() ? 0 : scripts.get(scripts.size() - 1).version(), executed);
+    }
+
+    private List<Script> loadScripts() throws IOException {
+        List<Script> scripts = new ArrayList<>();
+        for (Resource resource : new PathMatchingResourcePatternResolver().getResources(location)) {
+            Matcher matcher = SCRIPT_NAME.matcher(resource.getFilename() == null ? "" : resource.getFilename());
+            if (!matcher.matches()) {
+                throw new IllegalStateException("Invalid migration name: " + resource.getFilename());
+            }
+            int version = Integer.parseInt(matcher.group(1));
+            if (scripts.stream().anyMatch(script -> script.version() == version)) {
+                throw new IllegalStateException("Duplicate migration version V" + version);
+            }
+            scripts.add(new Script(version, matcher.group(2).replace('_', ' '), checksum(resource), resource));
+        }
+        scripts.sort(Comparator.comparingInt(Script::version));
+        return scripts;
+    }
+
+    private static String checksum(Resource resource) throws IOException {
+        try {
+            byte[] content = resource.getContentAsByteArray();
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void lock(Connection connection) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT GET_LOCK(?, ?)")) {
+            statement.setString(1, LOCK_NAME);
+            statement.setInt(2, LOCK_TIMEOUT_SECONDS);
+            try (ResultSet rs = statement.executeQuery()) {
+                if (!rs.next() || rs.getInt(1) != 1) {
+                    throw new IllegalStateException("Could not acquire the schema migration lock.");
+                }
+            }
+        }
+    }
+
+    private static void unlock(Connection connection) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT RELEASE_LOCK(?)")) {
+            statement.setString(1, LOCK_NAME);
+            statement.executeQuery().close();
+        }
+    }
+}
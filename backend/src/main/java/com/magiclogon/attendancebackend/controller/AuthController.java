@@ -7,6 +7,8 @@ import com.magiclogon.attendancebackend.dto.RegisterRequest;
 import com.magiclogon.attendancebackend.model.Employee;
 import com.magiclogon.attendancebackend.repository.EmployeeRepository;
 import com.magiclogon.attendancebackend.security.JwtUtil;
+import com.magiclogon.attendancebackend.security.PrincipalCache;
+import com.magiclogon.attendancebackend.security.UserPrincipal;
 import com.magiclogon.attendancebackend.service.AuthService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
@@ -30,6 +32,7 @@ public class AuthController {
 
     private final AuthService authService;
     private final JwtUtil jwtUtil;
+    private final PrincipalCache principalCache;
     private final AuthenticationManager authenticationManager;
     private final EmployeeRepository employeeRepository;
 
@@ -54,10 +57,12 @@ public class AuthController {
                     )
             );
 
-            // If authentication is successful, generate JWT token
+            // If authentication is successful, generate JWT token carrying the user id, role and entreprise
             UserDetails userDetails = (UserDetails) authentication.getPrincipal();
-            String token = jwtUtil.generateToken(userDetails);
-            String role = userDetails.getAuthorities().stream().findFirst().get().getAuthority();
+            principalCache.evict(userDetails.getUsername());
+            UserPrincipal principal = principalCache.get(userDetails.getUsername());
+            String token = jwtUtil.generateToken(principal);
+            String role = principal.role().name();
 
             // Call your existing login service
             authService.loginUser(loginRequest);
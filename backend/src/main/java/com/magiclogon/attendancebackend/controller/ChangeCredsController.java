@@ -24,8 +24,8 @@ public class ChangeCredsController {
     @PreAuthorize("hasAnyRole('MANAGER', 'EMPLOYEE')")
     public ResponseEntity<?> changePassword(@RequestBody ChangePasswordDTO request) {
         try {
-            authService.changePassword(request);
-            return ResponseEntity.status(200).body(new ApiResponseDTO("Password changed successfully", true));
+            AuthResponse response = authService.changePassword(request);
+            return ResponseEntity.status(200).body(response);
         } catch (IllegalArgumentException e) {
             if(e.getMessage().equals("Wrong password")) {
                 return ResponseEntity.status(401).body(new ApiResponseDTO("Wrong password", false));
@@ -2,17 +2,20 @@ package com.magiclogon.attendancebackend.controller;
 
 import com.magiclogon.attendancebackend.dto.ApiResponseDTO;
 import com.magiclogon.attendancebackend.dto.DashboardTopStatsDTO;
-import com.magiclogon.attendancebackend.service.AuthService;
-import com.magiclogon.attendancebackend.service.EmployeeManagementService;
+import com.magiclogon.attendancebackend.dto.DayPresenceStatsDTO;
+import com.magiclogon.attendancebackend.service.DashboardService;
 import com.magiclogon.attendancebackend.service.PresenceManagementService;
-import com.magiclogon.attendancebackend.service.ScheduleManagementService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.time.LocalDate;
 import java.util.List;
 
 @RestController
@@ -20,26 +23,43 @@ import java.util.List;
 @RequestMapping("/api/manager/dashboard")
 public class DashboardInfoController {
 
-    private final ScheduleManagementService scheduleManagementService;
-    private final EmployeeManagementService employeeManagementService;
     private final PresenceManagementService presenceManagementService;
-    private final AuthService authService;
+    private final DashboardService dashboardService;
 
     // Get dashboard top stats
     @GetMapping("/getDashboardTopStats")
     @PreAuthorize("hasRole('MANAGER')")
     public ResponseEntity<?> getDashboardTopStats() {
         try {
-            List<String> managerInfo = authService.getManagerInfo();
-            DashboardTopStatsDTO dto = new DashboardTopStatsDTO(managerInfo.get(0),managerInfo.get(1), managerInfo.get(2),
-                    employeeManagementService.getNumberEmployees(),
-                    scheduleManagementService.getTodaySchedulesNumber(),
-                    presenceManagementService.getNumberOfPresenceTillNow(),
-                    presenceManagementService.getWeekPresenceStats());
-
+            DashboardTopStatsDTO dto = dashboardService.getDashboardTopStats();
             return ResponseEntity.ok(dto);
         } catch (IllegalArgumentException e) {
             return ResponseEntity.status(400).body(new ApiResponseDTO(e.getMessage(), false));
         }
     }
+
+    // Get presence stats over the last 7, 30 or 90 closed days
+    @GetMapping("/presenceStats")
+    @PreAuthorize("hasRole('MANAGER')")
+    public ResponseEntity<?> getPresenceStats(@RequestParam(name = "days", defaultValue = "7") int days) {
+        try {
+            List<DayPresenceStatsDTO> stats = presenceManagementService.getPresenceStats(days);
+            return ResponseEntity.ok(stats);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(400).body(new ApiResponseDTO(e.getMessage(), false));
+        }
+    }
+
+    // Recompute the attendance rollup of a date range from the raw presences
+    @PostMapping("/rebuildRollup")
+    @PreAuthorize("hasRole('MANAGER')")
+    public ResponseEntity<?> rebuildRollup(@RequestParam(name = "from") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                           @RequestParam(name = "to") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        try {
+            int rows = presenceManagementService.rebuildRollup(from, to);
+            return ResponseEntity.ok(new ApiResponseDTO("Rollup rebuilt: " + rows + " rows", true));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(400).body(new ApiResponseDTO(e.getMessage(), false));
+        }
+    }
 }
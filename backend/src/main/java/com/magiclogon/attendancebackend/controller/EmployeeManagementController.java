@@ -3,12 +3,16 @@ package com.magiclogon.attendancebackend.controller;
 import com.magiclogon.attendancebackend.dto.*;
 import com.magiclogon.attendancebackend.model.Employee;
 import com.magiclogon.attendancebackend.service.EmployeeManagementService;
+import com.magiclogon.attendancebackend.utils.PageRequests;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.time.ZoneId;
 import java.util.List;
 
 @RestController
@@ -73,13 +77,28 @@ public class EmployeeManagementController {
         return ResponseEntity.ok(employees);
     }
 
-    // Get all employees but detailed
+    // Get all employees but detailed. Without a size the whole entreprise is streamed as one JSON array;
+    // with one, a page of employees after the cursor (employee id) and the next cursor in a header.
     @GetMapping("/detailedEmployees")
     @PreAuthorize("hasRole('MANAGER')")
-    public ResponseEntity<?> getAllEmployeesWithDetails() {
+    public ResponseEntity<?> getAllEmployeesWithDetails(@RequestParam(name = "after", required = false) Integer after,
+                                                        @RequestParam(name = "size", required = false) Integer size) {
         try {
-            List<EmployeeDetailedResponseDTO> employees = employeeManagementService.getAllEmployeesWithDetails();
-            return ResponseEntity.ok(employees);
+            int entrepriseId = employeeManagementService.getAuthenticatedEntrepriseId();
+            ZoneId zone = employeeManagementService.getAuthenticatedEntrepriseZone();
+            if (size == null) {
+                StreamingResponseBody body = out -> employeeManagementService.writeAllEmployeesWithDetails(entrepriseId, zone, out);
+                return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+            }
+            if (size < 1 || size > PageRequests.MAX_PAGE_SIZE) {
+                throw new IllegalArgumentException("Page size must be between 1 and " + PageRequests.MAX_PAGE_SIZE + ".");
+            }
+            List<EmployeeDetailedResponseDTO> employees = employeeManagementService.getEmployeesWithDetails(entrepriseId, zone, after == null ? 0 : after, size);
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+            if (employees.size() == size) {
+                response.header(PageRequests.NEXT_CURSOR_HEADER, String.valueOf(employees.get(employees.size() - 1).getEmployeeDetails().getId()));
+            }
+            return response.body(employees);
         } catch (IllegalArgumentException e) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(new ApiResponseDTO(e.getMessage(), false));
         }
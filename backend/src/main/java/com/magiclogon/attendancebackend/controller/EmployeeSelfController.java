@@ -1,18 +1,16 @@
 package com.magiclogon.attendancebackend.controller;
 
+import com.magiclogon.attendancebackend.client.FaceRecognitionClient;
+import com.magiclogon.attendancebackend.client.FaceRecognitionException;
+import com.magiclogon.attendancebackend.client.FaceRecognitionUnavailableException;
 import com.magiclogon.attendancebackend.dto.*;
+import com.magiclogon.attendancebackend.service.AttendanceAnalyticsService;
 import com.magiclogon.attendancebackend.service.EmployeeSelfService;
 import lombok.RequiredArgsConstructor;
-import org.springframework.core.io.ByteArrayResource;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.*;
 import org.springframework.security.access.prepost.PreAuthorize;
-import org.springframework.util.LinkedMultiValueMap;
-import org.springframework.util.MultiValueMap;
 import org.springframework.web.bind.annotation.*;
-import org.springframework.web.client.HttpClientErrorException;
-import org.springframework.web.client.HttpServerErrorException;
-import org.springframework.web.client.RestTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
@@ -25,7 +23,8 @@ import java.util.Map;
 public class EmployeeSelfController {
 
     private final EmployeeSelfService employeeSelfService;
-    private static final String FLASK_SERVICE_URL = "http://localhost:5000/register-face";
+    private final FaceRecognitionClient faceRecognitionClient;
+    private final AttendanceAnalyticsService attendanceAnalyticsService;
 
     @GetMapping("/details")
     @PreAuthorize("hasRole('EMPLOYEE')")
@@ -73,64 +72,61 @@ public class EmployeeSelfController {
         }
     }
 
+    // Own worked hours, lateness and streaks over a date range (last 30 days by default)
+    @GetMapping("/analytics")
+    @PreAuthorize("hasRole('EMPLOYEE')")
+    public ResponseEntity<?> getEmployeeAnalytics(@RequestParam(name = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                                  @RequestParam(name = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        try {
+            AttendanceStatsDTO stats = attendanceAnalyticsService.getSelfStats(from, to);
+            return ResponseEntity.ok(stats);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(400).body(new ApiResponseDTO(e.getMessage(), false));
+        }
+    }
+
     @PostMapping(value = "/registerFace", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
     @PreAuthorize("hasRole('EMPLOYEE')")
     public ResponseEntity<?> registerFace(
             @RequestParam("employeeId") String employeeId,
             @RequestParam("file") MultipartFile file) {
 
-        RestTemplate restTemplate = new RestTemplate();
-
         try {
             // 1. Validate input
             if (file.isEmpty()) {
                 return ResponseEntity.badRequest()
                         .body(Map.of("success", false, "message", "File cannot be empty"));
             }
+            if (file.getSize() > faceRecognitionClient.getMaxImageBytes()) {
+                return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE)
+                        .body(Map.of("success", false, "message", "Image is too large"));
+            }
 
-            // 2. Prepare headers for Flask service
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.MULTIPART_FORM_DATA);
-
-            // 3. Prepare multipart request body
-            MultiValueMap<String, Object> body = new LinkedMultiValueMap<>();
-            body.add("employee_id", employeeId);
-
-            // Convert MultipartFile to resource while preserving filename
-            ByteArrayResource fileResource = new ByteArrayResource(file.getBytes()) {
-                @Override
-                public String getFilename() {
-                    return file.getOriginalFilename(); // Preserve original filename
-                }
-            };
-            body.add("image", fileResource);
-
-            // 4. Create request entity
-            HttpEntity<MultiValueMap<String, Object>> requestEntity =
-                    new HttpEntity<>(body, headers);
-
-            // 5. Forward to Flask service
-            ResponseEntity<String> response = restTemplate.exchange(
-                    FLASK_SERVICE_URL,
-                    HttpMethod.POST,
-                    requestEntity,
-                    String.class
-            );
+            // 2. Forward to face recognition service
+            String response = faceRecognitionClient.registerFace(employeeId, file);
 
             employeeSelfService.setHasRegisteredFace();
-            // 6. Return Flask service response directly to client
+            // 3. Return face recognition service response directly to client
             return ResponseEntity
-                    .status(response.getStatusCode())
-                    .body(response.getBody());
+                    .status(HttpStatus.OK)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(response);
 
-        } catch (HttpClientErrorException | HttpServerErrorException ex) {
-            // Flask service returned an error (e.g., 400, 500)
+        } catch (FaceRecognitionUnavailableException ex) {
+            return ResponseEntity
+                    .status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .body(Map.of(
+                            "success", false,
+                            "message", "Recognition unavailable, please try again shortly"
+                    ));
+        } catch (FaceRecognitionException ex) {
+            // Face recognition service returned an error (e.g., 400, 500)
             return ResponseEntity
-                    .status(ex.getStatusCode())
+                    .status(ex.getStatus())
                     .body(Map.of(
                             "success", false,
                             "message", "Error from face recognition service",
-                            "details", ex.getResponseBodyAsString()
+                            "details", ex.getResponseBody() != null ? ex.getResponseBody() : ""
                     ));
         } catch (IOException e) {
             return ResponseEntity.internalServerError()
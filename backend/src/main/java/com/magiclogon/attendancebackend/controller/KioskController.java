@@ -1,26 +1,36 @@
 package com.magiclogon.attendancebackend.controller;
 
+import com.magiclogon.attendancebackend.client.FaceRecognitionClient;
+import com.magiclogon.attendancebackend.client.FaceRecognitionException;
+import com.magiclogon.attendancebackend.client.FaceRecognitionUnavailableException;
 import com.magiclogon.attendancebackend.dto.ApiResponseDTO;
+import com.magiclogon.attendancebackend.dto.CheckinBatchRequestDTO;
+import com.magiclogon.attendancebackend.dto.EmployeeResponseDTO;
+import com.magiclogon.attendancebackend.dto.FaceCandidateDTO;
+import com.magiclogon.attendancebackend.dto.FaceEmbeddingResponseDTO;
+import com.magiclogon.attendancebackend.dto.FaceIdentificationResponseDTO;
 import com.magiclogon.attendancebackend.dto.FaceVerificationResponseDTO;
 import com.magiclogon.attendancebackend.dto.SetupAttendanceCameraDTO;
 import com.magiclogon.attendancebackend.dto.SetupAttendanceCameraRequestDTO;
 import com.magiclogon.attendancebackend.security.JwtKioskUtil;
+import com.magiclogon.attendancebackend.service.CheckinIngestionService;
 import com.magiclogon.attendancebackend.service.EmployeeManagementService;
+import com.magiclogon.attendancebackend.service.FaceEmbeddingIndex;
 import com.magiclogon.attendancebackend.service.KioskService;
 import com.magiclogon.attendancebackend.service.PresenceManagementService;
 import lombok.RequiredArgsConstructor;
-import org.springframework.core.io.ByteArrayResource;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.*;
 import org.springframework.security.access.prepost.PreAuthorize;
-import org.springframework.util.LinkedMultiValueMap;
-import org.springframework.util.MultiValueMap;
+import org.springframework.util.DigestUtils;
 import org.springframework.web.bind.annotation.*;
-import org.springframework.web.client.HttpClientErrorException;
-import org.springframework.web.client.HttpServerErrorException;
-import org.springframework.web.client.RestTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalTime;
+import java.util.List;
 import java.util.Map;
 
 @RestController
@@ -32,7 +42,11 @@ public class KioskController {
     private final JwtKioskUtil jwtKioskUtil;
     private final PresenceManagementService presenceManagementService;
     private final EmployeeManagementService employeeManagementService;
-    private static final String FLASK_SERVICE_URL = "http://localhost:5000/verify-face";
+    private final FaceRecognitionClient faceRecognitionClient;
+    private final FaceEmbeddingIndex faceEmbeddingIndex;
+    private final CheckinIngestionService checkinIngestionService;
+
+    private static final int MAX_IDENTIFY_CANDIDATES = 10;
 
 
     // Authenticate Kiosk
@@ -49,7 +63,9 @@ public class KioskController {
 
     // Setup Camera Attendance
     @GetMapping("/setup")
-    public ResponseEntity<?> setupCameraAttendance(@RequestHeader("Authorization") String authHeader) {
+    public ResponseEntity<?> setupCameraAttendance(@RequestHeader("Authorization") String authHeader,
+                                                   @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                                                   @RequestParam(name = "since", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.TIME) LocalTime since) {
         String token = authHeader.replace("Bearer ", "");
         if(!jwtKioskUtil.isKioskToken(token)) {
             return ResponseEntity.status(403).body(new ApiResponseDTO("Invalid token", false));
@@ -57,12 +73,34 @@ public class KioskController {
 
         Integer entreprise_id = jwtKioskUtil.extractCompanyId(token);
         try {
-            SetupAttendanceCameraDTO setup = kioskService.setupAttendanceCamera(entreprise_id);
-            return ResponseEntity.ok(setup);
+            SetupAttendanceCameraDTO setup = kioskService.setupAttendanceCamera(entreprise_id, since);
+
+            // Polling kiosks send back the last ETag and get a 304 while the roster is unchanged
+            String etag = rosterETag(setup);
+            if (etag.equals(ifNoneMatch)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+            }
+            return ResponseEntity.ok().eTag(etag).body(setup);
         } catch (IllegalArgumentException e) {
             return ResponseEntity.status(400).body(new ApiResponseDTO(e.getMessage(), false));
         }
     }
+
+    // Digest of every field the kiosk receives, so an edited name, email or position changes it like a new employee
+    private static String rosterETag(SetupAttendanceCameraDTO setup) {
+        StringBuilder content = new StringBuilder(String.valueOf(setup.getEntrepriseName()));
+        for (EmployeeResponseDTO employee : setup.getEmployees()) {
+            content.append('\n').append(employee.getId())
+                    .append('\0').append(employee.getEmployeeFirstName())
+                    .append('\0').append(employee.getEmployeeLastName())
+                    .append('\0').append(employee.getEmployeeUsername())
+                    .append('\0').append(employee.getEmployeeEntreprise())
+                    .append('\0').append(employee.getEmployeeEmail())
+                    .append('\0').append(employee.getEmployeePhone())
+                    .append('\0').append(employee.getEmployeePositionTitle());
+        }
+        return "\"" + DigestUtils.md5DigestAsHex(content.toString().getBytes(StandardCharsets.UTF_8)) + "\"";
+    }
     
     // Verify Face to mark attendance
     @PostMapping(value = "/verifyFace", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
@@ -80,67 +118,48 @@ public class KioskController {
             return ResponseEntity.status(400).body(new ApiResponseDTO("Employee does not belong to this entreprise", false));
         }
 
-        RestTemplate restTemplate = new RestTemplate();
-
         try {
             // 1. Validate input
             if (file.isEmpty()) {
                 return ResponseEntity.badRequest()
                         .body(Map.of("success", false, "message", "File cannot be empty"));
             }
+            if (file.getSize() > faceRecognitionClient.getMaxImageBytes()) {
+                return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE)
+                        .body(Map.of("success", false, "message", "Image is too large"));
+            }
 
-            // 2. Prepare headers for Flask service
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.MULTIPART_FORM_DATA);
-
-            // 3. Prepare multipart request body
-            MultiValueMap<String, Object> body = new LinkedMultiValueMap<>();
-            body.add("employee_id", employeeId);
-
-            // Convert MultipartFile to resource while preserving filename
-            ByteArrayResource fileResource = new ByteArrayResource(file.getBytes()) {
-                @Override
-                public String getFilename() {
-                    return file.getOriginalFilename(); // Preserve original filename
-                }
-            };
-            body.add("image", fileResource);
-
-            // 4. Create request entity
-            HttpEntity<MultiValueMap<String, Object>> requestEntity =
-                    new HttpEntity<>(body, headers);
-
-            // 5. Forward to Flask service
-            ResponseEntity<FaceVerificationResponseDTO> response = restTemplate.exchange(
-                    FLASK_SERVICE_URL,
-                    HttpMethod.POST,
-                    requestEntity,
-                    FaceVerificationResponseDTO.class
-            );
-
-            if(response.getStatusCode() == HttpStatus.OK) {
-                try {
-                    if(response.getBody() != null && response.getBody().isMatch())
-                        presenceManagementService.handleEmployeePresence(Integer.valueOf(employeeId));
-                    else
-                        return ResponseEntity.status(400).body(new ApiResponseDTO("Faces don't match", false));
-                } catch (IllegalArgumentException | IllegalStateException e) {
-                    return ResponseEntity.status(400).body(new ApiResponseDTO(e.getMessage(), false));
-                }
+            // 2. Forward to face recognition service
+            FaceVerificationResponseDTO verification = faceRecognitionClient.verifyFace(employeeId, file);
+
+            try {
+                if(verification != null && verification.isMatch())
+                    presenceManagementService.handleEmployeePresence(Integer.valueOf(employeeId));
+                else
+                    return ResponseEntity.status(400).body(new ApiResponseDTO("Faces don't match", false));
+            } catch (IllegalArgumentException | IllegalStateException e) {
+                return ResponseEntity.status(400).body(new ApiResponseDTO(e.getMessage(), false));
+            } catch (ConcurrencyFailureException e) {
+                return ResponseEntity.status(HttpStatus.CONFLICT).body(new ApiResponseDTO(e.getMessage(), false));
             }
 
             return ResponseEntity
-                    .status(response.getStatusCode())
+                    .status(HttpStatus.OK)
                     .body(new ApiResponseDTO("Face Verified Successfully", true));
 
-        } catch (HttpClientErrorException | HttpServerErrorException ex) {
-            // Flask service returned an error (e.g., 400, 500)
+        } catch (FaceRecognitionUnavailableException ex) {
+            // Fail fast while the recognition service is slow or down
+            return ResponseEntity
+                    .status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .body(new ApiResponseDTO("Recognition unavailable, please try again shortly", false));
+        } catch (FaceRecognitionException ex) {
+            // Face recognition service returned an error (e.g., 400, 500)
             return ResponseEntity
-                    .status(ex.getStatusCode())
+                    .status(ex.getStatus())
                     .body(Map.of(
                             "success", false,
-                            "message", ex.getResponseBodyAsString() != null ? ex.getResponseBodyAsString() : "Error from face recognition service",
-                            "details", ex.getResponseBodyAsString()
+                            "message", ex.getResponseBody() != null ? ex.getResponseBody() : "Error from face recognition service",
+                            "details", ex.getResponseBody() != null ? ex.getResponseBody() : ""
                     ));
         } catch (IOException e) {
             return ResponseEntity.internalServerError()
@@ -158,4 +177,95 @@ public class KioskController {
                     ));
         }
     }
+
+    // Identify who is in front of the kiosk (1:N) and mark their attendance, no roster selection needed
+    @PostMapping(value = "/identifyFace", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<?> identifyFace(
+            @RequestParam("file") MultipartFile file,
+            @RequestParam(name = "topK", defaultValue = "3") int topK,
+            @RequestHeader("Authorization") String authHeader) {
+
+        String token = authHeader.replace("Bearer ", "");
+        if(!jwtKioskUtil.isKioskToken(token)) {
+            return ResponseEntity.status(403).body(new ApiResponseDTO("Invalid token", false));
+        }
+
+        try {
+            // 1. Validate input
+            if (file.isEmpty()) {
+                return ResponseEntity.badRequest()
+                        .body(Map.of("success", false, "message", "File cannot be empty"));
+            }
+            if (file.getSize() > faceRecognitionClient.getMaxImageBytes()) {
+                return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE)
+                        .body(Map.of("success", false, "message", "Image is too large"));
+            }
+            if (topK < 1 || topK > MAX_IDENTIFY_CANDIDATES) {
+                return ResponseEntity.badRequest()
+                        .body(new ApiResponseDTO("topK must be between 1 and " + MAX_IDENTIFY_CANDIDATES, false));
+            }
+
+            // 2. One embedding pass on the service, the matching is done against the local index
+            FaceEmbeddingResponseDTO embedding = faceRecognitionClient.embed(file);
+            List<FaceEmbeddingIndex.Match> matches = faceEmbeddingIndex.identify(jwtKioskUtil.extractCompanyId(token), embedding.getEmbedding(),
+                    FaceEmbeddingIndex.Metric.of(embedding.getDistance_metric()), topK);
+
+            List<FaceCandidateDTO> candidates = matches.stream()
+                    .map(match -> new FaceCandidateDTO(match.employeeId(), match.distance()))
+                    .toList();
+            if (matches.isEmpty() || matches.get(0).distance() > embedding.getThreshold()) {
+                return ResponseEntity.status(404)
+                        .body(new FaceIdentificationResponseDTO(false, null, embedding.getThreshold(), candidates));
+            }
+
+            int employeeId = matches.get(0).employeeId();
+            try {
+                presenceManagementService.handleEmployeePresence(employeeId);
+            } catch (IllegalArgumentException | IllegalStateException e) {
+                return ResponseEntity.status(400).body(new ApiResponseDTO(e.getMessage(), false));
+            } catch (ConcurrencyFailureException e) {
+                return ResponseEntity.status(HttpStatus.CONFLICT).body(new ApiResponseDTO(e.getMessage(), false));
+            }
+
+            return ResponseEntity.ok(new FaceIdentificationResponseDTO(true, employeeId, embedding.getThreshold(), candidates));
+
+        } catch (FaceRecognitionUnavailableException ex) {
+            return ResponseEntity
+                    .status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .body(new ApiResponseDTO("Recognition unavailable, please try again shortly", false));
+        } catch (FaceRecognitionException ex) {
+            return ResponseEntity
+                    .status(ex.getStatus())
+                    .body(Map.of(
+                            "success", false,
+                            "message", ex.getResponseBody() != null ? ex.getResponseBody() : "Error from face recognition service",
+                            "details", ex.getResponseBody() != null ? ex.getResponseBody() : ""
+                    ));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(400).body(new ApiResponseDTO(e.getMessage(), false));
+        } catch (IOException e) {
+            return ResponseEntity.internalServerError()
+                    .body(Map.of(
+                            "success", false,
+                            "message", "File processing error",
+                            "error", e.getMessage()
+                    ));
+        }
+    }
+
+    // Batched ingestion of check-ins captured by the kiosk, retries are safe thanks to the idempotency keys
+    @PostMapping("/checkins/batch")
+    public ResponseEntity<?> ingestCheckins(@RequestBody CheckinBatchRequestDTO request,
+                                            @RequestHeader("Authorization") String authHeader) {
+        String token = authHeader.replace("Bearer ", "");
+        if(!jwtKioskUtil.isKioskToken(token)) {
+            return ResponseEntity.status(403).body(new ApiResponseDTO("Invalid token", false));
+        }
+
+        try {
+            return ResponseEntity.ok(checkinIngestionService.ingest(jwtKioskUtil.extractCompanyId(token), request.getEvents()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(400).body(new ApiResponseDTO(e.getMessage(), false));
+        }
+    }
 }
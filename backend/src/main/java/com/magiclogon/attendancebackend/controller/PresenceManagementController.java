@@ -1,15 +1,27 @@
 package com.magiclogon.attendancebackend.controller;
 
 import com.magiclogon.attendancebackend.dto.ApiResponseDTO;
+import com.magiclogon.attendancebackend.dto.AttendanceStatsDTO;
 import com.magiclogon.attendancebackend.dto.EmployeePresenceDTO;
 import com.magiclogon.attendancebackend.dto.UpdatePresenceStatusDTO;
+import com.magiclogon.attendancebackend.service.AttendanceAnalyticsService;
+import com.magiclogon.attendancebackend.service.AttendanceExportService;
 import com.magiclogon.attendancebackend.service.PresenceManagementService;
+import com.magiclogon.attendancebackend.utils.PageRequests;
 import lombok.RequiredArgsConstructor;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.data.domain.Page;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.util.List;
 
@@ -19,6 +31,8 @@ import java.util.List;
 public class PresenceManagementController {
 
     private final PresenceManagementService presenceManagementService;
+    private final AttendanceExportService attendanceExportService;
+    private final AttendanceAnalyticsService attendanceAnalyticsService;
 
     // Get presences of an employee at a date
     @GetMapping("/employee/{employee_id}")
@@ -41,14 +55,17 @@ public class PresenceManagementController {
     // Get presences records for all entreprise employees
     @GetMapping("/employees")
     @PreAuthorize("hasRole('MANAGER')")
-    public ResponseEntity<?> getAllEmployeesPresences(@RequestParam(name = "date", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
+    public ResponseEntity<?> getAllEmployeesPresences(@RequestParam(name = "date", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date,
+                                                      @RequestParam(name = "page", required = false) Integer page,
+                                                      @RequestParam(name = "size", required = false) Integer size,
+                                                      @RequestParam(name = "sort", defaultValue = "name") String sort) {
         if(date == null) {
             date = LocalDate.now();
         }
         try {
-            List<EmployeePresenceDTO> employeePresences;
-            employeePresences = presenceManagementService.getAllEmployeesPresences(date);
-            return ResponseEntity.ok(employeePresences);
+            Page<EmployeePresenceDTO> employeePresences;
+            employeePresences = presenceManagementService.getAllEmployeesPresences(date, PageRequests.of(page, size, sort));
+            return PageRequests.toResponse(employeePresences);
         } catch (IllegalArgumentException e) {
             return ResponseEntity.status(400).body(new ApiResponseDTO(e.getMessage(), false));
         }
@@ -68,6 +85,58 @@ public class PresenceManagementController {
             return ResponseEntity.status(200).body(dto);
         } catch (IllegalArgumentException e) {
             return ResponseEntity.status(400).body(new ApiResponseDTO(e.getMessage(), false));
+        } catch (ConcurrencyFailureException e) {
+            // The presence was checked in or out after it was read (row version changed)
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(new ApiResponseDTO("Attendance changed meanwhile, please reload and try again.", false));
+        }
+    }
+
+    // Attendance of a date range for payroll, streamed as CSV or NDJSON (one presence per line)
+    @GetMapping("/export")
+    @PreAuthorize("hasRole('MANAGER')")
+    public ResponseEntity<?> exportAttendance(@RequestParam(name = "from") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                              @RequestParam(name = "to") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                              @RequestParam(name = "format", defaultValue = "csv") String format) {
+        try {
+            AttendanceExportService.Format exportFormat = AttendanceExportService.parseFormat(format);
+            AttendanceExportService.validateRange(from, to);
+            int entrepriseId = attendanceExportService.getAuthenticatedEntrepriseId();
+
+            StreamingResponseBody body = out -> attendanceExportService.export(entrepriseId, from, to, exportFormat, out);
+            boolean csv = exportFormat == AttendanceExportService.Format.CSV;
+            return ResponseEntity.ok()
+                    .contentType(csv ? new MediaType("text", "csv", StandardCharsets.UTF_8) : MediaType.parseMediaType("application/x-ndjson"))
+                    .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                            .filename("attendance-" + from + "-" + to + (csv ? ".csv" : ".ndjson")).build().toString())
+                    .body(body);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(400).body(new ApiResponseDTO(e.getMessage(), false));
+        }
+    }
+
+    // Worked hours, lateness and streaks of every employee over a date range (last 30 days by default)
+    @GetMapping("/analytics")
+    @PreAuthorize("hasRole('MANAGER')")
+    public ResponseEntity<?> getAttendanceAnalytics(@RequestParam(name = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                                    @RequestParam(name = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        try {
+            List<AttendanceStatsDTO> stats = attendanceAnalyticsService.getEntrepriseStats(from, to);
+            return ResponseEntity.ok(stats);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(400).body(new ApiResponseDTO(e.getMessage(), false));
+        }
+    }
+
+    @GetMapping("/analytics/employee/{employee_id}")
+    @PreAuthorize("hasRole('MANAGER')")
+    public ResponseEntity<?> getEmployeeAttendanceAnalytics(@PathVariable Integer employee_id,
+                                                            @RequestParam(name = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                                            @RequestParam(name = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        try {
+            AttendanceStatsDTO stats = attendanceAnalyticsService.getEmployeeStats(employee_id, from, to);
+            return ResponseEntity.ok(stats);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(400).body(new ApiResponseDTO(e.getMessage(), false));
         }
     }
 
@@ -2,10 +2,14 @@ package com.magiclogon.attendancebackend.controller;
 
 import com.magiclogon.attendancebackend.dto.ApiResponseDTO;
 import com.magiclogon.attendancebackend.dto.CreateScheduleDTO;
+import com.magiclogon.attendancebackend.dto.CreateScheduleTemplateDTO;
 import com.magiclogon.attendancebackend.dto.CreateScheduleToMultipleDTO;
 import com.magiclogon.attendancebackend.dto.ScheduleOfEmployeeResponseDTO;
+import com.magiclogon.attendancebackend.dto.ScheduleTemplateResponseDTO;
 import com.magiclogon.attendancebackend.service.ScheduleManagementService;
+import com.magiclogon.attendancebackend.utils.PageRequests;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Page;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -57,11 +61,52 @@ public class ScheduleManagementController {
 
     @GetMapping("/showAllSchedules")
     @PreAuthorize("hasRole('MANAGER')")
-    public ResponseEntity<?> getScheduleOfAllEmployees(@RequestParam(name = "date", required = true) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
+    public ResponseEntity<?> getScheduleOfAllEmployees(@RequestParam(name = "date", required = true) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date,
+                                                       @RequestParam(name = "page", required = false) Integer page,
+                                                       @RequestParam(name = "size", required = false) Integer size,
+                                                       @RequestParam(name = "sort", defaultValue = "name") String sort) {
         try {
-            List<ScheduleOfEmployeeResponseDTO> schedules;
-            schedules = scheduleManagementService.getSchedulesOfAllEmployees(date);
-            return ResponseEntity.ok(schedules);
+            Page<ScheduleOfEmployeeResponseDTO> schedules;
+            schedules = scheduleManagementService.getSchedulesOfAllEmployees(date, PageRequests.of(page, size, sort));
+            return PageRequests.toResponse(schedules);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(new ApiResponseDTO(e.getMessage(), false));
+        }
+    }
+
+    @PostMapping("/addScheduleTemplate")
+    @PreAuthorize("hasRole('MANAGER')")
+    public ResponseEntity<?> addScheduleTemplate(@RequestBody CreateScheduleTemplateDTO request) {
+        try {
+            List<Integer> unsuccessful_ids = scheduleManagementService.addScheduleTemplate(request);
+            if(unsuccessful_ids.isEmpty()) {
+                return ResponseEntity.status(HttpStatus.CREATED).body(new ApiResponseDTO("Schedule template added successfully", true));
+            } else {
+                return ResponseEntity.status(HttpStatus.CREATED).body(new ApiResponseDTO("Some employees were not added successfully: " + unsuccessful_ids.stream().map(Object::toString)
+                        .collect(Collectors.joining(", ")), false));
+            }
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(new ApiResponseDTO(e.getMessage(), false));
+        }
+    }
+
+    @GetMapping("/showScheduleTemplates/{employee_id}")
+    @PreAuthorize("hasRole('MANAGER')")
+    public ResponseEntity<?> getScheduleTemplatesOfEmployee(@PathVariable Integer employee_id) {
+        try {
+            List<ScheduleTemplateResponseDTO> templates = scheduleManagementService.getScheduleTemplatesOfEmployee(employee_id);
+            return ResponseEntity.ok(templates);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(new ApiResponseDTO(e.getMessage(), false));
+        }
+    }
+
+    @DeleteMapping("/deleteScheduleTemplate/{template_id}")
+    @PreAuthorize("hasRole('MANAGER')")
+    public ResponseEntity<?> deleteScheduleTemplate(@PathVariable Integer template_id) {
+        try {
+            scheduleManagementService.deleteScheduleTemplate(template_id);
+            return ResponseEntity.ok(new ApiResponseDTO("Schedule template deleted successfully", true));
         } catch (IllegalArgumentException e) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(new ApiResponseDTO(e.getMessage(), false));
         }
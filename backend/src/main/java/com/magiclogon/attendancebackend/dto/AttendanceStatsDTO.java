@@ -0,0 +1,34 @@
+package com.magiclogon.attendancebackend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class AttendanceStatsDTO {
+    private int employeeId;
+    private String employeeFirstName;
+    private String employeeLastName;
+    private LocalDate from;
+    private LocalDate to;
+    private int workingDays;
+    private int presentDays;
+    private int lateDays;
+    private int absentDays;
+    private int daysOff;
+    private long scheduledMinutes;
+    private long workedMinutes;
+    private long breakMinutes;
+    private long lateMinutes;
+    private int maxLateMinutes;
+    private int longestAbsenceStreak;
+    private int currentAbsenceStreak;
+    private int longestOnTimeStreak;
+    // Share of the closed working days (present, late or absent) the employee came, and came on time
+    private double attendanceRate;
+    private double punctualityRate;
+}
@@ -0,0 +1,14 @@
+package com.magiclogon.attendancebackend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class CheckinBatchRequestDTO {
+    private List<CheckinEventDTO> events;
+}
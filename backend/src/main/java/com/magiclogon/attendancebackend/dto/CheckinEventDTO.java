@@ -0,0 +1,19 @@
+package com.magiclogon.attendancebackend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+// One check-in captured by a kiosk. Either verified by the kiosk already, or carrying the photo to verify.
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class CheckinEventDTO {
+    private String idempotencyKey;
+    private Integer employeeId;
+    private Instant occurredAt;
+    private boolean verified;
+    private String image;
+}
@@ -0,0 +1,21 @@
+package com.magiclogon.attendancebackend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class CheckinEventResultDTO {
+
+    // RETRY means nothing was recorded and the kiosk should send the event again later
+    public enum Outcome {
+        APPLIED,
+        REJECTED,
+        DUPLICATE,
+        RETRY
+    }
+
+    private String idempotencyKey;
+    private Outcome outcome;
+    private String message;
+}
@@ -0,0 +1,22 @@
+package com.magiclogon.attendancebackend.dto;
+
+import lombok.Data;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+
+@Data
+public class CreateScheduleTemplateDTO {
+    private List<Integer> employees_ids;
+    private String scheduleName;
+    private LocalTime checkinTime;
+    private LocalTime checkoutTime;
+    private LocalTime breakStartTime;
+    private LocalTime breakEndTime;
+    private Boolean isDayOff;
+    private LocalDate startDate;
+    // e.g. FREQ=WEEKLY;INTERVAL=2;BYDAY=MO,WE,FR;UNTIL=20261231
+    private String recurrenceRule;
+    private List<LocalDate> exceptions;
+}
@@ -3,6 +3,8 @@ package com.magiclogon.attendancebackend.dto;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 
+import java.time.LocalDate;
+
 @Data
 @AllArgsConstructor
 public class DayPresenceStatsDTO {
@@ -11,4 +13,5 @@ public class DayPresenceStatsDTO {
     private int totalAbsent;
     private int totalLate;
     private int totalFree;
+    private LocalDate date;
 }
\ No newline at end of file
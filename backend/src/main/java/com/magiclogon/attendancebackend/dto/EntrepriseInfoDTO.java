@@ -15,6 +15,7 @@ public class EntrepriseInfoDTO {
     private String entreprisePhone;
     private String entrepriseEmail;
     private String entrepriseSector;
+    private String entrepriseTimeZone;
 
     public static EntrepriseInfoDTO mapToDo(Entreprise entreprise) {
         EntrepriseInfoDTO dto = new EntrepriseInfoDTO();
@@ -24,6 +25,7 @@ public class EntrepriseInfoDTO {
         dto.setEntrepriseEmail(entreprise.getEmail());
         dto.setEntreprisePhone(entreprise.getPhoneNumber());
         dto.setEntrepriseSector(entreprise.getSector());
+        dto.setEntrepriseTimeZone(entreprise.getTimeZone());
         return dto;
     }
 }
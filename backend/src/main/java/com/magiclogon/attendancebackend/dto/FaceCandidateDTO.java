@@ -0,0 +1,11 @@
+package com.magiclogon.attendancebackend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class FaceCandidateDTO {
+    private int employeeId;
+    private double distance;
+}
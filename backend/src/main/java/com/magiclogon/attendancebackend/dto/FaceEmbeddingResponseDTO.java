@@ -0,0 +1,15 @@
+package com.magiclogon.attendancebackend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class FaceEmbeddingResponseDTO {
+    private boolean success;
+    private float[] embedding;
+    private String distance_metric;
+    private double threshold;
+}
@@ -0,0 +1,15 @@
+package com.magiclogon.attendancebackend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class FaceEmbeddingsResponseDTO {
+    private boolean success;
+    private Map<String, float[]> embeddings;
+}
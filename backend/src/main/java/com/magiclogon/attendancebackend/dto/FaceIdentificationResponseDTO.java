@@ -0,0 +1,15 @@
+package com.magiclogon.attendancebackend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class FaceIdentificationResponseDTO {
+    private boolean match;
+    private Integer employeeId;
+    private double threshold;
+    private List<FaceCandidateDTO> candidates;
+}
@@ -0,0 +1,19 @@
+package com.magiclogon.attendancebackend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.LocalTime;
+
+@Data
+@AllArgsConstructor
+public class KioskRosterRowDTO {
+    private int employeeId;
+    private String firstName;
+    private String lastName;
+    private String username;
+    private String email;
+    private String phoneNumber;
+    private String positionTitle;
+    private LocalTime checkinTime;
+}
@@ -10,6 +10,7 @@ import java.time.LocalTime;
 @Data
 public class ScheduleOfEmployeeResponseDTO {
     private int scheduleId;
+    private int employeeId;
     private String employeeFirstName;
     private String employeeLastName;
     private String scheduleName;
@@ -25,6 +26,7 @@ public class ScheduleOfEmployeeResponseDTO {
             return null;
         ScheduleOfEmployeeResponseDTO dto = new ScheduleOfEmployeeResponseDTO();
         dto.setScheduleId(schedule.getId());
+        dto.setEmployeeId(schedule.getEmployee().getId());
         dto.setEmployeeFirstName(schedule.getEmployee().getFirstName());
         dto.setEmployeeLastName(schedule.getEmployee().getLastName());
         dto.setScheduleName(schedule.getScheduleName());
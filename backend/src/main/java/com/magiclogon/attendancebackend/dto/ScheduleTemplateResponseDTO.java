@@ -0,0 +1,41 @@
+package com.magiclogon.attendancebackend.dto;
+
+import com.magiclogon.attendancebackend.model.ScheduleTemplate;
+import lombok.Data;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+
+@Data
+public class ScheduleTemplateResponseDTO {
+    private int templateId;
+    private int employeeId;
+    private String scheduleName;
+    private LocalTime checkinTime;
+    private LocalTime checkoutTime;
+    private LocalTime breakStartTime;
+    private LocalTime breakEndTime;
+    private Boolean isDayOff;
+    private LocalDate startDate;
+    private String recurrenceRule;
+    private List<LocalDate> exceptions;
+
+    public static ScheduleTemplateResponseDTO mapToDTO(ScheduleTemplate template) {
+        if (template == null)
+            return null;
+        ScheduleTemplateResponseDTO dto = new ScheduleTemplateResponseDTO();
+        dto.setTemplateId(template.getId());
+        dto.setEmployeeId(template.getEmployee().getId());
+        dto.setScheduleName(template.getScheduleName());
+        dto.setCheckinTime(template.getCheckinTime());
+        dto.setCheckoutTime(template.getCheckoutTime());
+        dto.setBreakStartTime(template.getBreakStartTime());
+        dto.setBreakEndTime(template.getBreakEndTime());
+        dto.setIsDayOff(template.getIsDayOff());
+        dto.setStartDate(template.getStartDate());
+        dto.setRecurrenceRule(template.getRecurrenceRule());
+        dto.setExceptions(template.getExceptions().stream().sorted().toList());
+        return dto;
+    }
+}
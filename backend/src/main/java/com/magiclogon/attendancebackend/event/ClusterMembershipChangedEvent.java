@@ -0,0 +1,7 @@
+package com.magiclogon.attendancebackend.event;
+
+import java.util.List;
+
+// Published on a node when the set of live backend replicas it sees changes, so shard-owned work is reloaded.
+public record ClusterMembershipChangedEvent(List<String> liveNodeIds) {
+}
@@ -0,0 +1,10 @@
+package com.magiclogon.attendancebackend.event;
+
+// Published after presence, schedule or employee data of an entreprise changes.
+// A null entreprise id means the change spans every tenant (scheduled jobs).
+public record TenantDataChangedEvent(Integer entrepriseId) {
+
+    public static TenantDataChangedEvent allTenants() {
+        return new TenantDataChangedEvent(null);
+    }
+}
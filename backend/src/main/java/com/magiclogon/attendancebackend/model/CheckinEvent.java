@@ -0,0 +1,50 @@
+package com.magiclogon.attendancebackend.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+// Outcome of a kiosk check-in event, kept so a retried batch never records the same event twice
+@Data
+@Entity
+@NoArgsConstructor
+@Table(name = "checkin_event",
+        uniqueConstraints = @UniqueConstraint(name = "uk_checkin_event_entreprise_key", columnNames = {"entreprise_id", "idempotency_key"}))
+public class CheckinEvent {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private int id;
+
+    @Column(name = "entreprise_id", nullable = false)
+    private int entrepriseId;
+
+    @Column(name = "idempotency_key", nullable = false, length = 64)
+    private String idempotencyKey;
+
+    private int employeeId;
+
+    @Column(nullable = false)
+    private Instant eventTime;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private CheckinEventStatus status;
+
+    private String message;
+
+    @Column(nullable = false)
+    private Instant receivedAt;
+
+    public CheckinEvent(int entrepriseId, String idempotencyKey, int employeeId, Instant eventTime,
+                        CheckinEventStatus status, String message, Instant receivedAt) {
+        this.entrepriseId = entrepriseId;
+        this.idempotencyKey = idempotencyKey;
+        this.employeeId = employeeId;
+        this.eventTime = eventTime;
+        this.status = status;
+        this.message = message;
+        this.receivedAt = receivedAt;
+    }
+}
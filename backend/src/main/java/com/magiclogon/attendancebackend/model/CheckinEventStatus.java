@@ -0,0 +1,5 @@
+package com.magiclogon.attendancebackend.model;
+
+public enum CheckinEventStatus {
+    APPLIED, REJECTED
+}
@@ -0,0 +1,25 @@
+package com.magiclogon.attendancebackend.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+// A backend replica and the last time it renewed its lease. Rows are written through ClusterNodeJdbcRepository,
+// the entity only declares the table.
+@Data
+@Entity
+@NoArgsConstructor
+@Table(name = "cluster_node")
+public class ClusterNode {
+    @Id
+    @Column(name = "node_id", length = 64)
+    private String nodeId;
+
+    @Column(name = "started_at", nullable = false)
+    private Instant startedAt;
+
+    @Column(name = "heartbeat_at", nullable = false)
+    private Instant heartbeatAt;
+}
@@ -0,0 +1,41 @@
+package com.magiclogon.attendancebackend.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+@Data
+@Entity
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "daily_attendance_rollup",
+        uniqueConstraints = @UniqueConstraint(name = "uk_rollup_entreprise_manager_date", columnNames = {"entreprise_id", "manager_id", "date"}))
+public class DailyAttendanceRollup {
+
+    public static final int NO_MANAGER = 0;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private int id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "entreprise_id", nullable = false)
+    private Entreprise entreprise;
+
+    // Id of the employees' manager, NO_MANAGER for employees without one. Never null so that the unique key
+    // matches the row of employees without a manager too; there is no foreign key to carry the sentinel.
+    @Column(name = "manager_id", nullable = false)
+    private int managerId;
+
+    @Column(nullable = false)
+    private LocalDate date;
+
+    private int presentCount;
+    private int lateCount;
+    private int absentCount;
+    private int freeCount;
+    private int notOpenedCount;
+}
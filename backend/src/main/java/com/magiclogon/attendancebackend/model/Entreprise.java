@@ -29,6 +29,9 @@ public class Entreprise {
 
     private String cameraCode;
 
+    // IANA zone the attendance rules are evaluated in, null = server zone
+    private String timeZone;
+
     @OneToOne(mappedBy = "entreprise")
     private Manager manager;
 
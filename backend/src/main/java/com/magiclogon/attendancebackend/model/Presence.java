@@ -11,6 +11,9 @@ import java.time.LocalTime;
 @Data
 @Entity
 @NoArgsConstructor
+@Table(name = "presence",
+        uniqueConstraints = @UniqueConstraint(name = "uk_presence_employee_date", columnNames = {"employee_id", "date"}),
+        indexes = @Index(name = "idx_presence_date_status", columnList = "date, status"))
 public class Presence {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -27,6 +30,10 @@ public class Presence {
     @Enumerated(EnumType.STRING)
     private PresenceStatus status;
 
+    // Bumped by every write, JDBC ones included, so manual edits fail instead of overwriting a concurrent check-in
+    @Version
+    private Integer version;
+
     public Presence(Employee employee, LocalTime checkinTime, LocalTime checkoutTime, LocalDate date, PresenceStatus status) {
         this.employee = employee;
         this.checkinTime = checkinTime;
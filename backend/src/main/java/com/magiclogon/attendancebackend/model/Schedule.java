@@ -10,6 +10,9 @@ import java.time.LocalTime;
 @Data
 @Entity
 @NoArgsConstructor
+@Table(name = "schedule",
+        uniqueConstraints = @UniqueConstraint(name = "uk_schedule_employee_date", columnNames = {"employee_id", "date"}),
+        indexes = @Index(name = "idx_schedule_date_employee", columnList = "date, employee_id"))
 public class Schedule {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -34,6 +37,10 @@ public class Schedule {
 
     private Boolean isDayOff;
 
+    // Template the row was materialized from, null for a schedule set explicitly
+    @Column(name = "template_id")
+    private Integer templateId;
+
     public Schedule(Employee employee, String scheduleName,LocalDate date,
                           LocalTime checkInTime, LocalTime checkOutTime,
                           LocalTime breakStartTime, LocalTime breakEndTime,
@@ -0,0 +1,59 @@
+package com.magiclogon.attendancebackend.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.HashSet;
+import java.util.Set;
+
+// A recurring schedule: the shift of a Schedule plus a recurrence rule, expanded day by day when needed.
+// Concrete Schedule rows only exist for the days around today (template_id set) or for explicit overrides.
+@Data
+@Entity
+@NoArgsConstructor
+@Table(name = "schedule_template")
+public class ScheduleTemplate {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private int id;
+
+    @ManyToOne
+    @JoinColumn(name = "employee_id", nullable = false)
+    private Employee employee;
+
+    private String scheduleName;
+
+    @Column(nullable = false)
+    private LocalTime checkinTime;
+    @Column(nullable = false)
+    private LocalTime checkoutTime;
+
+    private LocalTime breakStartTime;
+    private LocalTime breakEndTime;
+
+    private Boolean isDayOff;
+
+    @Column(nullable = false)
+    private LocalDate startDate;
+
+    // RRULE subset, see RecurrenceRule
+    @Column(nullable = false)
+    private String recurrenceRule;
+
+    // Dates skipped by the series
+    @ElementCollection(fetch = FetchType.EAGER)
+    @CollectionTable(name = "schedule_template_exception", joinColumns = @JoinColumn(name = "template_id"))
+    @Column(name = "date")
+    private Set<LocalDate> exceptions = new HashSet<>();
+
+    // Occurrence of the template on a date, not persisted
+    public Schedule toSchedule(LocalDate date) {
+        Schedule schedule = new Schedule(employee, scheduleName, date, checkinTime, checkoutTime,
+                breakStartTime, breakEndTime, Boolean.TRUE.equals(isDayOff));
+        schedule.setTemplateId(id);
+        return schedule;
+    }
+}
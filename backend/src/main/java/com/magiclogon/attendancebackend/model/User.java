@@ -38,4 +38,8 @@ public abstract class User {
     private Role role;
 
     private boolean enabled = true;
+
+    // Bumped when the password changes, tokens issued with an older value are refused
+    @Column(nullable = false)
+    private int credentialVersion;
 }
@@ -0,0 +1,13 @@
+package com.magiclogon.attendancebackend.repository;
+
+import com.magiclogon.attendancebackend.model.CheckinEvent;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface CheckinEventRepository extends JpaRepository<CheckinEvent, Integer> {
+    List<CheckinEvent> findByEntrepriseIdAndIdempotencyKeyIn(int entrepriseId, Collection<String> idempotencyKeys);
+}
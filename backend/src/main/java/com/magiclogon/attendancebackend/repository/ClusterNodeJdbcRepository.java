@@ -0,0 +1,40 @@
+package com.magiclogon.attendancebackend.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+// Node leases. Every timestamp comes from the database clock, so replicas never compare their own clocks.
+@Repository
+@RequiredArgsConstructor
+public class ClusterNodeJdbcRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // Create or renew the lease of the node
+    public void heartbeat(String nodeId) {
+        jdbcTemplate.update("""
+                INSERT INTO cluster_node (node_id, started_at, heartbeat_at) VALUES (?, NOW(3), NOW(3))
+                ON DUPLICATE KEY UPDATE heartbeat_at = NOW(3)
+                """, nodeId);
+    }
+
+    // Nodes whose lease is still running, in a stable order every node agrees on
+    public List<String> findLiveNodeIds(int leaseSeconds) {
+        return jdbcTemplate.queryForList(
+                "SELECT node_id FROM cluster_node WHERE heartbeat_at > NOW(3) - INTERVAL ? SECOND ORDER BY node_id",
+                String.class, leaseSeconds);
+    }
+
+    // Leave the cluster, the other nodes take over the shards on their next heartbeat
+    public void delete(String nodeId) {
+        jdbcTemplate.update("DELETE FROM cluster_node WHERE node_id = ?", nodeId);
+    }
+
+    // Forget nodes that stopped without leaving
+    public int deleteExpired(int seconds) {
+        return jdbcTemplate.update("DELETE FROM cluster_node WHERE heartbeat_at < NOW(3) - INTERVAL ? SECOND", seconds);
+    }
+}
@@ -0,0 +1,13 @@
+package com.magiclogon.attendancebackend.repository;
+
+import com.magiclogon.attendancebackend.model.DailyAttendanceRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface DailyAttendanceRollupRepository extends JpaRepository<DailyAttendanceRollup, Integer> {
+    List<DailyAttendanceRollup> findByEntrepriseIdAndDateBetweenOrderByDateAsc(int entrepriseId, LocalDate from, LocalDate to);
+}
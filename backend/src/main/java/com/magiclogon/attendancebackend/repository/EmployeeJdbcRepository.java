@@ -0,0 +1,39 @@
+package com.magiclogon.attendancebackend.repository;
+
+import com.magiclogon.attendancebackend.dto.EmployeeResponseDTO;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+@RequiredArgsConstructor
+public class EmployeeJdbcRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // Employees of the entreprise with an id above the cursor, by id: a keyset page, as cheap deep in the list as at its start
+    public List<EmployeeResponseDTO> findEmployeesOfEntreprise(int entrepriseId, int afterId, int limit) {
+        String sql = """
+                SELECT e.id, e.first_name, e.last_name, e.username, e.email, e.phone_number, e.position_title, en.name AS entreprise_name
+                FROM `user` e
+                LEFT JOIN entreprise en ON en.id = e.entreprise_id
+                WHERE e.entreprise_id = ? AND e.user_type = 'EMPLOYEE' AND e.id > ?
+                ORDER BY e.id
+                LIMIT ?
+                """;
+        return jdbcTemplate.query(sql, (rs, rowNum) -> {
+            EmployeeResponseDTO dto = new EmployeeResponseDTO();
+            dto.setId(rs.getInt("id"));
+            dto.setEmployeeFirstName(rs.getString("first_name"));
+            dto.setEmployeeLastName(rs.getString("last_name"));
+            dto.setEmployeeUsername(rs.getString("username"));
+            dto.setEmployeeEmail(rs.getString("email"));
+            dto.setEmployeePhone(rs.getString("phone_number"));
+            dto.setEmployeePositionTitle(rs.getString("position_title"));
+            dto.setEmployeeEntreprise(rs.getString("entreprise_name"));
+            return dto;
+        }, entrepriseId, afterId, limit);
+    }
+}
@@ -3,8 +3,11 @@ package com.magiclogon.attendancebackend.repository;
 import com.magiclogon.attendancebackend.model.Employee;
 import com.magiclogon.attendancebackend.model.Entreprise;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -14,4 +17,11 @@ public interface EmployeeRepository extends JpaRepository<Employee, Integer> {
     Boolean existsByEmailAndEntreprise(String email, Entreprise entreprise);
     Boolean existsByEmail(String email);
     List<Employee> findByEntreprise(Entreprise entreprise);
+    long countByEntrepriseId(int entrepriseId);
+
+    @Query("SELECT e.id FROM Employee e WHERE e.entreprise.id = :entrepriseId AND e.hasRegisteredFace = true")
+    List<Integer> findIdsByEntrepriseIdAndHasRegisteredFaceTrue(@Param("entrepriseId") int entrepriseId);
+
+    @Query("SELECT e.id FROM Employee e WHERE e.entreprise.id = :entrepriseId AND e.id IN :ids")
+    List<Integer> findIdsByEntrepriseIdAndIdIn(@Param("entrepriseId") int entrepriseId, @Param("ids") Collection<Integer> ids);
 }
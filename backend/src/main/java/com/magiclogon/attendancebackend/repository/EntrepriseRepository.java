@@ -3,12 +3,22 @@ package com.magiclogon.attendancebackend.repository;
 import com.magiclogon.attendancebackend.model.Employee;
 import com.magiclogon.attendancebackend.model.Entreprise;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface EntrepriseRepository extends JpaRepository<Entreprise, Integer> {
     Optional<Entreprise> findByName(String name);
     Optional<Entreprise> findByCameraCode(String cameraCode);
+
+    interface TenantZone {
+        Integer getId();
+        String getTimeZone();
+    }
+
+    @Query("SELECT e.id AS id, e.timeZone AS timeZone FROM Entreprise e ORDER BY e.id")
+    List<TenantZone> findAllTimeZones();
 }
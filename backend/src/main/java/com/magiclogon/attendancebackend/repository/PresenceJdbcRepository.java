@@ -0,0 +1,431 @@
+package com.magiclogon.attendancebackend.repository;
+
+import com.magiclogon.attendancebackend.dto.EmployeePresenceDTO;
+import com.magiclogon.attendancebackend.model.PresenceStatus;
+import com.magiclogon.attendancebackend.utils.PageRequests;
+import com.magiclogon.attendancebackend.utils.TimeZones;
+import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Time;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+@Repository
+@RequiredArgsConstructor
+public class PresenceJdbcRepository {
+
+    private static final int BATCH_SIZE = 500;
+    // Working day whose check-in time plus absence threshold is not after the parameter (local date-time)
+    private static final String DEADLINE_PASSED = """
+              AND (s.is_day_off IS NULL OR s.is_day_off = FALSE)
+              AND TIMESTAMP(s.date, s.checkin_time) + INTERVAL ms.absence_threshold_minutes MINUTE <= ?
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // Row of the absence sweep: a scheduled employee that has no presence yet or is still NOT_OPENED
+    public record AbsenceCandidate(int employeeId, Integer entrepriseId, Integer managerId, Integer presenceId,
+                                   LocalDate date, ZoneId zone, LocalTime checkinTime, int absenceThresholdMinutes) {}
+
+    // Everything a check-in needs to know about an employee for one day (schedule window, thresholds, presence)
+    public record DayState(int employeeId, Integer entrepriseId, Integer managerId, ZoneId zone,
+                           boolean hasSchedule, boolean dayOff, LocalTime scheduleCheckin, LocalTime scheduleCheckout,
+                           Integer lateThresholdMinutes, Integer absenceThresholdMinutes,
+                           Integer presenceId, PresenceStatus status, LocalTime presenceCheckin, LocalTime presenceCheckout) {
+
+        public DayState withPresence(Integer presenceId, PresenceStatus status, LocalTime presenceCheckin, LocalTime presenceCheckout) {
+            return new DayState(employeeId, entrepriseId, managerId, zone, hasSchedule, dayOff, scheduleCheckin, scheduleCheckout,
+                    lateThresholdMinutes, absenceThresholdMinutes, presenceId, status, presenceCheckin, presenceCheckout);
+        }
+    }
+
+    // Manager and status of a group of presences of one entreprise and day
+    public record ManagerStatus(Integer managerId, PresenceStatus status) {}
+
+    // Row of the attendance export: a presence with the schedule of its day (schedule columns null without one)
+    public record AttendanceRow(int employeeId, String firstName, String lastName, LocalDate date, PresenceStatus status,
+                                LocalTime checkin, LocalTime checkout, LocalTime scheduleCheckin, LocalTime scheduleCheckout,
+                                LocalTime breakStart, LocalTime breakEnd, boolean dayOff) {}
+
+    private static final String DAY_STATE_SQL = """
+            SELECT e.id AS employee_id, e.entreprise_id, e.manager_id, en.time_zone,
+                   s.id AS schedule_id, s.is_day_off, s.checkin_time AS schedule_checkin, s.checkout_time AS schedule_checkout,
+                   ms.late_threshold_minutes, ms.absence_threshold_minutes,
+                   p.id AS presence_id, p.status, p.checkin_time AS presence_checkin, p.checkout_time AS presence_checkout
+            FROM `user` e
+            LEFT JOIN entreprise en ON en.id = e.entreprise_id
+            LEFT JOIN schedule s ON s.employee_id = e.id AND s.date = ?
+            LEFT JOIN manager_settings ms ON ms.manager_id = e.manager_id
+            LEFT JOIN presence p ON p.employee_id = e.id AND p.date = ?
+            WHERE e.user_type = 'EMPLOYEE'
+            """;
+
+    private static final RowMapper<DayState> DAY_STATE_MAPPER = (rs, rowNum) -> {
+        String status = rs.getString("status");
+        return new DayState(
+                rs.getInt("employee_id"),
+                (Integer) rs.getObject("entreprise_id"),
+                (Integer) rs.getObject("manager_id"),
+                TimeZones.zoneOf(rs.getString("time_zone")),
+                rs.getObject("schedule_id") != null,
+                rs.getBoolean("is_day_off"),
+                toLocalTime(rs.getTime("schedule_checkin")),
+                toLocalTime(rs.getTime("schedule_checkout")),
+                (Integer) rs.getObject("late_threshold_minutes"),
+                (Integer) rs.getObject("absence_threshold_minutes"),
+                (Integer) rs.getObject("presence_id"),
+                status == null ? null : PresenceStatus.valueOf(status),
+                toLocalTime(rs.getTime("presence_checkin")),
+                toLocalTime(rs.getTime("presence_checkout"))
+        );
+    };
+
+    // Day state of every employee, used to warm the check-in cache
+    public List<DayState> findDayStates(LocalDate date) {
+        Date day = Date.valueOf(date);
+        return jdbcTemplate.query(DAY_STATE_SQL, DAY_STATE_MAPPER, day, day);
+    }
+
+    // Day state of a single employee, used on a cache miss
+    public Optional<DayState> findDayState(int employeeId, LocalDate date) {
+        Date day = Date.valueOf(date);
+        return jdbcTemplate.query(DAY_STATE_SQL + " AND e.id = ?", DAY_STATE_MAPPER, day, day, employeeId)
+                .stream().findFirst();
+    }
+
+    // Sortable properties of the presence list and their columns, the employee id keeps pages stable
+    private static final Map<String, String> PRESENCE_ORDER = Map.of(
+            "name", "e.last_name %1$s, e.first_name %1$s",
+            "status", "p.status %1$s",
+            "checkinTime", "p.checkin_time %1$s");
+
+    private static final RowMapper<EmployeePresenceDTO> PRESENCE_DTO_MAPPER = (rs, rowNum) -> {
+        EmployeePresenceDTO dto = new EmployeePresenceDTO();
+        dto.setEmployeeId(rs.getInt("employee_id"));
+        dto.setEmployeeFirstName(rs.getString("first_name"));
+        dto.setEmployeeLastName(rs.getString("last_name"));
+        dto.setCheckinTime(toLocalTime(rs.getTime("checkin_time")));
+        dto.setCheckoutTime(toLocalTime(rs.getTime("checkout_time")));
+        dto.setDate(rs.getDate("date").toLocalDate());
+        String status = rs.getString("status");
+        dto.setStatus(status == null ? null : PresenceStatus.valueOf(status));
+        return dto;
+    };
+
+    // One page of the entreprise's presences of the date with the employee names, ready for the response
+    public Page<EmployeePresenceDTO> findPresencesOfEntreprise(int entrepriseId, LocalDate date, Pageable pageable) {
+        String from = """
+                FROM presence p
+                JOIN `user` e ON e.id = p.employee_id
+                WHERE e.entreprise_id = ? AND e.user_type = 'EMPLOYEE' AND p.date = ?
+                """;
+        StringBuilder sql = new StringBuilder("""
+                SELECT e.id AS employee_id, e.first_name, e.last_name, p.checkin_time, p.checkout_time, p.date, p.status
+                """).append(from).append(PageRequests.orderBy(pageable.getSort(), PRESENCE_ORDER, "e.id"));
+        List<Object> args = new ArrayList<>(List.of(entrepriseId, Date.valueOf(date)));
+        if (pageable.isPaged()) {
+            sql.append(" LIMIT ? OFFSET ?");
+            args.add(pageable.getPageSize());
+            args.add(pageable.getOffset());
+        }
+
+        List<EmployeePresenceDTO> content = jdbcTemplate.query(sql.toString(), PRESENCE_DTO_MAPPER, args.toArray());
+        // The count only runs when the page is full or not the first one
+        return PageableExecutionUtils.getPage(content, pageable,
+                () -> jdbcTemplate.queryForObject("SELECT COUNT(*) " + from, Long.class, entrepriseId, Date.valueOf(date)));
+    }
+
+    // The latest presences before a date of each employee, at most perEmployee each, newest first, in one statement
+    public Map<Integer, List<EmployeePresenceDTO>> findLatestPresencesOfEmployees(Collection<Integer> employeeIds, LocalDate before, int perEmployee) {
+        if (employeeIds.isEmpty()) {
+            return Map.of();
+        }
+        String sql = """
+                SELECT employee_id, first_name, last_name, checkin_time, checkout_time, date, status
+                FROM (
+                    SELECT p.employee_id, e.first_name, e.last_name, p.checkin_time, p.checkout_time, p.date, p.status,
+                           ROW_NUMBER() OVER (PARTITION BY p.employee_id ORDER BY p.date DESC) AS position
+                    FROM presence p
+                    JOIN `user` e ON e.id = p.employee_id
+                    WHERE p.employee_id IN (%s) AND p.date < ?
+                ) ranked
+                WHERE position <= ?
+                ORDER BY employee_id, date DESC
+                """.formatted(placeholders(employeeIds.size()));
+        List<Object> args = new ArrayList<>(employeeIds);
+        args.add(Date.valueOf(before));
+        args.add(perEmployee);
+        Map<Integer, List<EmployeePresenceDTO>> byEmployee = new HashMap<>();
+        for (EmployeePresenceDTO presence : jdbcTemplate.query(sql, PRESENCE_DTO_MAPPER, args.toArray())) {
+            byEmployee.computeIfAbsent(presence.getEmployeeId(), id -> new ArrayList<>()).add(presence);
+        }
+        return byEmployee;
+    }
+
+    // Presences of the entreprise (or of one employee) in a date range joined with their schedules, by employee then date. Rows are
+    // read from a forward-only cursor (MySQL streams the result when the fetch size is Integer.MIN_VALUE), so
+    // memory does not grow with the range. The stream holds a connection until it is closed.
+    public Stream<AttendanceRow> streamAttendance(int entrepriseId, LocalDate from, LocalDate to) {
+        return streamAttendance("e.entreprise_id = ?", entrepriseId, from, to);
+    }
+
+    public Stream<AttendanceRow> streamAttendanceOfEmployee(int employeeId, LocalDate from, LocalDate to) {
+        return streamAttendance("e.id = ?", employeeId, from, to);
+    }
+
+    private Stream<AttendanceRow> streamAttendance(String filter, int id, LocalDate from, LocalDate to) {
+        String sql = """
+                SELECT e.id AS employee_id, e.first_name, e.last_name, p.date, p.status, p.checkin_time, p.checkout_time,
+                       s.checkin_time AS schedule_checkin, s.checkout_time AS schedule_checkout,
+                       s.break_start_time, s.break_end_time, s.is_day_off
+                FROM `user` e
+                JOIN presence p ON p.employee_id = e.id AND p.date BETWEEN ? AND ?
+                LEFT JOIN schedule s ON s.employee_id = p.employee_id AND s.date = p.date
+                WHERE %s AND e.user_type = 'EMPLOYEE'
+                ORDER BY e.id, p.date
+                """.formatted(filter);
+        return jdbcTemplate.queryForStream(connection -> {
+            PreparedStatement ps = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(Integer.MIN_VALUE);
+            ps.setDate(1, Date.valueOf(from));
+            ps.setDate(2, Date.valueOf(to));
+            ps.setInt(3, id);
+            return ps;
+        }, (rs, rowNum) -> {
+            String status = rs.getString("status");
+            return new AttendanceRow(
+                    rs.getInt("employee_id"),
+                    rs.getString("first_name"),
+                    rs.getString("last_name"),
+                    rs.getDate("date").toLocalDate(),
+                    status == null ? null : PresenceStatus.valueOf(status),
+                    toLocalTime(rs.getTime("checkin_time")),
+                    toLocalTime(rs.getTime("checkout_time")),
+                    toLocalTime(rs.getTime("schedule_checkin")),
+                    toLocalTime(rs.getTime("schedule_checkout")),
+                    toLocalTime(rs.getTime("break_start_time")),
+                    toLocalTime(rs.getTime("break_end_time")),
+                    rs.getBoolean("is_day_off"));
+        });
+    }
+
+    // Working schedules of the dates joined with their settings, zone and presence, in one round trip
+    public List<AbsenceCandidate> findAbsenceCandidatesOfEmployees(List<LocalDate> dates, Collection<Integer> employeeIds) {
+        if (employeeIds.isEmpty()) {
+            return List.of();
+        }
+        return findAbsenceCandidates(dates, " AND e.id IN (" + placeholders(employeeIds.size()) + ")", List.copyOf(employeeIds));
+    }
+
+    // Candidates of the entreprises of one cluster shard (entreprise id modulo the number of nodes)
+    public List<AbsenceCandidate> findAbsenceCandidatesOfShard(List<LocalDate> dates, int shardCount, int shardIndex) {
+        return findAbsenceCandidates(dates, " AND MOD(e.entreprise_id, ?) = ?", List.of(shardCount, shardIndex));
+    }
+
+    public List<AbsenceCandidate> findAbsenceCandidatesOfEntreprise(List<LocalDate> dates, int entrepriseId) {
+        return findAbsenceCandidates(dates, " AND e.entreprise_id = ?", List.of(entrepriseId));
+    }
+
+    public List<AbsenceCandidate> findAbsenceCandidatesOfManager(List<LocalDate> dates, int managerId) {
+        return findAbsenceCandidates(dates, " AND e.manager_id = ?", List.of(managerId));
+    }
+
+    private List<AbsenceCandidate> findAbsenceCandidates(List<LocalDate> dates, String filter, List<Object> filterArgs) {
+        String sql = """
+                SELECT e.id AS employee_id, e.entreprise_id, e.manager_id, p.id AS presence_id, s.date, en.time_zone,
+                       s.checkin_time, ms.absence_threshold_minutes
+                FROM schedule s
+                JOIN `user` e ON e.id = s.employee_id AND e.user_type = 'EMPLOYEE'
+                JOIN manager_settings ms ON ms.manager_id = e.manager_id
+                LEFT JOIN entreprise en ON en.id = e.entreprise_id
+                LEFT JOIN presence p ON p.employee_id = e.id AND p.date = s.date
+                WHERE s.date IN (%s)
+                  AND (s.is_day_off IS NULL OR s.is_day_off = FALSE)
+                  AND (p.id IS NULL OR p.status = 'NOT_OPENED')
+                """.formatted(placeholders(dates.size())) + filter;
+        List<Object> args = new ArrayList<>();
+        dates.forEach(date -> args.add(Date.valueOf(date)));
+        args.addAll(filterArgs);
+        return jdbcTemplate.query(sql, (rs, rowNum) -> new AbsenceCandidate(
+                rs.getInt("employee_id"),
+                (Integer) rs.getObject("entreprise_id"),
+                (Integer) rs.getObject("manager_id"),
+                (Integer) rs.getObject("presence_id"),
+                rs.getDate("date").toLocalDate(),
+                TimeZones.zoneOf(rs.getString("time_zone")),
+                rs.getTime("checkin_time").toLocalTime(),
+                rs.getInt("absence_threshold_minutes")
+        ), args.toArray());
+    }
+
+    // Check-in and checkout are single conditional statements: the row only changes if it is still in the state the
+    // decision was taken on, so of two concurrent requests exactly one writes and the other sees 0 rows.
+    // Not @Transactional on purpose: they run in the caller's transaction with the rollup delta, and a duplicate key
+    // only rolls back its own statement there.
+
+    // Insert the day's row already checked in. Returns its id, or null when the row exists (unique employee/date).
+    public Integer insertCheckin(int employeeId, LocalDate date, PresenceStatus status, LocalTime checkin) {
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        try {
+            jdbcTemplate.update(connection -> {
+                PreparedStatement ps = connection.prepareStatement(
+                        "INSERT INTO presence (employee_id, date, status, checkin_time, version) VALUES (?, ?, ?, ?, 0)",
+                        Statement.RETURN_GENERATED_KEYS);
+                ps.setInt(1, employeeId);
+                ps.setDate(2, Date.valueOf(date));
+                ps.setString(3, status.name());
+                ps.setTime(4, Time.valueOf(checkin));
+                return ps;
+            }, keyHolder);
+        } catch (DuplicateKeyException e) {
+            return null;
+        }
+        return keyHolder.getKey() == null ? null : keyHolder.getKey().intValue();
+    }
+
+    // Check in on the existing row, only if it still has the expected status and no check-in
+    public boolean recordCheckin(int employeeId, LocalDate date, PresenceStatus expected, PresenceStatus status, LocalTime checkin) {
+        return jdbcTemplate.update("""
+                UPDATE presence SET status = ?, checkin_time = ?, version = version + 1
+                WHERE employee_id = ? AND date = ? AND status = ? AND checkin_time IS NULL
+                """, status.name(), Time.valueOf(checkin), employeeId, Date.valueOf(date), expected.name()) == 1;
+    }
+
+    // Check out, only if checked in and not checked out yet
+    public boolean recordCheckout(int employeeId, LocalDate date, LocalTime checkout) {
+        return jdbcTemplate.update("""
+                UPDATE presence SET checkout_time = ?, version = version + 1
+                WHERE employee_id = ? AND date = ? AND status IN ('PRESENT', 'LATE') AND checkout_time IS NULL
+                """, Time.valueOf(checkout), employeeId, Date.valueOf(date)) == 1;
+    }
+
+    // What markAbsentIfNotCheckedIn wrote for a candidate
+    public enum AbsenceWrite {
+        NONE, FLIPPED, INSERTED;
+
+        public boolean written() {
+            return this != NONE;
+        }
+
+        // Status of the day before the write, the "from" side of its rollup transition
+        public PresenceStatus previousStatus() {
+            return this == FLIPPED ? PresenceStatus.NOT_OPENED : null;
+        }
+    }
+
+    // Mark each (employee, date) ABSENT unless it was checked in meanwhile: the NOT_OPENED row is flipped,
+    // or a row is inserted when none exists. Returns, per candidate, what was written.
+    // The deadline is checked again against the schedule and settings stored now, on the candidate's clock at the
+    // given instant: a deadline computed by a replica that missed a schedule or threshold change writes nothing.
+    @Transactional
+    public AbsenceWrite[] markAbsentIfNotCheckedIn(List<AbsenceCandidate> candidates, Instant now) {
+        int[][] updated = jdbcTemplate.batchUpdate("""
+                UPDATE presence p
+                JOIN `user` e ON e.id = p.employee_id
+                JOIN manager_settings ms ON ms.manager_id = e.manager_id
+                JOIN schedule s ON s.employee_id = p.employee_id AND s.date = p.date
+                SET p.status = 'ABSENT', p.version = p.version + 1
+                WHERE p.employee_id = ? AND p.date = ? AND p.status = 'NOT_OPENED'
+                """ + DEADLINE_PASSED,
+                candidates, BATCH_SIZE,
+                (ps, candidate) -> {
+                    ps.setInt(1, candidate.employeeId());
+                    ps.setDate(2, Date.valueOf(candidate.date()));
+                    ps.setObject(3, LocalDateTime.ofInstant(now, candidate.zone()));
+                });
+        // Update batches come back with a count per row, but a multi-row INSERT rewritten by
+        // rewriteBatchedStatements only reports SUCCESS_NO_INFO: the few days that were never materialized are
+        // inserted one by one to know which were written. A row inserted meanwhile (concurrent check-in) hits
+        // uk_presence_employee_date and is skipped, counted 0. IGNORE rather than ON DUPLICATE KEY UPDATE, whose
+        // no-op still counts as a found row with the driver's default flags.
+        AbsenceWrite[] writes = new AbsenceWrite[candidates.size()];
+        int index = 0;
+        for (int[] batch : updated) {
+            for (int count : batch) {
+                writes[index++] = count > 0 ? AbsenceWrite.FLIPPED : AbsenceWrite.NONE;
+            }
+        }
+        for (index = 0; index < writes.length; index++) {
+            if (writes[index].written()) continue;
+            AbsenceCandidate candidate = candidates.get(index);
+            int inserted = jdbcTemplate.update("""
+                    INSERT IGNORE INTO presence (employee_id, date, status, version)
+                    SELECT s.employee_id, s.date, 'ABSENT', 0
+                    FROM schedule s
+                    JOIN `user` e ON e.id = s.employee_id
+                    JOIN manager_settings ms ON ms.manager_id = e.manager_id
+                    WHERE s.employee_id = ? AND s.date = ?
+                    """ + DEADLINE_PASSED,
+                    candidate.employeeId(), Date.valueOf(candidate.date()), LocalDateTime.ofInstant(now, candidate.zone()));
+            writes[index] = inserted > 0 ? AbsenceWrite.INSERTED : AbsenceWrite.NONE;
+        }
+        return writes;
+    }
+
+    // Materialize the day's FREE/NOT_OPENED rows of a tenant in one statement. Rows that already exist, or are
+    // inserted by a concurrent check-in, hit uk_presence_employee_date and are skipped.
+    @Transactional
+    public int insertDailyPresences(int entrepriseId, LocalDate date) {
+        String sql = """
+                INSERT IGNORE INTO presence (employee_id, date, status, version)
+                SELECT e.id, ?,
+                       CASE WHEN s.id IS NULL OR s.is_day_off = TRUE THEN 'FREE' ELSE 'NOT_OPENED' END, 0
+                FROM `user` e
+                LEFT JOIN schedule s ON s.employee_id = e.id AND s.date = ?
+                WHERE e.user_type = 'EMPLOYEE'
+                  AND e.entreprise_id = ?
+                """;
+        Date day = Date.valueOf(date);
+        return jdbcTemplate.update(sql, day, day, entrepriseId);
+    }
+
+    // FREE and NOT_OPENED presences of a tenant's day per manager, the statuses insertDailyPresences writes
+    public Map<ManagerStatus, Integer> countMaterializedStatuses(int entrepriseId, LocalDate date) {
+        String sql = """
+                SELECT e.manager_id, p.status, COUNT(*) AS total
+                FROM presence p
+                JOIN `user` e ON e.id = p.employee_id
+                WHERE p.date = ? AND e.entreprise_id = ? AND p.status IN ('FREE', 'NOT_OPENED')
+                GROUP BY e.manager_id, p.status
+                """;
+        Map<ManagerStatus, Integer> counts = new HashMap<>();
+        jdbcTemplate.query(sql, rs -> {
+            counts.put(new ManagerStatus((Integer) rs.getObject("manager_id"), PresenceStatus.valueOf(rs.getString("status"))),
+                    rs.getInt("total"));
+        }, Date.valueOf(date), entrepriseId);
+        return counts;
+    }
+
+    private static String placeholders(int count) {
+        return String.join(", ", Collections.nCopies(count, "?"));
+    }
+
+    private static LocalTime toLocalTime(Time time) {
+        return time == null ? null : time.toLocalTime();
+    }
+}
@@ -6,6 +6,8 @@ import com.magiclogon.attendancebackend.model.PresenceStatus;
 import com.magiclogon.attendancebackend.model.Schedule;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
@@ -14,6 +16,13 @@ import java.util.Optional;
 
 @Repository
 public interface PresenceRepository extends JpaRepository<Presence, Integer> {
+
+    interface DateStatusCount {
+        LocalDate getDate();
+        PresenceStatus getStatus();
+        long getTotal();
+    }
+
     List<Presence> findByEmployeeId(int employeeId);
 
     Presence findByEmployeeIdAndDate(int employeeId, LocalDate date);
@@ -27,4 +36,14 @@ public interface PresenceRepository extends JpaRepository<Presence, Integer> {
     int countByEmployeeInAndDateAndStatusIn(List<Employee> employees, LocalDate date, List<PresenceStatus> statuses);
 
     List<Presence> findByEmployeeIdAndDateIsBeforeOrderByDateDesc(int employee_id, LocalDate date, Pageable pageable);
+
+    @Query("""
+            SELECT p.date AS date, p.status AS status, COUNT(p) AS total
+            FROM Presence p
+            WHERE p.employee.entreprise.id = :entrepriseId AND p.date BETWEEN :from AND :to
+            GROUP BY p.date, p.status
+            """)
+    List<DateStatusCount> countByEntrepriseGroupedByDateAndStatus(@Param("entrepriseId") int entrepriseId,
+                                                                   @Param("from") LocalDate from,
+                                                                   @Param("to") LocalDate to);
 }
@@ -0,0 +1,83 @@
+package com.magiclogon.attendancebackend.repository;
+
+import com.magiclogon.attendancebackend.model.DailyAttendanceRollup;
+import com.magiclogon.attendancebackend.model.PresenceStatus;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Date;
+import java.time.LocalDate;
+
+@Repository
+@RequiredArgsConstructor
+public class RollupJdbcRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // Recompute the rollup rows of a date range from the presence table, for every entreprise or just one
+    @Transactional
+    public int rebuild(Integer entrepriseId, LocalDate from, LocalDate to) {
+        Date start = Date.valueOf(from);
+        Date end = Date.valueOf(to);
+        String tenantFilter = entrepriseId == null ? "" : " AND e.entreprise_id = ?";
+        Object[] params = entrepriseId == null ? new Object[]{start, end} : new Object[]{start, end, entrepriseId};
+
+        jdbcTemplate.update("DELETE FROM daily_attendance_rollup WHERE date BETWEEN ? AND ?"
+                + (entrepriseId == null ? "" : " AND entreprise_id = ?"), params);
+        String sql = """
+                INSERT INTO daily_attendance_rollup
+                    (entreprise_id, manager_id, date, present_count, late_count, absent_count, free_count, not_opened_count)
+                SELECT e.entreprise_id, COALESCE(e.manager_id, %d), p.date,
+                       SUM(p.status = 'PRESENT'), SUM(p.status = 'LATE'), SUM(p.status = 'ABSENT'),
+                       SUM(p.status = 'FREE'), SUM(p.status = 'NOT_OPENED')
+                FROM presence p
+                JOIN `user` e ON e.id = p.employee_id
+                WHERE p.date BETWEEN ? AND ? AND e.entreprise_id IS NOT NULL%s
+                GROUP BY e.entreprise_id, e.manager_id, p.date
+                """.formatted(DailyAttendanceRollup.NO_MANAGER, tenantFilter);
+        return jdbcTemplate.update(sql, params);
+    }
+
+    // Move one presence from a status to another in the day's counters (either side may be null)
+    @Transactional
+    public void applyTransition(int entrepriseId, Integer managerId, LocalDate date, PresenceStatus from, PresenceStatus to) {
+        if (from == to) {
+            return;
+        }
+        int[] delta = new int[PresenceStatus.values().length];
+        if (from != null) delta[from.ordinal()]--;
+        if (to != null) delta[to.ordinal()]++;
+        applyDelta(entrepriseId, managerId, date, delta);
+    }
+
+    // Count presences that were just created with a status
+    @Transactional
+    public void applyAdded(int entrepriseId, Integer managerId, LocalDate date, PresenceStatus status, int count) {
+        if (count == 0) {
+            return;
+        }
+        int[] delta = new int[PresenceStatus.values().length];
+        delta[status.ordinal()] = count;
+        applyDelta(entrepriseId, managerId, date, delta);
+    }
+
+    private void applyDelta(int entrepriseId, Integer managerId, LocalDate date, int[] delta) {
+        String sql = """
+                INSERT INTO daily_attendance_rollup
+                    (entreprise_id, manager_id, date, present_count, late_count, absent_count, free_count, not_opened_count)
+                VALUES (?, ?, ?, ?, ?, ?, ?, ?)
+                ON DUPLICATE KEY UPDATE
+                    present_count = present_count + VALUES(present_count),
+                    late_count = late_count + VALUES(late_count),
+                    absent_count = absent_count + VALUES(absent_count),
+                    free_count = free_count + VALUES(free_count),
+                    not_opened_count = not_opened_count + VALUES(not_opened_count)
+                """;
+        jdbcTemplate.update(sql, entrepriseId, managerId == null ? DailyAttendanceRollup.NO_MANAGER : managerId, Date.valueOf(date),
+                delta[PresenceStatus.PRESENT.ordinal()], delta[PresenceStatus.LATE.ordinal()],
+                delta[PresenceStatus.ABSENT.ordinal()], delta[PresenceStatus.FREE.ordinal()],
+                delta[PresenceStatus.NOT_OPENED.ordinal()]);
+    }
+}
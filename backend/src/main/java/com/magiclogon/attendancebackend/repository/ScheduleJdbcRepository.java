@@ -0,0 +1,234 @@
+package com.magiclogon.attendancebackend.repository;
+
+import com.magiclogon.attendancebackend.dto.CreateScheduleDTO;
+import com.magiclogon.attendancebackend.dto.ScheduleOfEmployeeResponseDTO;
+import com.magiclogon.attendancebackend.model.Employee;
+import com.magiclogon.attendancebackend.model.Schedule;
+import com.magiclogon.attendancebackend.utils.PageRequests;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Date;
+import java.sql.Time;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+@Repository
+@RequiredArgsConstructor
+public class ScheduleJdbcRepository {
+
+    private static final int BATCH_SIZE = 500;
+    // Keeps the IN lists of the DELETE well under the packet and placeholder limits
+    private static final int MAX_IN_LIST = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // Replace the schedules of every (employee, date) pair with the same schedule, in one transaction:
+    // one DELETE per chunk of employees, then batched inserts. Returns the number of inserted rows.
+    @Transactional
+    public int replaceSchedules(List<Integer> employeeIds, List<LocalDate> dates, CreateScheduleDTO schedule) {
+        if (employeeIds.isEmpty() || dates.isEmpty()) {
+            return 0;
+        }
+
+        String dateList = String.join(", ", Collections.nCopies(dates.size(), "?"));
+        for (int from = 0; from < employeeIds.size(); from += MAX_IN_LIST) {
+            List<Integer> chunk = employeeIds.subList(from, Math.min(from + MAX_IN_LIST, employeeIds.size()));
+            List<Object> args = new ArrayList<>(chunk);
+            dates.forEach(date -> args.add(Date.valueOf(date)));
+            jdbcTemplate.update("DELETE FROM schedule WHERE employee_id IN (%s) AND date IN (%s)"
+                    .formatted(String.join(", ", Collections.nCopies(chunk.size(), "?")), dateList), args.toArray());
+        }
+
+        List<Object[]> rows = new ArrayList<>(employeeIds.size() * dates.size());
+        Boolean dayOff = Boolean.TRUE.equals(schedule.getIsDayOff());
+        for (Integer employeeId : employeeIds) {
+            for (LocalDate date : dates) {
+                rows.add(new Object[]{employeeId, schedule.getScheduleName(), Date.valueOf(date),
+                        toTime(schedule.getCheckinTime()), toTime(schedule.getCheckoutTime()),
+                        toTime(schedule.getBreakStartTime()), toTime(schedule.getBreakEndTime()), dayOff});
+            }
+        }
+        String sql = """
+                INSERT INTO schedule (employee_id, schedule_name, date, checkin_time, checkout_time,
+                                      break_start_time, break_end_time, is_day_off)
+                VALUES (?, ?, ?, ?, ?, ?, ?, ?)
+                """;
+        int inserted = 0;
+        for (int from = 0; from < rows.size(); from += BATCH_SIZE) {
+            for (int count : jdbcTemplate.batchUpdate(sql, rows.subList(from, Math.min(from + BATCH_SIZE, rows.size())))) {
+                // SUCCESS_NO_INFO (-2) with rewritten batches still means one row
+                inserted += count < 0 ? 1 : count;
+            }
+        }
+        return inserted;
+    }
+
+    // Store template occurrences, dates that already have a schedule (explicit or materialized, even one written
+    // concurrently) are kept: uk_schedule_employee_date makes IGNORE skip them
+    @Transactional
+    public int insertOccurrences(List<Schedule> occurrences) {
+        if (occurrences.isEmpty()) {
+            return 0;
+        }
+        String sql = """
+                INSERT IGNORE INTO schedule (employee_id, schedule_name, date, checkin_time, checkout_time,
+                                             break_start_time, break_end_time, is_day_off, template_id)
+                VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)
+                """;
+        int[][] counts = jdbcTemplate.batchUpdate(sql, occurrences, BATCH_SIZE, (ps, schedule) -> {
+            Date day = Date.valueOf(schedule.getDate());
+            ps.setInt(1, schedule.getEmployee().getId());
+            ps.setString(2, schedule.getScheduleName());
+            ps.setDate(3, day);
+            ps.setTime(4, toTime(schedule.getCheckinTime()));
+            ps.setTime(5, toTime(schedule.getCheckoutTime()));
+            ps.setTime(6, toTime(schedule.getBreakStartTime()));
+            ps.setTime(7, toTime(schedule.getBreakEndTime()));
+            ps.setBoolean(8, Boolean.TRUE.equals(schedule.getIsDayOff()));
+            ps.setInt(9, schedule.getTemplateId());
+        });
+        int inserted = 0;
+        for (int[] batch : counts) {
+            for (int count : batch) {
+                inserted += Math.max(count, 0);
+            }
+        }
+        return inserted;
+    }
+
+    // Drop the materialized occurrences of the employees from a date on, explicit schedules stay
+    @Transactional
+    public int deleteTemplateOccurrences(Collection<Integer> employeeIds, LocalDate from) {
+        if (employeeIds.isEmpty()) {
+            return 0;
+        }
+        List<Object> args = new ArrayList<>(employeeIds);
+        args.add(Date.valueOf(from));
+        return jdbcTemplate.update("DELETE FROM schedule WHERE template_id IS NOT NULL AND employee_id IN (%s) AND date >= ?"
+                .formatted(String.join(", ", Collections.nCopies(employeeIds.size(), "?"))), args.toArray());
+    }
+
+    // Sortable properties of the schedule list and their columns
+    private static final Map<String, String> SCHEDULE_ORDER = Map.of(
+            "name", "e.last_name %1$s, e.first_name %1$s",
+            "status", "s.is_day_off %1$s",
+            "checkinTime", "s.checkin_time %1$s");
+
+    private static final RowMapper<ScheduleOfEmployeeResponseDTO> SCHEDULE_DTO_MAPPER = (rs, rowNum) -> {
+        ScheduleOfEmployeeResponseDTO dto = new ScheduleOfEmployeeResponseDTO();
+        dto.setScheduleId(rs.getInt("id"));
+        dto.setEmployeeId(rs.getInt("employee_id"));
+        dto.setEmployeeFirstName(rs.getString("first_name"));
+        dto.setEmployeeLastName(rs.getString("last_name"));
+        dto.setScheduleName(rs.getString("schedule_name"));
+        dto.setDate(rs.getDate("date").toLocalDate());
+        dto.setCheckinTime(toLocalTime(rs.getTime("checkin_time")));
+        dto.setCheckoutTime(toLocalTime(rs.getTime("checkout_time")));
+        dto.setBreakStartTime(toLocalTime(rs.getTime("break_start_time")));
+        dto.setBreakEndTime(toLocalTime(rs.getTime("break_end_time")));
+        dto.setIsDayOff(rs.getObject("is_day_off", Boolean.class));
+        return dto;
+    };
+
+    // One page of the stored schedules of the entreprise's employees on the date with their names, in one round trip
+    public Page<ScheduleOfEmployeeResponseDTO> findSchedulesOfEntreprise(int entrepriseId, LocalDate date, Pageable pageable) {
+        String from = """
+                FROM schedule s
+                JOIN `user` e ON e.id = s.employee_id
+                WHERE e.entreprise_id = ? AND e.user_type = 'EMPLOYEE' AND s.date = ?
+                """;
+        StringBuilder sql = new StringBuilder("""
+                SELECT s.id, e.id AS employee_id, e.first_name, e.last_name, s.schedule_name, s.date,
+                       s.checkin_time, s.checkout_time, s.break_start_time, s.break_end_time, s.is_day_off
+                """).append(from).append(PageRequests.orderBy(pageable.getSort(), SCHEDULE_ORDER, "e.id"));
+        List<Object> args = new ArrayList<>(List.of(entrepriseId, Date.valueOf(date)));
+        if (pageable.isPaged()) {
+            sql.append(" LIMIT ? OFFSET ?");
+            args.add(pageable.getPageSize());
+            args.add(pageable.getOffset());
+        }
+
+        List<ScheduleOfEmployeeResponseDTO> content = jdbcTemplate.query(sql.toString(), SCHEDULE_DTO_MAPPER, args.toArray());
+        return PageableExecutionUtils.getPage(content, pageable,
+                () -> jdbcTemplate.queryForObject("SELECT COUNT(*) " + from, Long.class, entrepriseId, Date.valueOf(date)));
+    }
+
+    // Which of the employees already have a stored schedule on the date
+    public Set<Integer> findScheduledEmployeeIds(Collection<Integer> employeeIds, LocalDate date) {
+        List<Integer> ids = List.copyOf(employeeIds);
+        Set<Integer> scheduled = new HashSet<>();
+        for (int from = 0; from < ids.size(); from += MAX_IN_LIST) {
+            List<Integer> chunk = ids.subList(from, Math.min(from + MAX_IN_LIST, ids.size()));
+            List<Object> args = new ArrayList<>(chunk);
+            args.add(Date.valueOf(date));
+            scheduled.addAll(jdbcTemplate.queryForList("SELECT employee_id FROM schedule WHERE employee_id IN (%s) AND date = ?"
+                    .formatted(String.join(", ", Collections.nCopies(chunk.size(), "?"))), Integer.class, args.toArray()));
+        }
+        return scheduled;
+    }
+
+    // The first schedules from a date on of each employee, at most perEmployee each, by date, in one statement.
+    // Rows come back as detached schedules whose employee only carries its id and names.
+    public Map<Integer, List<Schedule>> findUpcomingSchedulesOfEmployees(Collection<Integer> employeeIds, LocalDate from, int perEmployee) {
+        if (employeeIds.isEmpty()) {
+            return Map.of();
+        }
+        String sql = """
+                SELECT id, employee_id, first_name, last_name, schedule_name, date, checkin_time, checkout_time,
+                       break_start_time, break_end_time, is_day_off, template_id
+                FROM (
+                    SELECT s.id, s.employee_id, e.first_name, e.last_name, s.schedule_name, s.date, s.checkin_time, s.checkout_time,
+                           s.break_start_time, s.break_end_time, s.is_day_off, s.template_id,
+                           ROW_NUMBER() OVER (PARTITION BY s.employee_id ORDER BY s.date) AS position
+                    FROM schedule s
+                    JOIN `user` e ON e.id = s.employee_id
+                    WHERE s.employee_id IN (%s) AND s.date >= ?
+                ) ranked
+                WHERE position <= ?
+                ORDER BY employee_id, date
+                """.formatted(String.join(", ", Collections.nCopies(employeeIds.size(), "?")));
+        List<Object> args = new ArrayList<>(employeeIds);
+        args.add(Date.valueOf(from));
+        args.add(perEmployee);
+
+        Map<Integer, Employee> employees = new HashMap<>();
+        Map<Integer, List<Schedule>> byEmployee = new HashMap<>();
+        jdbcTemplate.query(sql, rs -> {
+            Employee employee = employees.computeIfAbsent(rs.getInt("employee_id"), id -> new Employee());
+            employee.setId(rs.getInt("employee_id"));
+            employee.setFirstName(rs.getString("first_name"));
+            employee.setLastName(rs.getString("last_name"));
+            Schedule schedule = new Schedule(employee, rs.getString("schedule_name"), rs.getDate("date").toLocalDate(),
+                    toLocalTime(rs.getTime("checkin_time")), toLocalTime(rs.getTime("checkout_time")),
+                    toLocalTime(rs.getTime("break_start_time")), toLocalTime(rs.getTime("break_end_time")),
+                    rs.getBoolean("is_day_off"));
+            schedule.setId(rs.getInt("id"));
+            schedule.setTemplateId(rs.getObject("template_id", Integer.class));
+            byEmployee.computeIfAbsent(employee.getId(), id -> new ArrayList<>()).add(schedule);
+        }, args.toArray());
+        return byEmployee;
+    }
+
+    private static LocalTime toLocalTime(Time time) {
+        return time == null ? null : time.toLocalTime();
+    }
+
+    private static Time toTime(LocalTime time) {
+        return time == null ? null : Time.valueOf(time);
+    }
+}
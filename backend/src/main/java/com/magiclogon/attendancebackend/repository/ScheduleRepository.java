@@ -1,9 +1,12 @@
 package com.magiclogon.attendancebackend.repository;
 
+import com.magiclogon.attendancebackend.dto.KioskRosterRowDTO;
 import com.magiclogon.attendancebackend.model.Employee;
 import com.magiclogon.attendancebackend.model.Schedule;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
@@ -16,7 +19,17 @@ public interface ScheduleRepository extends JpaRepository<Schedule, Integer> {
     List<Schedule> findByEmployeeId(int employee_id);
     Optional<Schedule> findByEmployeeIdAndDate(int employee_id, LocalDate date);
     int countByEmployeeInAndDateAndIsDayOffFalse(List<Employee> employees, LocalDate date);
+    int countByEmployeeEntrepriseIdAndDateAndIsDayOffFalse(int entrepriseId, LocalDate date);
     List<Schedule> findByEmployeeIdAndDateIsAfterOrderByDateAsc(int employee_id, LocalDate date, Pageable pageable);
 
     boolean existsByEmployeeAndDateAndCheckinTimeBefore(Employee employee, LocalDate date, LocalTime time);
+
+    @Query("""
+            SELECT new com.magiclogon.attendancebackend.dto.KioskRosterRowDTO(
+                e.id, e.firstName, e.lastName, e.username, e.email, e.phoneNumber, e.positionTitle, s.checkinTime)
+            FROM Schedule s JOIN s.employee e
+            WHERE e.entreprise.id = :entrepriseId AND s.date = :date
+            ORDER BY s.checkinTime, e.id
+            """)
+    List<KioskRosterRowDTO> findKioskRoster(@Param("entrepriseId") int entrepriseId, @Param("date") LocalDate date);
 }
@@ -0,0 +1,21 @@
+package com.magiclogon.attendancebackend.repository;
+
+import com.magiclogon.attendancebackend.model.ScheduleTemplate;
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface ScheduleTemplateRepository extends JpaRepository<ScheduleTemplate, Integer> {
+    List<ScheduleTemplate> findByEmployeeIdOrderByIdDesc(int employeeId);
+
+    // Employees fetched in the same query, their ids and names are read for every template
+    @EntityGraph(attributePaths = "employee")
+    List<ScheduleTemplate> findByEmployeeIdInOrderByIdDesc(Collection<Integer> employeeIds);
+
+    @EntityGraph(attributePaths = "employee")
+    List<ScheduleTemplate> findByEmployeeEntrepriseIdOrderByIdDesc(int entrepriseId);
+}
@@ -0,0 +1,34 @@
+package com.magiclogon.attendancebackend.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// Change counters of the entreprises, the signal replicas use to drop what they cached of a tenant
+@Repository
+@RequiredArgsConstructor
+public class TenantVersionJdbcRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // Move the entreprise's counter, creating it on its first change
+    public void bump(int entrepriseId) {
+        jdbcTemplate.update("""
+                INSERT INTO tenant_version (entreprise_id, version) VALUES (?, 1)
+                ON DUPLICATE KEY UPDATE version = version + 1
+                """, entrepriseId);
+    }
+
+    // Counter of every entreprise that changed at least once
+    public Map<Integer, Long> findAll() {
+        Map<Integer, Long> versions = new HashMap<>();
+        jdbcTemplate.query("SELECT entreprise_id, version FROM tenant_version",
+                rs -> {
+                    versions.put(rs.getInt("entreprise_id"), rs.getLong("version"));
+                });
+        return versions;
+    }
+}
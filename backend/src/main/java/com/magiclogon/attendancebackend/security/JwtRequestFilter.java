@@ -1,5 +1,6 @@
 package com.magiclogon.attendancebackend.security;
 
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -7,7 +8,6 @@ import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
@@ -18,7 +18,7 @@ import java.io.IOException;
 public class JwtRequestFilter extends OncePerRequestFilter {
 
     @Autowired
-    private CustomUserDetailsService userDetailsService;
+    private PrincipalCache principalCache;
 
     @Autowired
     private JwtUtil jwtUtil;
@@ -41,15 +41,22 @@ public class JwtRequestFilter extends OncePerRequestFilter {
                 return;
             }
 
-            // try user authentication
-            String username = jwtUtil.extractUsername(jwt);
+            // try user authentication: the principal comes from the cache, not from a query per request
+            Claims claims = jwtUtil.extractAllClaims(jwt);
+            String username = claims.getSubject();
 
             if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-                UserDetails userDetails = this.userDetailsService.loadUserByUsername(username);
+                UserPrincipal principal = principalCache.get(username);
+                // Issued after a password change made through another replica: this cache is behind, reload once
+                Integer credentialVersion = claims.get(JwtUtil.CREDENTIAL_VERSION_CLAIM, Integer.class);
+                if (principal != null && credentialVersion != null && credentialVersion > principal.credentialVersion()) {
+                    principalCache.evict(username);
+                    principal = principalCache.get(username);
+                }
 
-                if (jwtUtil.validateToken(jwt, userDetails)) {
+                if (principal != null && jwtUtil.validateToken(claims, principal)) {
                     UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
-                            userDetails, null, userDetails.getAuthorities());
+                            principal, null, principal.authorities());
                     authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
                     SecurityContextHolder.getContext().setAuthentication(authToken);
                 }
@@ -5,7 +5,6 @@ import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.Keys;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
 
 import java.security.Key;
@@ -17,6 +16,12 @@ import java.util.function.Function;
 @Component
 public class JwtUtil {
 
+    // Claims of user tokens besides the subject (the username)
+    public static final String USER_ID_CLAIM = "uid";
+    public static final String ROLE_CLAIM = "role";
+    public static final String ENTREPRISE_ID_CLAIM = "eid";
+    public static final String CREDENTIAL_VERSION_CLAIM = "cv";
+
     @Value("${security.jwt.secret-key}")
     private String secretKey;
 
@@ -41,7 +46,8 @@ public class JwtUtil {
         return claimsResolver.apply(claims);
     }
 
-    private Claims extractAllClaims(String token) {
+    // Verifies the signature and the expiration, throws JwtException otherwise
+    public Claims extractAllClaims(String token) {
         return Jwts.parserBuilder().setSigningKey(getSigningKey()).build().parseClaimsJws(token).getBody();
     }
 
@@ -49,10 +55,15 @@ public class JwtUtil {
         return extractExpiration(token).before(new Date());
     }
 
-    public String generateToken(UserDetails userDetails) {
+    public String generateToken(UserPrincipal principal) {
         Map<String, Object> claims = new HashMap<>();
-        claims.put("roles", userDetails.getAuthorities());
-        return createToken(claims, userDetails.getUsername());
+        claims.put(USER_ID_CLAIM, principal.userId());
+        claims.put(ROLE_CLAIM, principal.role().name());
+        claims.put(CREDENTIAL_VERSION_CLAIM, principal.credentialVersion());
+        if (principal.entrepriseId() != null) {
+            claims.put(ENTREPRISE_ID_CLAIM, principal.entrepriseId());
+        }
+        return createToken(claims, principal.username());
     }
 
     private String createToken(Map<String, Object> claims, String subject) {
@@ -65,9 +76,16 @@ public class JwtUtil {
                 .compact();
     }
 
-    public Boolean validateToken(String token, UserDetails userDetails) {
-        final String username = extractUsername(token);
-        return (username.equals(userDetails.getUsername()) && !isTokenExpired(token));
+    // The token must still name the same account: a username freed by a rename and taken again does not match,
+    // and a password change refuses every token issued before it. Tokens issued before the claims existed only
+    // carry the subject and stay valid until the first password change.
+    public Boolean validateToken(Claims claims, UserPrincipal principal) {
+        Integer userId = claims.get(USER_ID_CLAIM, Integer.class);
+        Integer credentialVersion = claims.get(CREDENTIAL_VERSION_CLAIM, Integer.class);
+        return principal.enabled()
+                && claims.getSubject().equals(principal.username())
+                && (userId == null || userId == principal.userId())
+                && (credentialVersion == null ? principal.credentialVersion() == 0 : credentialVersion == principal.credentialVersion())
+                && !claims.getExpiration().before(new Date());
     }
 }
-
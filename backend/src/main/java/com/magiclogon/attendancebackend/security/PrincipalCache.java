@@ -0,0 +1,35 @@
+package com.magiclogon.attendancebackend.security;
+
+import com.magiclogon.attendancebackend.repository.UserRepository;
+import com.magiclogon.attendancebackend.utils.TtlCache;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Objects;
+
+// Principals by JWT subject, so authenticating a request does not read the user table. Entries are evicted when
+// the password changes, the username changes or the account goes away; other replicas drop the principals of the
+// entreprise when the TenantChangeBroadcast brings the change, within a heartbeat period.
+@Component
+@RequiredArgsConstructor
+public class PrincipalCache {
+
+    private final UserRepository userRepository;
+
+    private final TtlCache<String, UserPrincipal> principals = new TtlCache<>(Duration.ofMinutes(5), 10_000);
+
+    // Cached principal of the username, null when no such user exists
+    public UserPrincipal get(String username) {
+        return principals.get(username, name -> userRepository.findByUsername(name).map(UserPrincipal::of).orElse(null));
+    }
+
+    public void evict(String username) {
+        principals.invalidate(username);
+    }
+
+    // Every principal of the entreprise, or of the users without one when null
+    public void evictEntreprise(Integer entrepriseId) {
+        principals.invalidateIf(principal -> Objects.equals(principal.entrepriseId(), entrepriseId));
+    }
+}
@@ -0,0 +1,80 @@
+package com.magiclogon.attendancebackend.security;
+
+import com.magiclogon.attendancebackend.model.Employee;
+import com.magiclogon.attendancebackend.model.Manager;
+import com.magiclogon.attendancebackend.model.User;
+import com.magiclogon.attendancebackend.repository.EmployeeRepository;
+import com.magiclogon.attendancebackend.repository.ManagerRepository;
+import com.magiclogon.attendancebackend.repository.UserRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.util.function.Supplier;
+
+// The authenticated user and their entreprise for the current request. Ids come straight from the principal;
+// entities are loaded by id at most once per request and kept in the request attributes, so the services a
+// request goes through share one lookup.
+@Component
+@RequiredArgsConstructor
+public class TenantContext {
+
+    private static final String USER_ATTRIBUTE = TenantContext.class.getName() + ".user";
+
+    private final UserRepository userRepository;
+    private final ManagerRepository managerRepository;
+    private final EmployeeRepository employeeRepository;
+
+    public UserPrincipal getPrincipal() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !(authentication.getPrincipal() instanceof UserPrincipal principal)) {
+            throw new IllegalArgumentException("User not found.");
+        }
+        return principal;
+    }
+
+    public int getUserId() {
+        return getPrincipal().userId();
+    }
+
+    public int getEntrepriseId() {
+        Integer entrepriseId = getPrincipal().entrepriseId();
+        if (entrepriseId == null) {
+            throw new IllegalArgumentException("Entreprise not found.");
+        }
+        return entrepriseId;
+    }
+
+    public User getUser() {
+        return resolve(User.class, () -> userRepository.findById(getUserId())
+                .orElseThrow(() -> new IllegalArgumentException("User not found.")));
+    }
+
+    public Manager getManager() {
+        return resolve(Manager.class, () -> managerRepository.findById(getUserId())
+                .orElseThrow(() -> new IllegalArgumentException("Manager not found.")));
+    }
+
+    public Employee getEmployee() {
+        return resolve(Employee.class, () -> employeeRepository.findById(getUserId())
+                .orElseThrow(() -> new IllegalArgumentException("Employee not found.")));
+    }
+
+    // Outside of a request (async work, tests) there is nothing to share and the entity is loaded each time
+    private <T extends User> T resolve(Class<T> type, Supplier<T> loader) {
+        RequestAttributes request = RequestContextHolder.getRequestAttributes();
+        if (request == null) {
+            return loader.get();
+        }
+        Object cached = request.getAttribute(USER_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        if (type.isInstance(cached)) {
+            return type.cast(cached);
+        }
+        T user = loader.get();
+        request.setAttribute(USER_ATTRIBUTE, user, RequestAttributes.SCOPE_REQUEST);
+        return user;
+    }
+}
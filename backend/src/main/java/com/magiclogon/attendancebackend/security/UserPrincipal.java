@@ -0,0 +1,38 @@
+package com.magiclogon.attendancebackend.security;
+
+import com.magiclogon.attendancebackend.model.Employee;
+import com.magiclogon.attendancebackend.model.Manager;
+import com.magiclogon.attendancebackend.model.Role;
+import com.magiclogon.attendancebackend.model.User;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.security.Principal;
+import java.util.List;
+
+// What a request needs to know about its user, resolved once per subject and cached by PrincipalCache.
+// Authentication.getName() still returns the username.
+public record UserPrincipal(int userId, String username, Role role, Integer entrepriseId, boolean enabled,
+                            int credentialVersion) implements Principal {
+
+    public static UserPrincipal of(User user) {
+        Integer entrepriseId = null;
+        // The ids of lazy entreprise proxies are read without loading the entreprise
+        if (user instanceof Manager manager && manager.getEntreprise() != null) {
+            entrepriseId = manager.getEntreprise().getId();
+        } else if (user instanceof Employee employee && employee.getEntreprise() != null) {
+            entrepriseId = employee.getEntreprise().getId();
+        }
+        return new UserPrincipal(user.getId(), user.getUsername(), user.getRole(), entrepriseId, user.isEnabled(),
+                user.getCredentialVersion());
+    }
+
+    public List<GrantedAuthority> authorities() {
+        return List.of(new SimpleGrantedAuthority(role.name()));
+    }
+
+    @Override
+    public String getName() {
+        return username;
+    }
+}
@@ -0,0 +1,222 @@
+package com.magiclogon.attendancebackend.service;
+
+import com.magiclogon.attendancebackend.event.ClusterMembershipChangedEvent;
+import com.magiclogon.attendancebackend.event.TenantDataChangedEvent;
+import com.magiclogon.attendancebackend.model.PresenceStatus;
+import com.magiclogon.attendancebackend.repository.PresenceJdbcRepository;
+import com.magiclogon.attendancebackend.repository.PresenceJdbcRepository.AbsenceCandidate;
+import com.magiclogon.attendancebackend.repository.PresenceJdbcRepository.AbsenceWrite;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+
+// Marks employees ABSENT at their exact deadline (check-in time + absence threshold, on the entreprise's clock)
+// instead of waiting for the next sweep. One DelayQueue entry per employee still expected today; the database
+// guard (status still NOT_OPENED or no row, deadline passed on the stored schedule and settings) decides at fire
+// time, so a check-in simply wins and a deadline made stale by a change on another replica writes nothing.
+// Only the entreprises of this replica's cluster shard are scheduled.
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class AbsenceDeadlineScheduler {
+
+    private final PresenceJdbcRepository presenceJdbcRepository;
+    private final DailyAttendanceRollupService dailyAttendanceRollupService;
+    private final TodayAttendanceCache todayAttendanceCache;
+    private final ClusterMembership clusterMembership;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+
+    private record Key(int employeeId, LocalDate date) {}
+
+    private static final class Deadline implements Delayed {
+        private final AbsenceCandidate candidate;
+        private final long dueAtMillis;
+
+        private Deadline(AbsenceCandidate candidate) {
+            this.candidate = candidate;
+            this.dueAtMillis = candidate.date().atTime(candidate.checkinTime())
+                    .plusMinutes(candidate.absenceThresholdMinutes())
+                    .atZone(candidate.zone())
+                    .toInstant()
+                    .toEpochMilli();
+        }
+
+        private Key key() {
+            return new Key(candidate.employeeId(), candidate.date());
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(dueAtMillis - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(dueAtMillis, ((Deadline) other).dueAtMillis);
+        }
+    }
+
+    private final DelayQueue<Deadline> queue = new DelayQueue<>();
+    // Latest deadline of each (employee, date): entries of the queue that are not in here were replaced or cancelled
+    private final Map<Key, Deadline> deadlines = new ConcurrentHashMap<>();
+    private Thread worker;
+
+    @PostConstruct
+    public void start() {
+        worker = new Thread(this::run, "absence-deadlines");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (worker != null) {
+            worker.interrupt();
+        }
+    }
+
+    // Reload every deadline from the database (start-up, new day materialized, shards moved). Only the candidates of
+    // this node's shard are read, the database filters the entreprises.
+    @EventListener({ApplicationReadyEvent.class, ClusterMembershipChangedEvent.class})
+    public void rebuild() {
+        ClusterMembership.Shard shard = clusterMembership.currentShard();
+        List<AbsenceCandidate> candidates = shard == null ? List.of()
+                : presenceJdbcRepository.findAbsenceCandidatesOfShard(window(), shard.count(), shard.index());
+        deadlines.clear();
+        queue.clear();
+        candidates.forEach(this::schedule);
+        log.info("Absence deadlines rebuilt: {} scheduled", deadlines.size());
+    }
+
+    // Schedules of these employees changed: replace their deadlines
+    public void rescheduleEmployees(Collection<Integer> employeeIds) {
+        Set<Integer> ids = new HashSet<>(employeeIds);
+        deadlines.keySet().removeIf(key -> ids.contains(key.employeeId()));
+        presenceJdbcRepository.findAbsenceCandidatesOfEmployees(window(), ids).forEach(this::schedule);
+    }
+
+    // Thresholds of a manager changed: replace the deadlines of the manager's employees
+    public void rescheduleManager(int managerId) {
+        deadlines.values().removeIf(deadline -> deadline.candidate.managerId() != null && deadline.candidate.managerId() == managerId);
+        presenceJdbcRepository.findAbsenceCandidatesOfManager(window(), managerId).forEach(this::schedule);
+    }
+
+    // Schedules, settings or zone of an entreprise changed on another replica: replace its deadlines
+    public void rescheduleEntreprise(int entrepriseId) {
+        deadlines.values().removeIf(deadline -> deadline.candidate.entrepriseId() != null && deadline.candidate.entrepriseId() == entrepriseId);
+        if (clusterMembership.owns(entrepriseId)) {
+            presenceJdbcRepository.findAbsenceCandidatesOfEntreprise(window(), entrepriseId).forEach(this::schedule);
+        }
+    }
+
+    // The employee checked in, the deadline has nothing left to do
+    public void cancel(int employeeId, LocalDate date) {
+        deadlines.remove(new Key(employeeId, date));
+    }
+
+    int pendingCount() {
+        return deadlines.size();
+    }
+
+    private void schedule(AbsenceCandidate candidate) {
+        if (!isOwned(candidate)) {
+            return;
+        }
+        Deadline deadline = new Deadline(candidate);
+        deadlines.put(deadline.key(), deadline);
+        queue.put(deadline);
+    }
+
+    private void run() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                List<Deadline> due = new ArrayList<>();
+                due.add(queue.take());
+                // Deadlines sharing the same minute are written together
+                queue.drainTo(due);
+                fire(due);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (RuntimeException e) {
+                // The hourly sweep catches whatever is missed here
+                log.error("Absence deadlines could not be applied", e);
+            }
+        }
+    }
+
+    private void fire(List<Deadline> due) {
+        List<AbsenceCandidate> candidates = new ArrayList<>(due.size());
+        for (Deadline deadline : due) {
+            // The shard may have moved to another replica since the deadline was scheduled
+            if (deadlines.remove(deadline.key(), deadline) && isOwned(deadline.candidate)) {
+                candidates.add(deadline.candidate);
+            }
+        }
+        if (candidates.isEmpty()) {
+            return;
+        }
+
+        int marked = markAbsent(candidates, Instant.now());
+        log.info("Absence deadlines fired: {} due, {} marked absent", candidates.size(), marked);
+    }
+
+    // Mark the candidates ABSENT unless they checked in meanwhile, then refresh their days. Each write and its move in
+    // the day's counters commit together, like a check-in, so the rollup never misses or repeats one. Returns how many
+    // were marked. Shared with the hourly sweep.
+    public int markAbsent(List<AbsenceCandidate> candidates, Instant now) {
+        List<AbsenceCandidate> marked = transactionTemplate.execute(status -> {
+            AbsenceWrite[] writes = presenceJdbcRepository.markAbsentIfNotCheckedIn(candidates, now);
+            List<AbsenceCandidate> written = new ArrayList<>();
+            for (int i = 0; i < writes.length; i++) {
+                if (!writes[i].written()) continue;
+                AbsenceCandidate candidate = candidates.get(i);
+                written.add(candidate);
+                if (candidate.entrepriseId() != null) {
+                    dailyAttendanceRollupService.recordTransition(candidate.entrepriseId(), candidate.managerId(),
+                            candidate.date(), writes[i].previousStatus(), PresenceStatus.ABSENT);
+                }
+            }
+            return written;
+        });
+
+        Set<Integer> entreprises = new HashSet<>();
+        List<Integer> employees = new ArrayList<>(marked.size());
+        for (AbsenceCandidate candidate : marked) {
+            employees.add(candidate.employeeId());
+            if (candidate.entrepriseId() != null) entreprises.add(candidate.entrepriseId());
+        }
+        todayAttendanceCache.evictEmployees(employees);
+        entreprises.forEach(entrepriseId -> eventPublisher.publishEvent(new TenantDataChangedEvent(entrepriseId)));
+        return marked.size();
+    }
+
+    private boolean isOwned(AbsenceCandidate candidate) {
+        return candidate.entrepriseId() != null && clusterMembership.owns(candidate.entrepriseId());
+    }
+
+    // Yesterday to tomorrow on the server clock covers the current day of every tenant zone
+    private static List<LocalDate> window() {
+        LocalDate today = LocalDate.now();
+        return List.of(today.minusDays(1), today, today.plusDays(1));
+    }
+}
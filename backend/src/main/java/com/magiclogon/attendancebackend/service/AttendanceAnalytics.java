@@ -0,0 +1,144 @@
+package com.magiclogon.attendancebackend.service;
+
+import com.magiclogon.attendancebackend.dto.AttendanceStatsDTO;
+import com.magiclogon.attendancebackend.model.PresenceStatus;
+import com.magiclogon.attendancebackend.repository.PresenceJdbcRepository.AttendanceRow;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Consumer;
+
+// Pure attendance analytics: one pass over presence rows joined with their schedules, sorted by employee then
+// date. The running totals of the current employee live in a single long[] reset between employees, so the pass
+// allocates nothing per row beyond what the rule engine does.
+public final class AttendanceAnalytics {
+
+    private static final int WORKING_DAYS = 0;
+    private static final int PRESENT_DAYS = 1;
+    private static final int LATE_DAYS = 2;
+    private static final int ABSENT_DAYS = 3;
+    private static final int DAYS_OFF = 4;
+    private static final int SCHEDULED_MINUTES = 5;
+    private static final int WORKED_MINUTES = 6;
+    private static final int BREAK_MINUTES = 7;
+    private static final int LATE_MINUTES = 8;
+    private static final int MAX_LATE_MINUTES = 9;
+    private static final int ABSENCE_STREAK = 10;
+    private static final int LONGEST_ABSENCE_STREAK = 11;
+    private static final int ON_TIME_STREAK = 12;
+    private static final int LONGEST_ON_TIME_STREAK = 13;
+    private static final int COUNTERS = 14;
+
+    private AttendanceAnalytics() {
+    }
+
+    public static List<AttendanceStatsDTO> summarize(Iterator<AttendanceRow> rows, LocalDate from, LocalDate to) {
+        List<AttendanceStatsDTO> stats = new ArrayList<>();
+        summarize(rows, from, to, stats::add);
+        return stats;
+    }
+
+    // Hands the stats of each employee to the sink as soon as their last row is read; returns the rows read
+    public static long summarize(Iterator<AttendanceRow> rows, LocalDate from, LocalDate to, Consumer<AttendanceStatsDTO> sink) {
+        long[] counters = new long[COUNTERS];
+        AttendanceRow first = null;
+        long count = 0;
+        while (rows.hasNext()) {
+            AttendanceRow row = rows.next();
+            if (first != null && row.employeeId() != first.employeeId()) {
+                sink.accept(toDTO(first, from, to, counters));
+                Arrays.fill(counters, 0);
+                first = null;
+            }
+            if (first == null) {
+                first = row;
+            }
+            accumulate(counters, row);
+            count++;
+        }
+        if (first != null) {
+            sink.accept(toDTO(first, from, to, counters));
+        }
+        return count;
+    }
+
+    // Stats of an employee without any presence in the range
+    public static AttendanceStatsDTO empty(int employeeId, String firstName, String lastName, LocalDate from, LocalDate to) {
+        AttendanceStatsDTO dto = new AttendanceStatsDTO();
+        dto.setEmployeeId(employeeId);
+        dto.setEmployeeFirstName(firstName);
+        dto.setEmployeeLastName(lastName);
+        dto.setFrom(from);
+        dto.setTo(to);
+        return dto;
+    }
+
+    private static void accumulate(long[] c, AttendanceRow row) {
+        PresenceStatus status = row.status();
+        // Days off neither break nor extend a streak
+        if (row.scheduleCheckin() == null || row.scheduleCheckout() == null || row.dayOff() || status == PresenceStatus.FREE) {
+            c[DAYS_OFF]++;
+            return;
+        }
+        c[WORKING_DAYS]++;
+        c[SCHEDULED_MINUTES] += PresenceRuleEngine.workedMinutes(row.scheduleCheckin(), row.scheduleCheckin(),
+                row.scheduleCheckout(), row.breakStart(), row.breakEnd());
+
+        if (status == PresenceStatus.PRESENT) {
+            c[PRESENT_DAYS]++;
+            c[ABSENCE_STREAK] = 0;
+            c[ON_TIME_STREAK]++;
+            c[LONGEST_ON_TIME_STREAK] = Math.max(c[LONGEST_ON_TIME_STREAK], c[ON_TIME_STREAK]);
+        } else if (status == PresenceStatus.LATE) {
+            c[LATE_DAYS]++;
+            c[ABSENCE_STREAK] = 0;
+            c[ON_TIME_STREAK] = 0;
+        } else if (status == PresenceStatus.ABSENT) {
+            c[ABSENT_DAYS]++;
+            c[ABSENCE_STREAK]++;
+            c[LONGEST_ABSENCE_STREAK] = Math.max(c[LONGEST_ABSENCE_STREAK], c[ABSENCE_STREAK]);
+            c[ON_TIME_STREAK] = 0;
+        }
+        // NOT_OPENED: the day is not over, it counts as scheduled only
+
+        if (row.checkin() == null) {
+            return;
+        }
+        int late = PresenceRuleEngine.lateMinutes(row.scheduleCheckin(), row.checkin());
+        c[LATE_MINUTES] += late;
+        c[MAX_LATE_MINUTES] = Math.max(c[MAX_LATE_MINUTES], late);
+        if (row.checkout() != null) {
+            int worked = PresenceRuleEngine.workedMinutes(row.scheduleCheckin(), row.checkin(), row.checkout(),
+                    row.breakStart(), row.breakEnd());
+            int span = PresenceRuleEngine.workedMinutes(row.scheduleCheckin(), row.checkin(), row.checkout(), null, null);
+            c[WORKED_MINUTES] += worked;
+            c[BREAK_MINUTES] += span - worked;
+        }
+    }
+
+    private static AttendanceStatsDTO toDTO(AttendanceRow first, LocalDate from, LocalDate to, long[] c) {
+        AttendanceStatsDTO dto = empty(first.employeeId(), first.firstName(), first.lastName(), from, to);
+        dto.setWorkingDays((int) c[WORKING_DAYS]);
+        dto.setPresentDays((int) c[PRESENT_DAYS]);
+        dto.setLateDays((int) c[LATE_DAYS]);
+        dto.setAbsentDays((int) c[ABSENT_DAYS]);
+        dto.setDaysOff((int) c[DAYS_OFF]);
+        dto.setScheduledMinutes(c[SCHEDULED_MINUTES]);
+        dto.setWorkedMinutes(c[WORKED_MINUTES]);
+        dto.setBreakMinutes(c[BREAK_MINUTES]);
+        dto.setLateMinutes(c[LATE_MINUTES]);
+        dto.setMaxLateMinutes((int) c[MAX_LATE_MINUTES]);
+        dto.setLongestAbsenceStreak((int) c[LONGEST_ABSENCE_STREAK]);
+        dto.setCurrentAbsenceStreak((int) c[ABSENCE_STREAK]);
+        dto.setLongestOnTimeStreak((int) c[LONGEST_ON_TIME_STREAK]);
+        long closed = c[PRESENT_DAYS] + c[LATE_DAYS] + c[ABSENT_DAYS];
+        if (closed > 0) {
+            dto.setAttendanceRate((double) (c[PRESENT_DAYS] + c[LATE_DAYS]) / closed);
+            dto.setPunctualityRate((double) c[PRESENT_DAYS] / closed);
+        }
+        return dto;
+    }
+}
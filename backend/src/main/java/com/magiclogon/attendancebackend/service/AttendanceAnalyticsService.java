@@ -0,0 +1,73 @@
+package com.magiclogon.attendancebackend.service;
+
+import com.magiclogon.attendancebackend.dto.AttendanceStatsDTO;
+import com.magiclogon.attendancebackend.model.Employee;
+import com.magiclogon.attendancebackend.model.Manager;
+import com.magiclogon.attendancebackend.repository.EmployeeRepository;
+import com.magiclogon.attendancebackend.repository.PresenceJdbcRepository;
+import com.magiclogon.attendancebackend.repository.PresenceJdbcRepository.AttendanceRow;
+import com.magiclogon.attendancebackend.security.TenantContext;
+import com.magiclogon.attendancebackend.utils.DateRanges;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.Stream;
+
+// Worked hours, lateness and streaks over a date range, computed by AttendanceAnalytics while the presences
+// are streamed from the database
+@Service
+@RequiredArgsConstructor
+public class AttendanceAnalyticsService {
+
+    // Range used when the client gives no start date
+    private static final int DEFAULT_RANGE_DAYS = 30;
+
+    private final TenantContext tenantContext;
+    private final EmployeeRepository employeeRepository;
+    private final PresenceJdbcRepository presenceJdbcRepository;
+
+    private Manager getAuthenticatedManager() {
+        return tenantContext.getManager();
+    }
+
+    private Employee getAuthenticatedEmployee() {
+        return tenantContext.getEmployee();
+    }
+
+    // Stats of every employee of the manager's entreprise with a presence in the range, by employee id
+    public List<AttendanceStatsDTO> getEntrepriseStats(LocalDate from, LocalDate to) {
+        LocalDate end = to == null ? LocalDate.now() : to;
+        LocalDate start = from == null ? end.minusDays(DEFAULT_RANGE_DAYS - 1) : from;
+        DateRanges.validate(start, end);
+        try (Stream<AttendanceRow> rows = presenceJdbcRepository.streamAttendance(tenantContext.getEntrepriseId(), start, end)) {
+            return AttendanceAnalytics.summarize(rows.iterator(), start, end);
+        }
+    }
+
+    public AttendanceStatsDTO getEmployeeStats(Integer employeeId, LocalDate from, LocalDate to) {
+        Manager manager = getAuthenticatedManager();
+        Employee employee = employeeRepository.findById(employeeId)
+                .orElseThrow(() -> new IllegalArgumentException("Employee not found."));
+        if (!employee.getEntreprise().equals(manager.getEntreprise()))
+            throw new IllegalArgumentException("Employee does not belong to this manager.");
+        return statsOf(employee, from, to);
+    }
+
+    public AttendanceStatsDTO getSelfStats(LocalDate from, LocalDate to) {
+        return statsOf(getAuthenticatedEmployee(), from, to);
+    }
+
+    AttendanceStatsDTO statsOf(Employee employee, LocalDate from, LocalDate to) {
+        LocalDate end = to == null ? LocalDate.now() : to;
+        LocalDate start = from == null ? end.minusDays(DEFAULT_RANGE_DAYS - 1) : from;
+        DateRanges.validate(start, end);
+        try (Stream<AttendanceRow> rows = presenceJdbcRepository.streamAttendanceOfEmployee(employee.getId(), start, end)) {
+            List<AttendanceStatsDTO> stats = AttendanceAnalytics.summarize(rows.iterator(), start, end);
+            return stats.isEmpty()
+                    ? AttendanceAnalytics.empty(employee.getId(), employee.getFirstName(), employee.getLastName(), start, end)
+                    : stats.get(0);
+        }
+    }
+}
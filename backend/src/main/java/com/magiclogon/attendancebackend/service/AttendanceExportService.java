@@ -0,0 +1,168 @@
+package com.magiclogon.attendancebackend.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.magiclogon.attendancebackend.repository.PresenceJdbcRepository;
+import com.magiclogon.attendancebackend.repository.PresenceJdbcRepository.AttendanceRow;
+import com.magiclogon.attendancebackend.security.TenantContext;
+import com.magiclogon.attendancebackend.utils.DateRanges;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.stream.Stream;
+
+// Attendance of a date range for payroll, written row by row as it is read from the database:
+// one presence per line with its schedule, worked minutes and late minutes.
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class AttendanceExportService {
+
+    public enum Format { CSV, NDJSON }
+
+    private static final String[] CSV_HEADER = {
+            "employee_id", "first_name", "last_name", "date", "status", "scheduled_checkin", "scheduled_checkout",
+            "checkin", "checkout", "worked_minutes", "late_minutes"};
+
+    private final TenantContext tenantContext;
+    private final PresenceJdbcRepository presenceJdbcRepository;
+    private final ObjectMapper objectMapper;
+
+    // Entreprise of the authenticated manager, resolved before the export starts streaming
+    public int getAuthenticatedEntrepriseId() {
+        return tenantContext.getEntrepriseId();
+    }
+
+    public static Format parseFormat(String format) {
+        try {
+            return Format.valueOf(format.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Export format must be csv or ndjson.");
+        }
+    }
+
+    public static void validateRange(LocalDate from, LocalDate to) {
+        DateRanges.validate(from, to);
+    }
+
+    public void export(int entrepriseId, LocalDate from, LocalDate to, Format format, OutputStream out) throws IOException {
+        long rows;
+        try (Stream<AttendanceRow> attendance = presenceJdbcRepository.streamAttendance(entrepriseId, from, to)) {
+            rows = format == Format.CSV ? writeCsv(attendance.iterator(), out) : writeNdjson(attendance.iterator(), out);
+        }
+        log.info("Attendance of entreprise {} exported from {} to {}: {} rows as {}", entrepriseId, from, to, rows, format);
+    }
+
+    private static long writeCsv(Iterator<AttendanceRow> rows, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        writer.write(String.join(",", CSV_HEADER));
+        writer.write("\r\n");
+        long count = 0;
+        while (rows.hasNext()) {
+            AttendanceRow row = rows.next();
+            writer.write(Integer.toString(row.employeeId()));
+            writer.write(',');
+            writer.write(csv(row.firstName()));
+            writer.write(',');
+            writer.write(csv(row.lastName()));
+            writer.write(',');
+            writer.write(row.date().toString());
+            writer.write(',');
+            writer.write(text(row.status()));
+            writer.write(',');
+            writer.write(text(row.scheduleCheckin()));
+            writer.write(',');
+            writer.write(text(row.scheduleCheckout()));
+            writer.write(',');
+            writer.write(text(row.checkin()));
+            writer.write(',');
+            writer.write(text(row.checkout()));
+            writer.write(',');
+            writer.write(text(workedMinutes(row)));
+            writer.write(',');
+            writer.write(text(lateMinutes(row)));
+            writer.write("\r\n");
+            count++;
+        }
+        writer.flush();
+        return count;
+    }
+
+    private long writeNdjson(Iterator<AttendanceRow> rows, OutputStream out) throws IOException {
+        long count = 0;
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            generator.configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false);
+            while (rows.hasNext()) {
+                AttendanceRow row = rows.next();
+                generator.writeStartObject();
+                generator.writeNumberField("employeeId", row.employeeId());
+                generator.writeStringField("firstName", row.firstName());
+                generator.writeStringField("lastName", row.lastName());
+                generator.writeStringField("date", row.date().toString());
+                generator.writeStringField("status", textOrNull(row.status()));
+                generator.writeStringField("scheduledCheckin", textOrNull(row.scheduleCheckin()));
+                generator.writeStringField("scheduledCheckout", textOrNull(row.scheduleCheckout()));
+                generator.writeStringField("checkin", textOrNull(row.checkin()));
+                generator.writeStringField("checkout", textOrNull(row.checkout()));
+                writeNumberOrNull(generator, "workedMinutes", workedMinutes(row));
+                writeNumberOrNull(generator, "lateMinutes", lateMinutes(row));
+                generator.writeEndObject();
+                generator.writeRaw('\n');
+                count++;
+            }
+        }
+        return count;
+    }
+
+    // Worked minutes need both ends of the day, lateness a check-in on a working day
+    static Integer workedMinutes(AttendanceRow row) {
+        if (row.checkin() == null || row.checkout() == null) {
+            return null;
+        }
+        return PresenceRuleEngine.workedMinutes(row.scheduleCheckin(), row.checkin(), row.checkout(), row.breakStart(), row.breakEnd());
+    }
+
+    static Integer lateMinutes(AttendanceRow row) {
+        if (row.checkin() == null || row.scheduleCheckin() == null || row.dayOff()) {
+            return null;
+        }
+        return PresenceRuleEngine.lateMinutes(row.scheduleCheckin(), row.checkin());
+    }
+
+    private static void writeNumberOrNull(JsonGenerator generator, String field, Integer value) throws IOException {
+        if (value == null) {
+            generator.writeNullField(field);
+        } else {
+            generator.writeNumberField(field, value);
+        }
+    }
+
+    private static String textOrNull(Object value) {
+        return value == null ? null : value.toString();
+    }
+
+    private static String text(Object value) {
+        return value == null ? "" : value.toString();
+    }
+
+    // RFC 4180: quote fields holding a separator, a quote or a line break, doubling the quotes
+    private static String csv(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
@@ -3,14 +3,13 @@ package com.magiclogon.attendancebackend.service;
 import com.magiclogon.attendancebackend.dto.*;
 import com.magiclogon.attendancebackend.model.*;
 import com.magiclogon.attendancebackend.repository.*;
-import com.magiclogon.attendancebackend.security.CustomUserDetailsService;
 import com.magiclogon.attendancebackend.security.JwtUtil;
+import com.magiclogon.attendancebackend.security.PrincipalCache;
+import com.magiclogon.attendancebackend.security.TenantContext;
+import com.magiclogon.attendancebackend.security.UserPrincipal;
 import com.magiclogon.attendancebackend.utils.RandomStringGenerator;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
@@ -25,16 +24,16 @@ public class AuthService {
     private final ManagerSettingsRepository managerSettingsRepository;
     private final EntrepriseRepository entrepriseRepository;
     private final EmployeeRepository employeeRepository;
-    private final CustomUserDetailsService userDetailsService;
     private final UserRepository userRepository;
     private final JwtUtil jwtUtil;
     private final PasswordEncoder passwordEncoder;
+    private final TenantContext tenantContext;
+    private final PrincipalCache principalCache;
+    private final TenantChangeBroadcast tenantChangeBroadcast;
 
     // Get manager name
     public List<String> getManagerInfo() {
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        String userUsername = authentication.getName();
-        Manager manager = managerRepository.findByUsername(userUsername).orElseThrow(() -> new IllegalArgumentException("User not found."));
+        Manager manager = tenantContext.getManager();
 
         return List.of(manager.getFirstName() + " " + manager.getLastName(), manager.getEmail(), manager.getEntreprise().getName());
     }
@@ -101,25 +100,28 @@ public class AuthService {
         throw new IllegalArgumentException("User not found.");
     }
 
-    // Changing password
-    public void changePassword(ChangePasswordDTO request) {
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        String userUsername = authentication.getName();
-        User user = userRepository.findByUsername(userUsername).orElseThrow(() -> new IllegalArgumentException("User not found."));
+    // Changing password: every token issued before is refused, the caller gets a new one
+    public AuthResponse changePassword(ChangePasswordDTO request) {
+        User user = tenantContext.getUser();
 
         if(!passwordEncoder.matches(request.getOldPassword(), user.getPassword())) {
             throw new IllegalArgumentException("Wrong password");
         }
 
         user.setPassword(passwordEncoder.encode(request.getNewPassword()));
+        user.setCredentialVersion(user.getCredentialVersion() + 1);
         userRepository.save(user);
+        principalCache.evict(user.getUsername());
+
+        UserPrincipal principal = UserPrincipal.of(user);
+        tenantChangeBroadcast.credentialsChanged(principal.entrepriseId());
+        return new AuthResponse(jwtUtil.generateToken(principal), principal.role().name(), null);
     }
 
     // Changing username
     public AuthResponse changeUserDetails(ChangeUserDetailsDTO request) {
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        String userUsername = authentication.getName();
-        User user = userRepository.findByUsername(userUsername).orElseThrow(() -> new IllegalArgumentException("User not found."));
+        User user = tenantContext.getUser();
+        String oldUsername = user.getUsername();
 
         if(userRepository.existsByUsername(request.getNewUsername()) && !user.getUsername().equals(request.getNewUsername())) {
             throw new IllegalArgumentException("Username already exists");
@@ -130,11 +132,13 @@ public class AuthService {
         user.setPhoneNumber(request.getNewPhoneNumber());
         userRepository.save(user);
 
-        UserDetails userDetails = userDetailsService.loadUserByUsername(request.getNewUsername());
-        String role = userDetails.getAuthorities().stream().findFirst().get().getAuthority();
+        principalCache.evict(oldUsername);
 
         // Generate new JWT token
-        String newToken = jwtUtil.generateToken(userDetails);
+        UserPrincipal principal = UserPrincipal.of(user);
+        tenantChangeBroadcast.credentialsChanged(principal.entrepriseId());
+        String newToken = jwtUtil.generateToken(principal);
+        String role = principal.role().name();
 
         // Return token to client
         return new AuthResponse(newToken, role, null);
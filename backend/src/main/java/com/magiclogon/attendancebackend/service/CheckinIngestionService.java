@@ -0,0 +1,263 @@
+package com.magiclogon.attendancebackend.service;
+
+import com.magiclogon.attendancebackend.client.FaceRecognitionClient;
+import com.magiclogon.attendancebackend.client.FaceRecognitionException;
+import com.magiclogon.attendancebackend.client.FaceRecognitionUnavailableException;
+import com.magiclogon.attendancebackend.dto.CheckinEventDTO;
+import com.magiclogon.attendancebackend.dto.CheckinEventResultDTO;
+import com.magiclogon.attendancebackend.dto.CheckinEventResultDTO.Outcome;
+import com.magiclogon.attendancebackend.dto.FaceVerificationResponseDTO;
+import com.magiclogon.attendancebackend.model.CheckinEvent;
+import com.magiclogon.attendancebackend.model.CheckinEventStatus;
+import com.magiclogon.attendancebackend.repository.CheckinEventRepository;
+import com.magiclogon.attendancebackend.repository.PresenceJdbcRepository.DayState;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
+
+// Applies batches of kiosk check-in events.
+// Photos are verified on the request thread, then the writes of a tenant go through a single writer thread
+// in event-time order, so events of the same entreprise never race each other.
+@Slf4j
+@Service
+public class CheckinIngestionService {
+
+    private static final int MAX_BATCH_SIZE = 200;
+    private static final int MAX_KEY_LENGTH = 64;
+    private static final Duration MAX_CLOCK_SKEW = Duration.ofMinutes(2);
+    private static final Duration BATCH_TIMEOUT = Duration.ofSeconds(30);
+
+    private final PresenceManagementService presenceManagementService;
+    private final CheckinEventRepository checkinEventRepository;
+    private final TodayAttendanceCache todayAttendanceCache;
+    private final FaceRecognitionClient faceRecognitionClient;
+    private final Duration maxEventAge;
+    private final ExecutorService[] writers;
+
+    public CheckinIngestionService(PresenceManagementService presenceManagementService,
+                                   CheckinEventRepository checkinEventRepository,
+                                   TodayAttendanceCache todayAttendanceCache,
+                                   FaceRecognitionClient faceRecognitionClient,
+                                   @Value("${kiosk.ingestion.writer-threads:4}") int writerThreads,
+                                   @Value("${kiosk.ingestion.max-event-age-hours:48}") long maxEventAgeHours) {
+        this.presenceManagementService = presenceManagementService;
+        this.checkinEventRepository = checkinEventRepository;
+        this.todayAttendanceCache = todayAttendanceCache;
+        this.faceRecognitionClient = faceRecognitionClient;
+        this.maxEventAge = Duration.ofHours(maxEventAgeHours);
+
+        // Tenants are striped over a fixed set of single-thread writers, each tenant always lands on the same one
+        this.writers = new ExecutorService[writerThreads];
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("checkin-writer-");
+        for (int i = 0; i < writerThreads; i++) {
+            writers[i] = Executors.newSingleThreadExecutor(threadFactory);
+        }
+    }
+
+    // One result per event, in the order of the request
+    public List<CheckinEventResultDTO> ingest(int entrepriseId, List<CheckinEventDTO> events) {
+        if (events == null || events.isEmpty()) {
+            throw new IllegalArgumentException("Batch must contain at least one event.");
+        }
+        if (events.size() > MAX_BATCH_SIZE) {
+            throw new IllegalArgumentException("Batch cannot contain more than " + MAX_BATCH_SIZE + " events.");
+        }
+
+        Instant receivedAt = Instant.now();
+        Map<String, CheckinEventResultDTO> results = new HashMap<>();
+
+        // 1. Shape of every event, and keys this kiosk already sent
+        Set<String> seen = new HashSet<>();
+        List<CheckinEventDTO> candidates = new ArrayList<>();
+        for (CheckinEventDTO event : events) {
+            String error = validate(event, receivedAt);
+            if (error != null) {
+                if (event.getIdempotencyKey() != null) {
+                    results.putIfAbsent(event.getIdempotencyKey(), new CheckinEventResultDTO(event.getIdempotencyKey(), Outcome.REJECTED, error));
+                }
+                continue;
+            }
+            if (!seen.add(event.getIdempotencyKey())) {
+                continue;
+            }
+            candidates.add(event);
+        }
+        for (CheckinEvent recorded : checkinEventRepository.findByEntrepriseIdAndIdempotencyKeyIn(entrepriseId, seen)) {
+            results.put(recorded.getIdempotencyKey(), duplicate(recorded));
+        }
+
+        // 2. Face verification stays on the request thread, the writer only does database work
+        List<CheckinEventDTO> accepted = new ArrayList<>();
+        for (CheckinEventDTO event : candidates) {
+            if (results.containsKey(event.getIdempotencyKey())) {
+                continue;
+            }
+            CheckinEventResultDTO refused = verify(entrepriseId, event);
+            if (refused != null) {
+                results.put(event.getIdempotencyKey(), refused);
+            } else {
+                accepted.add(event);
+            }
+        }
+
+        // 3. Writes of the tenant, oldest event first so a check-in is applied before its checkout
+        if (!accepted.isEmpty()) {
+            accepted.sort(Comparator.comparing(CheckinEventDTO::getOccurredAt));
+            ExecutorService writer = writers[Math.floorMod(entrepriseId, writers.length)];
+            try {
+                CompletableFuture.supplyAsync(() -> applyAll(entrepriseId, accepted, receivedAt), writer)
+                        .get(BATCH_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS)
+                        .forEach(result -> results.put(result.getIdempotencyKey(), result));
+            } catch (TimeoutException | ExecutionException e) {
+                // Whatever was applied is recorded, a retry of the batch reports it as DUPLICATE
+                log.warn("Check-in batch of entreprise {} did not complete: {}", entrepriseId, e.getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        return events.stream()
+                .map(event -> results.getOrDefault(event.getIdempotencyKey(),
+                        new CheckinEventResultDTO(event.getIdempotencyKey(), Outcome.RETRY, "Event was not processed, please retry.")))
+                .collect(Collectors.toList());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (ExecutorService writer : writers) {
+            writer.shutdown();
+        }
+    }
+
+    private String validate(CheckinEventDTO event, Instant receivedAt) {
+        if (event.getIdempotencyKey() == null || event.getIdempotencyKey().isBlank()) {
+            return "Idempotency key is required.";
+        }
+        if (event.getIdempotencyKey().length() > MAX_KEY_LENGTH) {
+            return "Idempotency key cannot be longer than " + MAX_KEY_LENGTH + " characters.";
+        }
+        if (event.getEmployeeId() == null || event.getOccurredAt() == null) {
+            return "Employee and event time are required.";
+        }
+        if (event.getOccurredAt().isAfter(receivedAt.plus(MAX_CLOCK_SKEW))) {
+            return "Event time is in the future.";
+        }
+        if (event.getOccurredAt().isBefore(receivedAt.minus(maxEventAge))) {
+            return "Event is too old to be applied.";
+        }
+        if (!event.isVerified() && (event.getImage() == null || event.getImage().isBlank())) {
+            return "Event must be verified or carry a photo.";
+        }
+        return null;
+    }
+
+    // Returns the refusal of the event, or null when it can be applied
+    private CheckinEventResultDTO verify(int entrepriseId, CheckinEventDTO event) {
+        String key = event.getIdempotencyKey();
+        DayState state = todayAttendanceCache.get(event.getEmployeeId(), LocalDate.ofInstant(event.getOccurredAt(), ZoneId.systemDefault()));
+        if (state == null || state.entrepriseId() == null || state.entrepriseId() != entrepriseId) {
+            return new CheckinEventResultDTO(key, Outcome.REJECTED, "Employee does not belong to this entreprise");
+        }
+        if (event.getImage() == null || event.getImage().isBlank()) {
+            return null;
+        }
+
+        try {
+            byte[] image = Base64.getDecoder().decode(event.getImage());
+            FaceVerificationResponseDTO verification = faceRecognitionClient.verifyFace(String.valueOf(event.getEmployeeId()), image);
+            return verification != null && verification.isMatch()
+                    ? null
+                    : new CheckinEventResultDTO(key, Outcome.REJECTED, "Faces don't match");
+        } catch (IllegalArgumentException e) {
+            return new CheckinEventResultDTO(key, Outcome.REJECTED, "Invalid photo: " + e.getMessage());
+        } catch (FaceRecognitionUnavailableException e) {
+            return new CheckinEventResultDTO(key, Outcome.RETRY, "Recognition unavailable, please try again shortly");
+        } catch (FaceRecognitionException e) {
+            return e.getStatus() >= 500
+                    ? new CheckinEventResultDTO(key, Outcome.RETRY, "Error from face recognition service")
+                    : new CheckinEventResultDTO(key, Outcome.REJECTED, e.getResponseBody());
+        } catch (IOException e) {
+            return new CheckinEventResultDTO(key, Outcome.RETRY, "Invalid response from face recognition service");
+        }
+    }
+
+    // Runs on the tenant's writer thread
+    private List<CheckinEventResultDTO> applyAll(int entrepriseId, List<CheckinEventDTO> events, Instant receivedAt) {
+        List<CheckinEventResultDTO> results = new ArrayList<>(events.size());
+        for (CheckinEventDTO event : events) {
+            results.add(apply(entrepriseId, event, receivedAt));
+        }
+        log.info("Applied {} check-in events for entreprise {}", events.size(), entrepriseId);
+        return results;
+    }
+
+    private CheckinEventResultDTO apply(int entrepriseId, CheckinEventDTO event, Instant receivedAt) {
+        String key = event.getIdempotencyKey();
+        try {
+            // No surrounding transaction: the conditional presence write commits on its own (its retries need
+            // fresh reads), and only then is the event recorded. A crash in between leaves the event unrecorded,
+            // and its retry is refused by the rules, which records the verdict.
+            presenceManagementService.handleEmployeePresence(event.getEmployeeId(), event.getOccurredAt());
+        } catch (IllegalArgumentException e) {
+            // The rules refused the event, remember the verdict so a retry gets the same answer
+            return reject(entrepriseId, event, e.getMessage(), receivedAt);
+        } catch (RuntimeException e) {
+            log.warn("Check-in event {} of entreprise {} failed: {}", key, entrepriseId, e.getMessage());
+            return new CheckinEventResultDTO(key, Outcome.RETRY, "Event could not be applied, please retry.");
+        }
+        try {
+            checkinEventRepository.save(new CheckinEvent(entrepriseId, key, event.getEmployeeId(), event.getOccurredAt(),
+                    CheckinEventStatus.APPLIED, null, receivedAt));
+            return new CheckinEventResultDTO(key, Outcome.APPLIED, null);
+        } catch (DataIntegrityViolationException e) {
+            // Another node recorded the same key first
+            return new CheckinEventResultDTO(key, Outcome.DUPLICATE, "Event already recorded");
+        } catch (RuntimeException e) {
+            // The presence is written, only its record is missing: a retry is refused by the rules and recorded then
+            log.warn("Check-in event {} of entreprise {} applied but not recorded: {}", key, entrepriseId, e.getMessage());
+            return new CheckinEventResultDTO(key, Outcome.APPLIED, null);
+        }
+    }
+
+    private CheckinEventResultDTO reject(int entrepriseId, CheckinEventDTO event, String message, Instant receivedAt) {
+        String key = event.getIdempotencyKey();
+        try {
+            checkinEventRepository.save(new CheckinEvent(entrepriseId, key, event.getEmployeeId(), event.getOccurredAt(),
+                    CheckinEventStatus.REJECTED, message, receivedAt));
+        } catch (DataIntegrityViolationException e) {
+            return new CheckinEventResultDTO(key, Outcome.DUPLICATE, "Event already recorded");
+        }
+        return new CheckinEventResultDTO(key, Outcome.REJECTED, message);
+    }
+
+    private static CheckinEventResultDTO duplicate(CheckinEvent recorded) {
+        String message = recorded.getStatus() == CheckinEventStatus.APPLIED
+                ? "Event already applied"
+                : "Event already rejected: " + recorded.getMessage();
+        return new CheckinEventResultDTO(recorded.getIdempotencyKey(), Outcome.DUPLICATE, message);
+    }
+}
@@ -0,0 +1,128 @@
+package com.magiclogon.attendancebackend.service;
+
+import com.magiclogon.attendancebackend.event.ClusterMembershipChangedEvent;
+import com.magiclogon.attendancebackend.repository.ClusterNodeJdbcRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Clock;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+// Splits the scheduled jobs between the backend replicas, using leases stored in the application database.
+// Every node renews its lease and reads the live nodes; the entreprise ids are spread over them by modulo of
+// the node's position in that list. While a membership change propagates two nodes can briefly hold the same
+// tenant, which is harmless because every scheduled write is guarded (NOT_OPENED status, NOT EXISTS).
+@Slf4j
+@Component
+public class ClusterMembership {
+
+    public record Shard(int count, int index) {}
+
+    private record View(List<String> liveNodeIds, int index, Instant validUntil) {}
+
+    private final ClusterNodeJdbcRepository clusterNodeJdbcRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final String nodeId;
+    private final int leaseSeconds;
+    private final Clock clock;
+
+    private volatile View view = new View(List.of(), -1, Instant.EPOCH);
+
+    @Autowired
+    public ClusterMembership(ClusterNodeJdbcRepository clusterNodeJdbcRepository,
+                             ApplicationEventPublisher eventPublisher,
+                             @Value("${cluster.node-id:}") String nodeId,
+                             @Value("${cluster.lease-seconds:30}") int leaseSeconds) {
+        this(clusterNodeJdbcRepository, eventPublisher, nodeId, leaseSeconds, Clock.systemUTC());
+    }
+
+    ClusterMembership(ClusterNodeJdbcRepository clusterNodeJdbcRepository, ApplicationEventPublisher eventPublisher,
+                      String nodeId, int leaseSeconds, Clock clock) {
+        this.clusterNodeJdbcRepository = clusterNodeJdbcRepository;
+        this.eventPublisher = eventPublisher;
+        this.nodeId = nodeId == null || nodeId.isBlank() ? defaultNodeId() : nodeId;
+        this.leaseSeconds = leaseSeconds;
+        this.clock = clock;
+    }
+
+    @Scheduled(fixedDelayString = "${cluster.heartbeat-ms:10000}")
+    public void heartbeat() {
+        Instant renewedAt = clock.instant();
+        List<String> live;
+        try {
+            clusterNodeJdbcRepository.heartbeat(nodeId);
+            live = clusterNodeJdbcRepository.findLiveNodeIds(leaseSeconds);
+        } catch (DataAccessException e) {
+            // Keep the current view until it runs out, then this node owns nothing
+            log.warn("Cluster heartbeat of node {} failed: {}", nodeId, e.getMessage());
+            return;
+        }
+
+        int index = live.indexOf(nodeId);
+        View previous = view;
+        // The others see this node until a full lease after the renewal; stopping at half of it leaves a margin
+        // so a node that lost the database never works next to the node that took its shard over
+        view = new View(List.copyOf(live), index, renewedAt.plusSeconds(leaseSeconds / 2));
+
+        if (!live.equals(previous.liveNodeIds())) {
+            log.info("Cluster membership of node {}: {} (shard {} of {})", nodeId, live, index, live.size());
+            eventPublisher.publishEvent(new ClusterMembershipChangedEvent(List.copyOf(live)));
+        }
+        // The first node also forgets replicas that stopped without leaving
+        if (index == 0) {
+            clusterNodeJdbcRepository.deleteExpired(leaseSeconds * 10);
+        }
+    }
+
+    @PreDestroy
+    public void leave() {
+        view = new View(List.of(), -1, Instant.EPOCH);
+        try {
+            clusterNodeJdbcRepository.delete(nodeId);
+        } catch (DataAccessException e) {
+            log.warn("Node {} could not leave the cluster, its lease will expire: {}", nodeId, e.getMessage());
+        }
+    }
+
+    // Shard of this node, or null while it owns nothing (not registered yet, lease not renewed in time)
+    public Shard currentShard() {
+        View current = view;
+        if (current.index() < 0 || clock.instant().isAfter(current.validUntil())) {
+            return null;
+        }
+        return new Shard(current.liveNodeIds().size(), current.index());
+    }
+
+    public boolean owns(int entrepriseId) {
+        Shard shard = currentShard();
+        return shard != null && Math.floorMod(entrepriseId, shard.count()) == shard.index();
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    private static String defaultNodeId() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            host = "node";
+        }
+        if (host.length() > 48) {
+            host = host.substring(0, 48);
+        }
+        // Restarts get a new id so an old lease is never mistaken for the new process
+        return host + "-" + UUID.randomUUID().toString().substring(0, 8);
+    }
+}
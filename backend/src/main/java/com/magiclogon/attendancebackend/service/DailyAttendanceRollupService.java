@@ -0,0 +1,137 @@
+package com.magiclogon.attendancebackend.service;
+
+import com.magiclogon.attendancebackend.dto.DayPresenceStatsDTO;
+import com.magiclogon.attendancebackend.model.DailyAttendanceRollup;
+import com.magiclogon.attendancebackend.model.PresenceStatus;
+import com.magiclogon.attendancebackend.repository.DailyAttendanceRollupRepository;
+import com.magiclogon.attendancebackend.repository.EntrepriseRepository;
+import com.magiclogon.attendancebackend.repository.PresenceRepository;
+import com.magiclogon.attendancebackend.repository.RollupJdbcRepository;
+import com.magiclogon.attendancebackend.utils.TimeZones;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class DailyAttendanceRollupService {
+
+    private final DailyAttendanceRollupRepository rollupRepository;
+    private final RollupJdbcRepository rollupJdbcRepository;
+    private final PresenceRepository presenceRepository;
+    private final EntrepriseRepository entrepriseRepository;
+    private final ClusterMembership clusterMembership;
+
+    // Stats of the closed days [today - days, today - 1], oldest first, today being the entreprise's
+    public List<DayPresenceStatsDTO> getClosedDaysStats(int entrepriseId, LocalDate today, int days) {
+        LocalDate from = today.minusDays(days);
+        LocalDate to = today.minusDays(1);
+
+        // counts[present, late, absent, free] per date
+        Map<LocalDate, int[]> counts = new HashMap<>();
+        for (DailyAttendanceRollup rollup : rollupRepository.findByEntrepriseIdAndDateBetweenOrderByDateAsc(entrepriseId, from, to)) {
+            int[] day = counts.computeIfAbsent(rollup.getDate(), d -> new int[4]);
+            day[0] += rollup.getPresentCount();
+            day[1] += rollup.getLateCount();
+            day[2] += rollup.getAbsentCount();
+            day[3] += rollup.getFreeCount();
+        }
+
+        // Days without a rollup row (history older than the rollup job) fall back to one GROUP BY query
+        LocalDate firstMissing = null;
+        LocalDate lastMissing = null;
+        for (LocalDate date = from; !date.isAfter(to); date = date.plusDays(1)) {
+            if (counts.containsKey(date)) continue;
+            if (firstMissing == null) firstMissing = date;
+            lastMissing = date;
+        }
+        if (firstMissing != null) {
+            Map<LocalDate, int[]> missing = new HashMap<>();
+            for (PresenceRepository.DateStatusCount row : presenceRepository.countByEntrepriseGroupedByDateAndStatus(entrepriseId, firstMissing, lastMissing)) {
+                if (counts.containsKey(row.getDate()) || row.getStatus() == null) continue;
+                int[] day = missing.computeIfAbsent(row.getDate(), d -> new int[4]);
+                switch (row.getStatus()) {
+                    case PRESENT -> day[0] += (int) row.getTotal();
+                    case LATE -> day[1] += (int) row.getTotal();
+                    case ABSENT -> day[2] += (int) row.getTotal();
+                    case FREE -> day[3] += (int) row.getTotal();
+                    default -> { }
+                }
+            }
+            counts.putAll(missing);
+        }
+
+        List<DayPresenceStatsDTO> result = new ArrayList<>();
+        for (LocalDate date = from; !date.isAfter(to); date = date.plusDays(1)) {
+            int[] day = counts.getOrDefault(date, new int[4]);
+            result.add(new DayPresenceStatsDTO(date.getDayOfWeek().name(), day[0], day[2], day[1], day[3], date));
+        }
+        return result;
+    }
+
+    // Number of PRESENT and LATE presences of the entreprise for a day
+    public int getCheckedInCount(int entrepriseId, LocalDate date) {
+        List<DailyAttendanceRollup> rollups = rollupRepository.findByEntrepriseIdAndDateBetweenOrderByDateAsc(entrepriseId, date, date);
+        if (rollups.isEmpty()) {
+            // Nothing rolled up yet for the day: count the raw rows once
+            return presenceRepository.countByEntrepriseGroupedByDateAndStatus(entrepriseId, date, date).stream()
+                    .filter(row -> row.getStatus() == PresenceStatus.PRESENT || row.getStatus() == PresenceStatus.LATE)
+                    .mapToInt(row -> (int) row.getTotal())
+                    .sum();
+        }
+        return rollups.stream().mapToInt(rollup -> rollup.getPresentCount() + rollup.getLateCount()).sum();
+    }
+
+    // Keep the day's counters in step with a single status change. Called in the transaction of the presence write.
+    public void recordTransition(int entrepriseId, Integer managerId, LocalDate date, PresenceStatus from, PresenceStatus to) {
+        rollupJdbcRepository.applyTransition(entrepriseId, managerId, date, from, to);
+    }
+
+    // Count presences just inserted with a status, in the transaction of the insert
+    public void recordAdded(int entrepriseId, Integer managerId, LocalDate date, PresenceStatus status, int count) {
+        rollupJdbcRepository.applyAdded(entrepriseId, managerId, date, status, count);
+    }
+
+    // Repair the day that just closed from the presence table. Every write already moves the counters in its own
+    // transaction, this only catches drift. Runs every hour so each tenant is rebuilt in the first hour of its own
+    // day, for the entreprises of this replica's shard only so replicas never rebuild the same rows at the same time.
+    @Scheduled(cron = "0 30 * * * *")
+    public void rollUpPreviousDay() {
+        Instant now = Instant.now();
+        int rows = 0;
+        int entreprises = 0;
+        for (EntrepriseRepository.TenantZone tenant : entrepriseRepository.findAllTimeZones()) {
+            ZoneId zone = TimeZones.zoneOf(tenant.getTimeZone());
+            if (LocalTime.ofInstant(now, zone).getHour() != 0 || !clusterMembership.owns(tenant.getId())) continue;
+            LocalDate yesterday = LocalDate.ofInstant(now, zone).minusDays(1);
+            try {
+                rows += rebuild(tenant.getId(), yesterday, yesterday);
+                entreprises++;
+            } catch (RuntimeException e) {
+                log.warn("Attendance rollup of entreprise {} for {} failed: {}", tenant.getId(), yesterday, e.getMessage());
+            }
+        }
+        if (entreprises > 0) {
+            log.info("Attendance rollup of the previous day: {} rows written for {} entreprises", rows, entreprises);
+        }
+    }
+
+    // Recompute a date range from the presence table, for one entreprise or all of them when null
+    public int rebuild(Integer entrepriseId, LocalDate from, LocalDate to) {
+        if (from.isAfter(to)) {
+            throw new IllegalArgumentException("Start date must be before end date.");
+        }
+        return rollupJdbcRepository.rebuild(entrepriseId, from, to);
+    }
+}
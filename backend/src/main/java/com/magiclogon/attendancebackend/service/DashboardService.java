@@ -0,0 +1,92 @@
+package com.magiclogon.attendancebackend.service;
+
+import com.magiclogon.attendancebackend.dto.DashboardTopStatsDTO;
+import com.magiclogon.attendancebackend.dto.DayPresenceStatsDTO;
+import com.magiclogon.attendancebackend.event.TenantDataChangedEvent;
+import com.magiclogon.attendancebackend.model.Manager;
+import com.magiclogon.attendancebackend.repository.EmployeeRepository;
+import com.magiclogon.attendancebackend.repository.ScheduleRepository;
+import com.magiclogon.attendancebackend.security.TenantContext;
+import com.magiclogon.attendancebackend.utils.TimeZones;
+import com.magiclogon.attendancebackend.utils.TtlCache;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+@Service
+public class DashboardService {
+
+    private final TenantContext tenantContext;
+    private final EmployeeRepository employeeRepository;
+    private final ScheduleRepository scheduleRepository;
+    private final DailyAttendanceRollupService dailyAttendanceRollupService;
+    private final TaskExecutor dashboardExecutor;
+
+    // One entry per entreprise, which has exactly one manager
+    private final TtlCache<Integer, DashboardTopStatsDTO> topStatsCache = new TtlCache<>(Duration.ofSeconds(15), 10_000);
+
+    public DashboardService(TenantContext tenantContext,
+                            EmployeeRepository employeeRepository,
+                            ScheduleRepository scheduleRepository,
+                            DailyAttendanceRollupService dailyAttendanceRollupService,
+                            @Qualifier("dashboardExecutor") TaskExecutor dashboardExecutor) {
+        this.tenantContext = tenantContext;
+        this.employeeRepository = employeeRepository;
+        this.scheduleRepository = scheduleRepository;
+        this.dailyAttendanceRollupService = dailyAttendanceRollupService;
+        this.dashboardExecutor = dashboardExecutor;
+    }
+
+    // Get dashboard top stats, running the counts concurrently
+    public DashboardTopStatsDTO getDashboardTopStats() {
+        // The entreprise id is on the principal: a cached dashboard costs no query at all
+        return topStatsCache.get(tenantContext.getEntrepriseId(), id -> compose(tenantContext.getManager(), id));
+    }
+
+    // Runs after the writing transaction commits so a concurrent load cannot re-cache stale numbers
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTenantDataChanged(TenantDataChangedEvent event) {
+        if (event.entrepriseId() == null) {
+            topStatsCache.invalidateAll();
+        } else {
+            topStatsCache.invalidate(event.entrepriseId());
+        }
+    }
+
+    private DashboardTopStatsDTO compose(Manager manager, int entrepriseId) {
+        LocalDate today = LocalDate.now(TimeZones.zoneOf(manager.getEntreprise().getTimeZone()));
+
+        // Workers only get ids, they never touch the security context or lazy associations
+        CompletableFuture<Long> employees = CompletableFuture.supplyAsync(
+                () -> employeeRepository.countByEntrepriseId(entrepriseId), dashboardExecutor);
+        CompletableFuture<Integer> schedules = CompletableFuture.supplyAsync(
+                () -> scheduleRepository.countByEmployeeEntrepriseIdAndDateAndIsDayOffFalse(entrepriseId, today), dashboardExecutor);
+        CompletableFuture<Integer> attendances = CompletableFuture.supplyAsync(
+                () -> dailyAttendanceRollupService.getCheckedInCount(entrepriseId, today), dashboardExecutor);
+        CompletableFuture<List<DayPresenceStatsDTO>> week = CompletableFuture.supplyAsync(
+                () -> dailyAttendanceRollupService.getClosedDaysStats(entrepriseId, today, 6), dashboardExecutor);
+
+        try {
+            return new DashboardTopStatsDTO(
+                    manager.getFirstName() + " " + manager.getLastName(),
+                    manager.getEmail(),
+                    manager.getEntreprise().getName(),
+                    employees.join().intValue(),
+                    schedules.join(),
+                    attendances.join(),
+                    week.join());
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+}
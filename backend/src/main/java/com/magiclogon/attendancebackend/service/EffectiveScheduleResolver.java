@@ -0,0 +1,163 @@
+package com.magiclogon.attendancebackend.service;
+
+import com.magiclogon.attendancebackend.model.Schedule;
+import com.magiclogon.attendancebackend.model.ScheduleTemplate;
+import com.magiclogon.attendancebackend.repository.ScheduleJdbcRepository;
+import com.magiclogon.attendancebackend.repository.ScheduleRepository;
+import com.magiclogon.attendancebackend.repository.ScheduleTemplateRepository;
+import com.magiclogon.attendancebackend.utils.TtlCache;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// Effective schedule of an employee on a date: a stored row (explicit or already materialized) wins,
+// otherwise the newest template with an occurrence that day. Only the days around today are written to
+// the schedule table, the SQL of check-ins, rosters and absences reads those.
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class EffectiveScheduleResolver {
+
+    // How far upcoming occurrences are looked for
+    private static final int MAX_HORIZON_DAYS = 366;
+
+    private final ScheduleRepository scheduleRepository;
+    private final ScheduleTemplateRepository scheduleTemplateRepository;
+    private final ScheduleJdbcRepository scheduleJdbcRepository;
+
+    // Templates of an employee with their parsed rules, newest first
+    private final TtlCache<Integer, List<CompiledTemplate>> templates = new TtlCache<>(Duration.ofMinutes(10), 10_000);
+
+    private record CompiledTemplate(ScheduleTemplate template, RecurrenceRule rule) {
+
+        static CompiledTemplate of(ScheduleTemplate template) {
+            return new CompiledTemplate(template, RecurrenceRule.parse(template.getRecurrenceRule()));
+        }
+
+        boolean occursOn(LocalDate date) {
+            return !template.getExceptions().contains(date) && rule.occursOn(template.getStartDate(), date);
+        }
+    }
+
+    public Optional<Schedule> resolve(int employeeId, LocalDate date) {
+        return scheduleRepository.findByEmployeeIdAndDate(employeeId, date)
+                .or(() -> occurrence(templatesOf(employeeId), date));
+    }
+
+    // Next schedules strictly after the date, stored rows and template occurrences merged by date
+    public List<Schedule> upcoming(int employeeId, LocalDate after, int limit) {
+        List<Schedule> stored = scheduleRepository.findByEmployeeIdAndDateIsAfterOrderByDateAsc(employeeId, after, PageRequest.of(0, limit));
+        return merge(stored, templatesOf(employeeId), after.plusDays(1), limit);
+    }
+
+    // Same from a date on (included) for a batch of employees whose stored rows (first ones from the date, by date)
+    // are already loaded: the templates of the whole batch are read in one query
+    public Map<Integer, List<Schedule>> upcoming(Map<Integer, List<Schedule>> storedByEmployee, Collection<Integer> employeeIds,
+                                                 LocalDate from, int limit) {
+        Map<Integer, List<CompiledTemplate>> compiledByEmployee = new HashMap<>();
+        if (!employeeIds.isEmpty()) {
+            for (ScheduleTemplate template : scheduleTemplateRepository.findByEmployeeIdInOrderByIdDesc(employeeIds)) {
+                compiledByEmployee.computeIfAbsent(template.getEmployee().getId(), id -> new ArrayList<>()).add(CompiledTemplate.of(template));
+            }
+        }
+        Map<Integer, List<Schedule>> upcoming = new HashMap<>();
+        for (Integer employeeId : employeeIds) {
+            upcoming.put(employeeId, merge(storedByEmployee.getOrDefault(employeeId, List.of()),
+                    compiledByEmployee.getOrDefault(employeeId, List.of()), from, limit));
+        }
+        return upcoming;
+    }
+
+    // Stored rows and template occurrences by date from a date on, a stored row wins on its day
+    private static List<Schedule> merge(List<Schedule> stored, List<CompiledTemplate> compiled, LocalDate from, int limit) {
+        if (compiled.isEmpty()) {
+            return stored;
+        }
+
+        Map<LocalDate, Schedule> storedByDate = stored.stream()
+                .collect(Collectors.toMap(Schedule::getDate, Function.identity(), (first, second) -> first));
+        List<Schedule> result = new ArrayList<>(limit);
+        for (int day = 0; day < MAX_HORIZON_DAYS && result.size() < limit; day++) {
+            LocalDate date = from.plusDays(day);
+            Schedule schedule = storedByDate.get(date);
+            if (schedule == null) {
+                schedule = occurrence(compiled, date).orElse(null);
+            }
+            if (schedule != null) {
+                result.add(schedule);
+            }
+        }
+        return result;
+    }
+
+    // Write the occurrences of the entreprise's templates for the dates, days that already have a row are skipped
+    public int materialize(int entrepriseId, List<LocalDate> dates) {
+        Map<Integer, List<CompiledTemplate>> byEmployee = templatesOfEntreprise(entrepriseId);
+        if (byEmployee.isEmpty()) {
+            return 0;
+        }
+
+        List<Schedule> occurrences = new ArrayList<>();
+        for (List<CompiledTemplate> compiled : byEmployee.values()) {
+            for (LocalDate date : dates) {
+                occurrence(compiled, date).ifPresent(occurrences::add);
+            }
+        }
+        int inserted = scheduleJdbcRepository.insertOccurrences(occurrences);
+        log.info("Schedule templates of entreprise {} materialized for {}: {} rows", entrepriseId, dates, inserted);
+        return inserted;
+    }
+
+    // Template occurrences of the entreprise's employees on a date, one per employee, nothing is written
+    public List<Schedule> occurrences(int entrepriseId, LocalDate date) {
+        List<Schedule> occurrences = new ArrayList<>();
+        for (List<CompiledTemplate> compiled : templatesOfEntreprise(entrepriseId).values()) {
+            occurrence(compiled, date).ifPresent(occurrences::add);
+        }
+        return occurrences;
+    }
+
+    // Templates of the employees changed: drop what was derived from the old ones from the date on, and redo the days
+    public void rematerialize(int entrepriseId, Collection<Integer> employeeIds, List<LocalDate> dates) {
+        employeeIds.forEach(templates::invalidate);
+        scheduleJdbcRepository.deleteTemplateOccurrences(employeeIds, dates.get(0));
+        materialize(entrepriseId, dates);
+    }
+
+    private Map<Integer, List<CompiledTemplate>> templatesOfEntreprise(int entrepriseId) {
+        Map<Integer, List<CompiledTemplate>> byEmployee = new LinkedHashMap<>();
+        for (ScheduleTemplate template : scheduleTemplateRepository.findByEmployeeEntrepriseIdOrderByIdDesc(entrepriseId)) {
+            byEmployee.computeIfAbsent(template.getEmployee().getId(), id -> new ArrayList<>()).add(CompiledTemplate.of(template));
+        }
+        return byEmployee;
+    }
+
+    private List<CompiledTemplate> templatesOf(int employeeId) {
+        return templates.get(employeeId, id -> scheduleTemplateRepository.findByEmployeeIdOrderByIdDesc(id).stream()
+                .map(CompiledTemplate::of)
+                .toList());
+    }
+
+    // The newest template wins when several have an occurrence on the same day
+    private static Optional<Schedule> occurrence(List<CompiledTemplate> compiled, LocalDate date) {
+        for (CompiledTemplate template : compiled) {
+            if (template.occursOn(date)) {
+                return Optional.of(template.template().toSchedule(date));
+            }
+        }
+        return Optional.empty();
+    }
+}
@@ -1,31 +1,52 @@
 package com.magiclogon.attendancebackend.service;
 
 import com.magiclogon.attendancebackend.dto.*;
+import com.magiclogon.attendancebackend.event.TenantDataChangedEvent;
 import com.magiclogon.attendancebackend.model.*;
 import com.magiclogon.attendancebackend.repository.*;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.magiclogon.attendancebackend.security.PrincipalCache;
+import com.magiclogon.attendancebackend.security.TenantContext;
+import com.magiclogon.attendancebackend.utils.TimeZones;
 import lombok.RequiredArgsConstructor;
-import org.springframework.data.domain.PageRequest;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.time.LocalDate;
+import java.time.ZoneId;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Objects;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 public class EmployeeManagementService {
 
+    // Next schedules and last presences shown per employee in the detailed listing
+    private static final int DETAILS_PER_EMPLOYEE = 7;
+    private static final int STREAM_BATCH_SIZE = 200;
+
     private final EmployeeRepository employeeRepository;
-    private final ManagerRepository managerRepository;
-    private final ScheduleRepository scheduleRepository;
-    private final PresenceRepository presenceRepository;
+    private final EmployeeJdbcRepository employeeJdbcRepository;
+    private final TenantContext tenantContext;
+    private final PresenceJdbcRepository presenceJdbcRepository;
+    private final ScheduleJdbcRepository scheduleJdbcRepository;
     private final PasswordEncoder passwordEncoder;
     private final EntrepriseRepository entrepriseRepository;
+    private final TodayAttendanceCache todayAttendanceCache;
+    private final KioskService kioskService;
+    private final FaceEmbeddingIndex faceEmbeddingIndex;
+    private final EffectiveScheduleResolver effectiveScheduleResolver;
+    private final AbsenceDeadlineScheduler absenceDeadlineScheduler;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ObjectMapper objectMapper;
+    private final PrincipalCache principalCache;
+    private final TenantChangeBroadcast tenantChangeBroadcast;
 
     // Does Employee belong to entreprise?
     public boolean doesEmployeeBelongToEntreprise(Integer employee_id, Integer entreprise_id) {
@@ -37,11 +58,7 @@ public class EmployeeManagementService {
 
     // Create an employee
     public Employee addEmployee(CreateEmployeeDTO request) {
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        String managerUsername = authentication.getName();
-
-        // Getting the manager
-        Manager manager = managerRepository.findByUsername(managerUsername).orElseThrow(() -> new IllegalArgumentException("Manager not found."));
+        Manager manager = tenantContext.getManager();
 
         if(employeeRepository.existsByEmailAndEntreprise(request.getEmployeeEmail(), manager.getEntreprise())){
             throw new IllegalArgumentException("Employee already exists.");
@@ -61,30 +78,31 @@ public class EmployeeManagementService {
         employee.setUsername(request.getEmployeeLastName().toLowerCase() + request.getEmployeeFirstName().toLowerCase() + "@" + manager.getEntreprise().getName().toLowerCase());
         employee.setPassword(passwordEncoder.encode(request.getEmployeeLastName().toLowerCase() + request.getEmployeeFirstName().toLowerCase()));
         employee.setRole(Role.ROLE_EMPLOYEE);
-        return employeeRepository.save(employee);
+        Employee saved = employeeRepository.save(employee);
+        eventPublisher.publishEvent(new TenantDataChangedEvent(manager.getEntreprise().getId()));
+        return saved;
     }
 
     public void deleteEmployee(Integer employee_id) {
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        String managerUsername = authentication.getName();
-
-        // Getting the manager
-        Manager manager = managerRepository.findByUsername(managerUsername).orElseThrow(() -> new IllegalArgumentException("Manager not found."));
+        Manager manager = tenantContext.getManager();
 
         Employee employee = employeeRepository.findById(employee_id).orElseThrow(() -> new IllegalArgumentException("Employee not found."));
         if(!employee.getEntreprise().equals(manager.getEntreprise())) {
             throw new IllegalArgumentException("Employee does not belong to this manager.");
         }
         employeeRepository.delete(employee);
+        principalCache.evict(employee.getUsername());
+        todayAttendanceCache.evictEmployees(List.of(employee_id));
+        kioskService.evictRoster(manager.getEntreprise().getId());
+        faceEmbeddingIndex.invalidate(manager.getEntreprise().getId());
+        absenceDeadlineScheduler.rescheduleEmployees(List.of(employee_id));
+        tenantChangeBroadcast.changed(manager.getEntreprise().getId());
+        eventPublisher.publishEvent(new TenantDataChangedEvent(manager.getEntreprise().getId()));
     }
 
     // Change employee informations
     public void updateEmployee(Integer employee_id, CreateEmployeeDTO request) {
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        String managerUsername = authentication.getName();
-
-        // Get the manager
-        Manager manager = managerRepository.findByUsername(managerUsername).orElseThrow(() -> new IllegalArgumentException("Manager not found."));
+        Manager manager = tenantContext.getManager();
 
         // Get the employee
         Employee employee = employeeRepository.findById(employee_id).orElseThrow(() -> new IllegalArgumentException("Employee not found."));
@@ -105,14 +123,13 @@ public class EmployeeManagementService {
         employee.setPositionTitle(request.getEmployeePositionTitle());
 
         employeeRepository.save(employee);
+        kioskService.evictRoster(manager.getEntreprise().getId());
+        tenantChangeBroadcast.changed(manager.getEntreprise().getId());
     }
 
     // Return an employee in particular
     public EmployeeResponseDTO getEmployee(Integer employee_id) {
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        String managerUsername = authentication.getName();
-
-        Manager manager = managerRepository.findByUsername(managerUsername).orElseThrow(() -> new IllegalArgumentException("Manager not found."));
+        Manager manager = tenantContext.getManager();
         Employee employee = employeeRepository.findById(employee_id).orElseThrow(() -> new IllegalArgumentException("Employee not found."));
 
         if(!employee.getEntreprise().equals(manager.getEntreprise())) {
@@ -124,10 +141,7 @@ public class EmployeeManagementService {
 
     // Return all the employees of a manager
     public List<EmployeeResponseDTO> getAllEmployees() {
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        String managerUsername = authentication.getName();
-
-        Manager manager = managerRepository.findByUsername(managerUsername).orElseThrow(() -> new IllegalArgumentException("Manager not found."));
+        Manager manager = tenantContext.getManager();
 
         return employeeRepository.findByEntreprise(manager.getEntreprise())
                 .stream()
@@ -136,43 +150,70 @@ public class EmployeeManagementService {
 
     }
 
-    // Return all the employees of a manager with details (schedules and attendances)
-    public List<EmployeeDetailedResponseDTO> getAllEmployeesWithDetails() {
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        String managerUsername = authentication.getName();
-        Manager manager = managerRepository.findByUsername(managerUsername).orElseThrow(() -> new IllegalArgumentException("Manager not found."));
+    // Return the employees of the manager's entreprise with details (next schedules and last attendances).
+    // A batch is three statements whatever its size: the employees after the cursor (by id), then the top 7 schedules
+    // and the top 7 presences of all of them, ranked per employee by the database.
+    public List<EmployeeDetailedResponseDTO> getEmployeesWithDetails(int entrepriseId, ZoneId zone, int afterId, int limit) {
+        return getEmployeesWithDetails(entrepriseId, LocalDate.now(zone), afterId, limit);
+    }
 
-        List<Employee> employees = manager.getEmployees();
-        List<EmployeeDetailedResponseDTO> result = new ArrayList<>();
+    private List<EmployeeDetailedResponseDTO> getEmployeesWithDetails(int entrepriseId, LocalDate today, int afterId, int limit) {
+        List<EmployeeResponseDTO> employees = employeeJdbcRepository.findEmployeesOfEntreprise(entrepriseId, afterId, limit);
+        if (employees.isEmpty()) {
+            return List.of();
+        }
+        List<Integer> ids = employees.stream().map(EmployeeResponseDTO::getId).toList();
 
-        PageRequest pageRequest = PageRequest.of(0, 7);
-        for(Employee employee : employees) {
-            EmployeeResponseDTO employeeDTO = EmployeeResponseDTO.mapToDTO(employee);
-            List<Schedule> schedules = scheduleRepository.findByEmployeeIdAndDateIsAfterOrderByDateAsc(employee.getId(), LocalDate.now().minusDays(1), pageRequest);
-            List<Presence> presences = presenceRepository.findByEmployeeIdAndDateIsBeforeOrderByDateDesc(employee.getId(), LocalDate.now().minusDays(1), pageRequest);
+        Map<Integer, List<Schedule>> schedules = effectiveScheduleResolver.upcoming(
+                scheduleJdbcRepository.findUpcomingSchedulesOfEmployees(ids, today, DETAILS_PER_EMPLOYEE),
+                ids, today, DETAILS_PER_EMPLOYEE);
+        Map<Integer, List<EmployeePresenceDTO>> presences =
+                presenceJdbcRepository.findLatestPresencesOfEmployees(ids, today.minusDays(1), DETAILS_PER_EMPLOYEE);
 
-            List<ScheduleOfEmployeeResponseDTO> schedulesDTOs = schedules.stream()
+        List<EmployeeDetailedResponseDTO> result = new ArrayList<>(employees.size());
+        for (EmployeeResponseDTO employee : employees) {
+            List<ScheduleOfEmployeeResponseDTO> schedulesDTOs = schedules.getOrDefault(employee.getId(), List.of()).stream()
                     .map(ScheduleOfEmployeeResponseDTO::mapToDTO)
-                    .filter(Objects::nonNull)
-                    .toList();
-
-            List<EmployeePresenceDTO> presencesDTOs = presences.stream()
-                    .map(EmployeePresenceDTO::mapToDTO)
-                    .filter(Objects::nonNull)
                     .toList();
+            result.add(new EmployeeDetailedResponseDTO(employee, schedulesDTOs, presences.getOrDefault(employee.getId(), List.of())));
+        }
+        return result;
+    }
 
-            result.add(new EmployeeDetailedResponseDTO(employeeDTO, schedulesDTOs, presencesDTOs));
+    // Write every employee with details as one JSON array, batch after batch: only one batch is in memory at a time.
+    // Every batch uses the same day, the one the stream started on.
+    public void writeAllEmployeesWithDetails(int entrepriseId, ZoneId zone, OutputStream out) throws IOException {
+        LocalDate today = LocalDate.now(zone);
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            generator.configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false);
+            generator.writeStartArray();
+            int afterId = 0;
+            List<EmployeeDetailedResponseDTO> batch;
+            do {
+                batch = getEmployeesWithDetails(entrepriseId, today, afterId, STREAM_BATCH_SIZE);
+                for (EmployeeDetailedResponseDTO employee : batch) {
+                    objectMapper.writeValue(generator, employee);
+                }
+                generator.flush();
+                if (!batch.isEmpty()) {
+                    afterId = batch.get(batch.size() - 1).getEmployeeDetails().getId();
+                }
+            } while (batch.size() == STREAM_BATCH_SIZE);
+            generator.writeEndArray();
         }
+    }
 
-        return result;
+    // Entreprise of the authenticated manager, resolved before a response starts streaming
+    public int getAuthenticatedEntrepriseId() {
+        return tenantContext.getEntrepriseId();
+    }
 
+    // Zone of that entreprise, resolved with it: the days of the details are the entreprise's
+    public ZoneId getAuthenticatedEntrepriseZone() {
+        return TimeZones.zoneOf(tenantContext.getManager().getEntreprise().getTimeZone());
     }
 
     public Integer getNumberEmployees() {
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        String managerUsername = authentication.getName();
-
-        Manager manager = managerRepository.findByUsername(managerUsername).orElseThrow(() -> new IllegalArgumentException("Manager not found."));
-        return employeeRepository.findByEntreprise(manager.getEntreprise()).size();
+        return (int) employeeRepository.countByEntrepriseId(tenantContext.getEntrepriseId());
     }
 }
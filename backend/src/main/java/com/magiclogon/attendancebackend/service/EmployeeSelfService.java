@@ -10,10 +10,9 @@ import com.magiclogon.attendancebackend.model.Presence;
 import com.magiclogon.attendancebackend.model.Schedule;
 import com.magiclogon.attendancebackend.repository.EmployeeRepository;
 import com.magiclogon.attendancebackend.repository.PresenceRepository;
-import com.magiclogon.attendancebackend.repository.ScheduleRepository;
+import com.magiclogon.attendancebackend.security.TenantContext;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.PageRequest;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDate;
@@ -25,13 +24,13 @@ import java.util.Objects;
 public class EmployeeSelfService {
 
     private final EmployeeRepository employeeRepository;
-    private final ScheduleRepository scheduleRepository;
+    private final EffectiveScheduleResolver effectiveScheduleResolver;
     private final PresenceRepository presenceRepository;
+    private final FaceEmbeddingIndex faceEmbeddingIndex;
+    private final TenantContext tenantContext;
 
     private Employee getAuthenticatedEmployee() {
-        String username = SecurityContextHolder.getContext().getAuthentication().getName();
-        return employeeRepository.findByUsername(username)
-                .orElseThrow(() -> new IllegalArgumentException("Employee not found."));
+        return tenantContext.getEmployee();
     }
 
     // Get Self Information
@@ -46,7 +45,7 @@ public class EmployeeSelfService {
 
         EmployeeResponseDTO employeeInfo = EmployeeResponseDTO.mapToDTO(employee);
         PageRequest pageRequest = PageRequest.of(0, 5);
-        List<Schedule> schedules = scheduleRepository.findByEmployeeIdAndDateIsAfterOrderByDateAsc(employee.getId(), LocalDate.now().minusDays(1), pageRequest);
+        List<Schedule> schedules = effectiveScheduleResolver.upcoming(employee.getId(), LocalDate.now().minusDays(1), pageRequest.getPageSize());
         List<Presence> presences = presenceRepository.findByEmployeeIdAndDateIsBeforeOrderByDateDesc(employee.getId(), LocalDate.now().minusDays(1), pageRequest);
 
         List<ScheduleOfEmployeeResponseDTO> schedulesDTOs = schedules.stream()
@@ -65,7 +64,7 @@ public class EmployeeSelfService {
     // Get schedule at date
     public ScheduleOfEmployeeResponseDTO getScheduleAtDate(LocalDate date) {
         Employee employee = getAuthenticatedEmployee();
-        return scheduleRepository.findByEmployeeIdAndDate(employee.getId(), date)
+        return effectiveScheduleResolver.resolve(employee.getId(), date)
                 .map(ScheduleOfEmployeeResponseDTO::mapToDTO)
                 .orElse(null);
     }
@@ -80,5 +79,6 @@ public class EmployeeSelfService {
         Employee employee = getAuthenticatedEmployee();
         employee.setHasRegisteredFace(true);
         employeeRepository.save(employee);
+        faceEmbeddingIndex.invalidate(employee.getEntreprise().getId());
     }
 }
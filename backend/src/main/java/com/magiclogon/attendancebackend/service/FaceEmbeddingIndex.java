@@ -0,0 +1,200 @@
+package com.magiclogon.attendancebackend.service;
+
+import com.magiclogon.attendancebackend.client.FaceEmbeddingStoreReader;
+import com.magiclogon.attendancebackend.client.FaceRecognitionClient;
+import com.magiclogon.attendancebackend.repository.EmployeeRepository;
+import com.magiclogon.attendancebackend.utils.TtlCache;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+// Per-entreprise in-memory index of registered face embeddings for 1:N identification.
+// Vectors are L2-normalized and stored back to back in one float[] with their original norms, so every metric of
+// the recognition service derives from one dot product: cosine is 1 - dot, euclidean_l2 is sqrt(2 - 2 dot) and
+// euclidean is sqrt(|a|^2 + |b|^2 - 2 |a| |b| dot).
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class FaceEmbeddingIndex {
+
+    private final EmployeeRepository employeeRepository;
+    private final FaceRecognitionClient faceRecognitionClient;
+    private final FaceEmbeddingStoreReader faceEmbeddingStoreReader;
+
+    // Reloaded from the recognition service at most every 10 minutes, or right after a change
+    private final TtlCache<Integer, Segment> segments = new TtlCache<>(Duration.ofMinutes(10), 10_000);
+
+    public record Match(int employeeId, double distance) {}
+
+    // Distance metrics of the recognition service, the threshold it returns is only meaningful in its own metric
+    public enum Metric {
+        COSINE, EUCLIDEAN, EUCLIDEAN_L2;
+
+        // The service's name of the metric; services that do not report one use cosine
+        public static Metric of(String name) {
+            if (name == null || name.isBlank()) {
+                return COSINE;
+            }
+            return switch (name) {
+                case "cosine" -> COSINE;
+                case "euclidean" -> EUCLIDEAN;
+                case "euclidean_l2" -> EUCLIDEAN_L2;
+                default -> throw new IllegalStateException("Unsupported distance metric: " + name);
+            };
+        }
+    }
+
+    // Closest registered employees of the entreprise in the metric of the service, best first
+    public List<Match> identify(int entrepriseId, float[] embedding, Metric metric, int k) throws IOException {
+        Segment segment = segments.get(entrepriseId);
+        if (segment == null) {
+            segment = load(entrepriseId);
+            segments.put(entrepriseId, segment);
+        }
+        return segment.topK(embedding, metric, k);
+    }
+
+    // Drop the entreprise's vectors after a face registration or an employee change
+    public void invalidate(Integer entrepriseId) {
+        segments.invalidate(entrepriseId);
+    }
+
+    private Segment load(int entrepriseId) throws IOException {
+        List<Integer> employeeIds = employeeRepository.findIdsByEntrepriseIdAndHasRegisteredFaceTrue(entrepriseId);
+        if (employeeIds.isEmpty()) {
+            return Segment.EMPTY;
+        }
+        // Read the store file directly when it is shared with the recognition service
+        Map<String, float[]> embeddings = faceEmbeddingStoreReader.isEnabled()
+                ? faceEmbeddingStoreReader.read(employeeIds)
+                : faceRecognitionClient.fetchEmbeddings(employeeIds);
+        Segment segment = Segment.of(embeddings);
+        log.info("Face index loaded for entreprise {} with {} embeddings", entrepriseId, segment.size());
+        return segment;
+    }
+
+    // Immutable block of normalized vectors, row i belongs to ids[i] and had the norm norms[i]
+    static final class Segment {
+
+        static final Segment EMPTY = new Segment(new int[0], new float[0], new float[0], 0);
+
+        private final int[] ids;
+        private final float[] vectors;
+        private final float[] norms;
+        private final int dimension;
+
+        private Segment(int[] ids, float[] vectors, float[] norms, int dimension) {
+            this.ids = ids;
+            this.vectors = vectors;
+            this.norms = norms;
+            this.dimension = dimension;
+        }
+
+        static Segment of(Map<String, float[]> embeddings) {
+            int dimension = embeddings.values().stream().mapToInt(vector -> vector.length).findFirst().orElse(0);
+            int[] ids = new int[embeddings.size()];
+            float[] vectors = new float[embeddings.size() * dimension];
+            float[] norms = new float[embeddings.size()];
+            int rows = 0;
+            for (Map.Entry<String, float[]> entry : embeddings.entrySet()) {
+                float[] vector = entry.getValue();
+                // A vector from another model would make every distance meaningless
+                if (vector.length != dimension) {
+                    log.warn("Skipping embedding of employee {} with dimension {}", entry.getKey(), vector.length);
+                    continue;
+                }
+                ids[rows] = Integer.parseInt(entry.getKey());
+                norms[rows] = normalizeInto(vector, vectors, rows * dimension);
+                rows++;
+            }
+            return new Segment(Arrays.copyOf(ids, rows), Arrays.copyOf(vectors, rows * dimension), Arrays.copyOf(norms, rows), dimension);
+        }
+
+        int size() {
+            return ids.length;
+        }
+
+        List<Match> topK(float[] embedding, Metric metric, int k) {
+            if (ids.length == 0 || k <= 0) {
+                return List.of();
+            }
+            if (embedding.length != dimension) {
+                throw new IllegalArgumentException("Embedding dimension " + embedding.length + " does not match the index (" + dimension + ")");
+            }
+            float[] probe = new float[dimension];
+            float probeNorm = normalizeInto(embedding, probe, 0);
+
+            // Small sorted arrays of the best rows, smallest distance first
+            int size = Math.min(k, ids.length);
+            int[] bestRows = new int[size];
+            double[] bestDistances = new double[size];
+            Arrays.fill(bestDistances, Double.POSITIVE_INFINITY);
+
+            for (int row = 0; row < ids.length; row++) {
+                double distance = distance(metric, dot(probe, vectors, row * dimension, dimension), probeNorm, norms[row]);
+                if (distance >= bestDistances[size - 1]) {
+                    continue;
+                }
+                int position = size - 1;
+                while (position > 0 && bestDistances[position - 1] > distance) {
+                    bestDistances[position] = bestDistances[position - 1];
+                    bestRows[position] = bestRows[position - 1];
+                    position--;
+                }
+                bestDistances[position] = distance;
+                bestRows[position] = row;
+            }
+
+            List<Match> matches = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                matches.add(new Match(ids[bestRows[i]], bestDistances[i]));
+            }
+            return matches;
+        }
+
+        private static double distance(Metric metric, float dot, float probeNorm, float norm) {
+            return switch (metric) {
+                case COSINE -> 1.0 - dot;
+                case EUCLIDEAN_L2 -> Math.sqrt(Math.max(0.0, 2.0 - 2.0 * dot));
+                case EUCLIDEAN -> Math.sqrt(Math.max(0.0,
+                        (double) probeNorm * probeNorm + (double) norm * norm - 2.0 * probeNorm * norm * dot));
+            };
+        }
+
+        // Four independent accumulators break the add dependency chain so the loop pipelines well
+        static float dot(float[] probe, float[] vectors, int offset, int dimension) {
+            float s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+            int i = 0;
+            for (; i + 3 < dimension; i += 4) {
+                s0 += probe[i] * vectors[offset + i];
+                s1 += probe[i + 1] * vectors[offset + i + 1];
+                s2 += probe[i + 2] * vectors[offset + i + 2];
+                s3 += probe[i + 3] * vectors[offset + i + 3];
+            }
+            for (; i < dimension; i++) {
+                s0 += probe[i] * vectors[offset + i];
+            }
+            return (s0 + s1) + (s2 + s3);
+        }
+
+        // Writes the unit vector at the offset and returns the original norm
+        private static float normalizeInto(float[] vector, float[] target, int offset) {
+            double norm = 0;
+            for (float value : vector) {
+                norm += (double) value * value;
+            }
+            float scale = norm == 0 ? 0f : (float) (1.0 / Math.sqrt(norm));
+            for (int i = 0; i < vector.length; i++) {
+                target[offset + i] = vector[i] * scale;
+            }
+            return (float) Math.sqrt(norm);
+        }
+    }
+}
@@ -1,29 +1,43 @@
 package com.magiclogon.attendancebackend.service;
 
 import com.magiclogon.attendancebackend.dto.EmployeeResponseDTO;
+import com.magiclogon.attendancebackend.dto.KioskRosterRowDTO;
 import com.magiclogon.attendancebackend.dto.SetupAttendanceCameraDTO;
 import com.magiclogon.attendancebackend.dto.SetupAttendanceCameraRequestDTO;
-import com.magiclogon.attendancebackend.model.Employee;
 import com.magiclogon.attendancebackend.model.Entreprise;
 import com.magiclogon.attendancebackend.repository.EntrepriseRepository;
 import com.magiclogon.attendancebackend.repository.ScheduleRepository;
 import com.magiclogon.attendancebackend.security.JwtKioskUtil;
+import com.magiclogon.attendancebackend.utils.TimeZones;
+import com.magiclogon.attendancebackend.utils.TtlCache;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalTime;
+import java.time.ZoneId;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 @Service
 @RequiredArgsConstructor
 public class KioskService {
 
+    // Employees show up on the kiosk this long before their check-in time
+    private static final int ELIGIBILITY_MINUTES = 20;
+
     private final EntrepriseRepository entrepriseRepository;
     private final ScheduleRepository scheduleRepository;
     private final JwtKioskUtil jwtKioskUtil;
 
+    // Today's full roster per entreprise, eligibility is filtered from it on every call
+    private record DayRoster(LocalDate date, ZoneId zone, String entrepriseName, List<KioskRosterRowDTO> rows) {}
+
+    private final TtlCache<Integer, DayRoster> rosterCache = new TtlCache<>(Duration.ofSeconds(30), 10_000);
+
     // Authenticate entreprise By CODE
     public String authenticateByCode(SetupAttendanceCameraRequestDTO request) {
         Entreprise entreprise = entrepriseRepository.findByCameraCode(request.getCameraCode()).orElseThrow(() -> new IllegalArgumentException("Camera code not found."));
@@ -32,20 +46,56 @@ public class KioskService {
 
     // Service for entering the attendance Camera
     public SetupAttendanceCameraDTO setupAttendanceCamera(Integer entreprise_id) {
-        Entreprise entreprise = entrepriseRepository.findById(entreprise_id).orElseThrow(() -> new IllegalArgumentException("Entreprise not found."));
+        return setupAttendanceCamera(entreprise_id, null);
+    }
+
+    // With a 'since' time, only employees who became eligible after it are returned (delta mode)
+    public SetupAttendanceCameraDTO setupAttendanceCamera(Integer entreprise_id, LocalTime since) {
+        // The roster day and eligibility follow the entreprise's clock
+        DayRoster roster = rosterCache.get(entreprise_id);
+        if (roster == null || !roster.date().equals(LocalDate.now(roster.zone()))) {
+            roster = loadRoster(entreprise_id);
+            rosterCache.put(entreprise_id, roster);
+        }
+        LocalTime time_now = LocalTime.now(roster.zone());
 
-        LocalTime time_now = LocalTime.now();
-        LocalDate today = LocalDate.now();
+        LocalTime eligibleBefore = time_now.plusMinutes(ELIGIBILITY_MINUTES);
+        LocalTime eligibleBeforeAtSince = since == null ? null : since.plusMinutes(ELIGIBILITY_MINUTES);
 
         List<EmployeeResponseDTO> listEmployees = new ArrayList<>();
-
-        List<Employee> employees = entreprise.getEmployees();
-        for(Employee employee : employees) {
-            if(scheduleRepository.existsByEmployeeAndDateAndCheckinTimeBefore(employee, today, time_now.plusMinutes(20))) {
-                listEmployees.add(EmployeeResponseDTO.mapToDTO(employee));
-            }
+        Set<Integer> seen = new HashSet<>();
+        for (KioskRosterRowDTO row : roster.rows()) {
+            if (!row.getCheckinTime().isBefore(eligibleBefore)) continue;
+            if (!seen.add(row.getEmployeeId())) continue;
+            if (eligibleBeforeAtSince != null && row.getCheckinTime().isBefore(eligibleBeforeAtSince)) continue;
+            listEmployees.add(toEmployeeDTO(row, roster.entrepriseName()));
         }
 
-        return new SetupAttendanceCameraDTO(entreprise.getName(), listEmployees);
+        return new SetupAttendanceCameraDTO(roster.entrepriseName(), listEmployees);
+    }
+
+    // Drop the cached roster after schedules or employees of the entreprise change
+    public void evictRoster(Integer entreprise_id) {
+        rosterCache.invalidate(entreprise_id);
+    }
+
+    private DayRoster loadRoster(Integer entreprise_id) {
+        Entreprise entreprise = entrepriseRepository.findById(entreprise_id).orElseThrow(() -> new IllegalArgumentException("Entreprise not found."));
+        ZoneId zone = TimeZones.zoneOf(entreprise.getTimeZone());
+        LocalDate date = LocalDate.now(zone);
+        return new DayRoster(date, zone, entreprise.getName(), scheduleRepository.findKioskRoster(entreprise_id, date));
+    }
+
+    private static EmployeeResponseDTO toEmployeeDTO(KioskRosterRowDTO row, String entrepriseName) {
+        EmployeeResponseDTO dto = new EmployeeResponseDTO();
+        dto.setId(row.getEmployeeId());
+        dto.setEmployeeFirstName(row.getFirstName());
+        dto.setEmployeeLastName(row.getLastName());
+        dto.setEmployeeEmail(row.getEmail());
+        dto.setEmployeeEntreprise(entrepriseName);
+        dto.setEmployeePhone(row.getPhoneNumber());
+        dto.setEmployeeUsername(row.getUsername());
+        dto.setEmployeePositionTitle(row.getPositionTitle());
+        return dto;
     }
 }
@@ -2,27 +2,33 @@ package com.magiclogon.attendancebackend.service;
 
 import com.magiclogon.attendancebackend.dto.EntrepriseInfoDTO;
 import com.magiclogon.attendancebackend.dto.ManagerSettingsDTO;
+import com.magiclogon.attendancebackend.event.TenantDataChangedEvent;
 import com.magiclogon.attendancebackend.model.Entreprise;
 import com.magiclogon.attendancebackend.model.Manager;
 import com.magiclogon.attendancebackend.model.ManagerSettings;
 import com.magiclogon.attendancebackend.repository.EntrepriseRepository;
-import com.magiclogon.attendancebackend.repository.ManagerRepository;
 import com.magiclogon.attendancebackend.repository.ManagerSettingsRepository;
+import com.magiclogon.attendancebackend.security.TenantContext;
 import lombok.RequiredArgsConstructor;
-import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
+import java.time.ZoneId;
+
 @Service
 @RequiredArgsConstructor
 public class ManagerManagementService {
-    private final ManagerRepository managerRepository;
+    private final TenantContext tenantContext;
     private final ManagerSettingsRepository managerSettingsRepository;
     private final EntrepriseRepository entrepriseRepository;
+    private final TodayAttendanceCache todayAttendanceCache;
+    private final KioskService kioskService;
+    private final AbsenceDeadlineScheduler absenceDeadlineScheduler;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TenantChangeBroadcast tenantChangeBroadcast;
 
     private Manager getAuthenticatedManager() {
-        String username = SecurityContextHolder.getContext().getAuthentication().getName();
-        return managerRepository.findByUsername(username)
-                .orElseThrow(() -> new IllegalArgumentException("Manager not found."));
+        return tenantContext.getManager();
     }
 
     // Get Manager Settings
@@ -53,8 +59,22 @@ public class ManagerManagementService {
         entreprise.setPhoneNumber(request.getEntreprisePhone());
         entreprise.setWebsite(request.getEntrepriseWebsite());
         entreprise.setEmail(request.getEntrepriseEmail());
+        // Left untouched when the client does not send it
+        if (request.getEntrepriseTimeZone() != null) {
+            if (!ZoneId.getAvailableZoneIds().contains(request.getEntrepriseTimeZone())) {
+                throw new IllegalArgumentException("Invalid time zone.");
+            }
+            entreprise.setTimeZone(request.getEntrepriseTimeZone());
+        }
 
-        return EntrepriseInfoDTO.mapToDo(entrepriseRepository.save(entreprise));
+        EntrepriseInfoDTO dto = EntrepriseInfoDTO.mapToDo(entrepriseRepository.save(entreprise));
+        todayAttendanceCache.evictEntreprise(entreprise.getId());
+        kioskService.evictRoster(entreprise.getId());
+        // Deadlines are instants on the entreprise's clock, a new zone moves all of them
+        absenceDeadlineScheduler.rebuild();
+        tenantChangeBroadcast.changed(entreprise.getId());
+        eventPublisher.publishEvent(new TenantDataChangedEvent(entreprise.getId()));
+        return dto;
     }
 
     // Update Manager settings
@@ -65,6 +85,10 @@ public class ManagerManagementService {
         settings.setAbsenceThresholdMinutes(request.getAbsenceThresholdMinutes());
         settings.setLateThresholdMinutes(request.getLateThresholdMinutes());
 
-        return ManagerSettingsDTO.mapToDTO(managerSettingsRepository.save(settings));
+        ManagerSettingsDTO dto = ManagerSettingsDTO.mapToDTO(managerSettingsRepository.save(settings));
+        todayAttendanceCache.evictManager(manager.getId());
+        absenceDeadlineScheduler.rescheduleManager(manager.getId());
+        tenantChangeBroadcast.changed(manager.getEntreprise().getId());
+        return dto;
     }
 }
@@ -1,38 +1,57 @@
 package com.magiclogon.attendancebackend.service;
 
 import com.magiclogon.attendancebackend.dto.*;
+import com.magiclogon.attendancebackend.event.TenantDataChangedEvent;
 import com.magiclogon.attendancebackend.model.*;
 import com.magiclogon.attendancebackend.repository.*;
+import com.magiclogon.attendancebackend.repository.PresenceJdbcRepository.DayState;
 import com.magiclogon.attendancebackend.security.JwtKioskUtil;
+import com.magiclogon.attendancebackend.security.TenantContext;
+import com.magiclogon.attendancebackend.utils.DateRanges;
+import com.magiclogon.attendancebackend.utils.TimeZones;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.scheduling.annotation.Scheduled;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.util.*;
+import java.time.Instant;
 import java.time.LocalDate;
 import java.time.LocalTime;
+import java.time.ZoneId;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Objects;
-import java.util.stream.Collectors;
 
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class PresenceManagementService {
+    private static final Set<Integer> STATS_WINDOWS = Set.of(7, 30, 90);
+    // A lost write is retried on fresh state: the row's materialization and a concurrent check-in can both intervene
+    private static final int MAX_PRESENCE_ATTEMPTS = 3;
+
     private final PresenceRepository presenceRepository;
-    private final ManagerRepository managerRepository;
-    private final ManagerSettingsRepository managerSettingsRepository;
+    private final TenantContext tenantContext;
     private final EmployeeRepository employeeRepository;
-    private final ScheduleRepository scheduleRepository;
+    private final PresenceJdbcRepository presenceJdbcRepository;
+    private final EntrepriseRepository entrepriseRepository;
+    private final TodayAttendanceCache todayAttendanceCache;
+    private final DailyAttendanceRollupService dailyAttendanceRollupService;
+    private final AbsenceDeadlineScheduler absenceDeadlineScheduler;
+    private final ClusterMembership clusterMembership;
+    private final EffectiveScheduleResolver effectiveScheduleResolver;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
 
     // Authentication
     private Manager getAuthenticatedManager() {
-        String username = SecurityContextHolder.getContext().getAuthentication().getName();
-        return managerRepository.findByUsername(username)
-                .orElseThrow(() -> new IllegalArgumentException("Manager not found."));
+        return tenantContext.getManager();
     }
 
     // VAlidate that employee is bien du Manager
@@ -51,91 +70,153 @@ public class PresenceManagementService {
         return EmployeePresenceDTO.mapToDTO(presenceRepository.findByEmployeeIdAndDate(employee_id, date));
     }
 
-    // Get all employees presences
-    public List<EmployeePresenceDTO> getAllEmployeesPresences(LocalDate date){
+    // Get all employees presences: one query for the page (names joined in), sortable by name, status or checkinTime
+    public Page<EmployeePresenceDTO> getAllEmployeesPresences(LocalDate date, Pageable pageable){
         Manager manager = getAuthenticatedManager();
-        List<Employee> employees = employeeRepository.findByEntreprise(manager.getEntreprise());
-        return employees.stream()
-                .map(employee -> EmployeePresenceDTO.mapToDTO(presenceRepository.findByEmployeeIdAndDate(employee.getId(), date)))
-                .filter(Objects::nonNull)
-                .collect(Collectors.toList());
+        return presenceJdbcRepository.findPresencesOfEntreprise(manager.getEntreprise().getId(), date, pageable);
     }
 
     // Handle Employee Presence (Automatic)
     public void handleEmployeePresence(Integer employeeId) {
-        LocalDate today = LocalDate.now();
-        LocalTime now = LocalTime.now();
-
-        // Fetch employee and schedule
-        Employee employee = employeeRepository.findById(employeeId)
-                .orElseThrow(() -> new IllegalArgumentException("Employee not found."));
-
-        Schedule schedule = scheduleRepository.findByEmployeeIdAndDate(employeeId, today)
-                .orElseThrow(() -> new IllegalArgumentException("Schedule not found for today."));
+        handleEmployeePresence(employeeId, Instant.now());
+    }
 
-        if (Boolean.TRUE.equals(schedule.getIsDayOff())) {
-            throw new IllegalArgumentException("Today is a day off.");
+    // Same rules evaluated at the instant the event happened, on the entreprise's clock (buffered kiosk check-ins).
+    // No transaction around the retries: each attempt's write is one conditional statement committed with its rollup
+    // delta, and a lost write is decided again on a fresh read, which a longer transaction's snapshot would hide.
+    public void handleEmployeePresence(Integer employeeId, Instant eventTime) {
+        for (int attempt = 0; attempt < MAX_PRESENCE_ATTEMPTS; attempt++) {
+            if (recordPresence(employeeId, eventTime)) {
+                return;
+            }
+            // Another request or node wrote the day first: reload it, the rules then say what is left to do
+            todayAttendanceCache.evictEmployees(List.of(employeeId));
         }
+        throw new ConcurrencyFailureException("Attendance changed meanwhile, please try again.");
+    }
 
-        Presence presence = presenceRepository.findByEmployeeIdAndDate(employeeId, today);
-        if (presence == null) {
-            presence = new Presence();
-            presence.setEmployee(employee);
-            presence.setDate(today);
-            presence.setStatus(PresenceStatus.NOT_OPENED); // initial default
-            presenceRepository.save(presence);
-            log.info("Presence record initialized for employee {} on {}", employeeId, today);
+    // One decision and its conditional write. False when the row changed since it was read.
+    private boolean recordPresence(Integer employeeId, Instant eventTime) {
+        // Employee, schedule, presence and settings all come from the day cache
+        DayState state = todayAttendanceCache.get(employeeId, LocalDate.ofInstant(eventTime, ZoneId.systemDefault()));
+        if (state == null) {
+            throw new IllegalArgumentException("Employee not found.");
         }
 
-        LocalTime checkinTime = schedule.getCheckinTime();
-        LocalTime checkoutTime = schedule.getCheckoutTime();
-        ManagerSettings settings = managerSettingsRepository.findByManager(employee.getManager())
-                .orElseThrow(() -> new IllegalStateException("Manager settings not found."));
-        int lateThresholdMinutes = settings.getLateThresholdMinutes();
+        // The day of the event on the entreprise's clock, or the day before while an overnight shift is still open
+        LocalDate date = LocalDate.ofInstant(eventTime, state.zone());
+        if (!date.equals(LocalDate.ofInstant(eventTime, ZoneId.systemDefault()))) {
+            state = todayAttendanceCache.get(employeeId, date);
+        }
+        DayState previous = todayAttendanceCache.get(employeeId, date.minusDays(1));
+        if (belongsToPreviousShift(previous, state, eventTime)) {
+            state = previous;
+            date = date.minusDays(1);
+        }
 
-        PresenceStatus currentStatus = presence.getStatus();
+        if (!state.hasSchedule()) {
+            throw new IllegalArgumentException("Schedule not found for today.");
+        }
+        if (state.dayOff()) {
+            throw new IllegalArgumentException("Today is a day off.");
+        }
+        if (state.lateThresholdMinutes() == null) {
+            throw new IllegalStateException("Manager settings not found.");
+        }
 
-        // If already checked in (PRESENT or LATE), check if it's checkout time
-        if (EnumSet.of(PresenceStatus.PRESENT, PresenceStatus.LATE).contains(currentStatus)) {
-            if (now.isAfter(checkoutTime)) {
-                if (presence.getCheckoutTime() != null) {
-                    throw new IllegalArgumentException("Checkout has already been recorded.");
+        LocalTime checkoutTime = state.scheduleCheckout();
+        LocalTime now = LocalTime.ofInstant(eventTime, state.zone());
+        PresenceStatus currentStatus = state.status() == null ? PresenceStatus.NOT_OPENED : state.status();
+
+        PresenceRuleEngine.Decision decision = PresenceRuleEngine.evaluate(
+                PresenceRuleEngine.checkinSecond(state.scheduleCheckin()),
+                PresenceRuleEngine.checkoutSecond(state.scheduleCheckin(), checkoutTime),
+                state.lateThresholdMinutes(),
+                currentStatus,
+                state.presenceCheckin() != null,
+                state.presenceCheckout() != null,
+                PresenceRuleEngine.secondsIntoDate(eventTime, state.zone(), date));
+
+        switch (decision) {
+            case TOO_EARLY_TO_CHECK_OUT -> throw new IllegalArgumentException("Too early for checkout. You can check out after " + checkoutTime);
+            case ALREADY_CHECKED_OUT -> throw new IllegalArgumentException("Checkout has already been recorded.");
+            case ALREADY_CHECKED_IN -> throw new IllegalArgumentException("Check-in already recorded.");
+            case TOO_EARLY_TO_CHECK_IN -> throw new IllegalArgumentException("Too early to check in.");
+            case TOO_LATE_TO_CHECK_IN -> throw new IllegalArgumentException("Invalid check-in time. You're too late.");
+            case CHECK_OUT -> {
+                if (!presenceJdbcRepository.recordCheckout(employeeId, date, now)) {
+                    return false;
                 }
-                presence.setCheckoutTime(now);
-                presenceRepository.save(presence);
+                todayAttendanceCache.put(date, state.withPresence(state.presenceId(), currentStatus, state.presenceCheckin(), now));
                 log.info("Checkout recorded for employee {}", employeeId);
-            } else {
-                throw new IllegalArgumentException("Too early for checkout. You can check out after " + checkoutTime);
+                return true;
+            }
+            default -> {
             }
-            return;
         }
 
-        // If already checked in or out
-        if (presence.getCheckinTime() != null) {
-            throw new IllegalArgumentException("Check-in already recorded.");
-        }
+        PresenceStatus status = decision == PresenceRuleEngine.Decision.CHECK_IN_PRESENT ? PresenceStatus.PRESENT : PresenceStatus.LATE;
 
-        // Check if now is within valid check-in period
-        if (now.isBefore(checkinTime.minusMinutes(20))) {
-            throw new IllegalArgumentException("Too early to check in.");
+        Integer presenceId = writeCheckin(employeeId, state, date, currentStatus, status, now);
+        if (presenceId == null) {
+            return false;
         }
-
-        // Determine status based on lateness
-        if (now.isBefore(checkinTime.plusMinutes(lateThresholdMinutes))) {
-            presence.setStatus(PresenceStatus.PRESENT);
-        } else if (now.isBefore(checkoutTime)) {
-            presence.setStatus(PresenceStatus.LATE);
-        } else {
-            throw new IllegalArgumentException("Invalid check-in time. You're too late.");
+        if (state.entrepriseId() != null) {
+            eventPublisher.publishEvent(new TenantDataChangedEvent(state.entrepriseId()));
         }
+        todayAttendanceCache.put(date, state.withPresence(presenceId, status, now, null));
+        absenceDeadlineScheduler.cancel(employeeId, date);
+        log.info("Check-in recorded for employee {} with status {}", employeeId, status);
+        return true;
+    }
+
+    // The check-in and its move in the day's counters commit together. Returns the presence id, null when the row
+    // changed since it was read (nothing written then).
+    private Integer writeCheckin(int employeeId, DayState state, LocalDate date, PresenceStatus currentStatus,
+                                 PresenceStatus status, LocalTime now) {
+        return transactionTemplate.execute(tx -> {
+            Integer presenceId = state.presenceId();
+            if (presenceId == null) {
+                // No row materialized yet for the day: insert it directly with its final status
+                presenceId = presenceJdbcRepository.insertCheckin(employeeId, date, status, now);
+                if (presenceId == null) {
+                    return null;
+                }
+            } else if (!presenceJdbcRepository.recordCheckin(employeeId, date, currentStatus, status, now)) {
+                return null;
+            }
+            if (state.entrepriseId() != null) {
+                dailyAttendanceRollupService.recordTransition(state.entrepriseId(), state.managerId(), date,
+                        state.presenceId() == null ? null : currentStatus, status);
+            }
+            return presenceId;
+        });
+    }
 
-        presence.setCheckinTime(now);
-        presenceRepository.save(presence);
-        log.info("Check-in recorded for employee {} with status {}", employeeId, presence.getStatus());
+    // An overnight shift started the day before keeps the events while it runs (check-in) or is open (checkout),
+    // until the check-in window of the current day's shift opens
+    private static boolean belongsToPreviousShift(DayState previous, DayState current, Instant eventTime) {
+        if (previous == null || !previous.hasSchedule() || previous.dayOff() || previous.presenceCheckout() != null
+                || !PresenceRuleEngine.isOvernight(previous.scheduleCheckin(), previous.scheduleCheckout())) {
+            return false;
+        }
+        LocalDate previousDate = LocalDate.ofInstant(eventTime, previous.zone()).minusDays(1);
+        boolean checkedIn = previous.status() == PresenceStatus.PRESENT || previous.status() == PresenceStatus.LATE;
+        if (!checkedIn && PresenceRuleEngine.secondsIntoDate(eventTime, previous.zone(), previousDate)
+                >= PresenceRuleEngine.checkoutSecond(previous.scheduleCheckin(), previous.scheduleCheckout())) {
+            return false;
+        }
+        if (current == null || !current.hasSchedule() || current.dayOff()) {
+            return true;
+        }
+        LocalDate date = previousDate.plusDays(1);
+        return PresenceRuleEngine.secondsIntoDate(eventTime, current.zone(), date)
+                < PresenceRuleEngine.checkinOpensAt(PresenceRuleEngine.checkinSecond(current.scheduleCheckin()));
     }
 
 
     // Update manually presence
+    @Transactional
     public EmployeePresenceDTO updatePresenceStatus(LocalDate date, int employeeId, UpdatePresenceStatusDTO request) {
         Manager manager = getAuthenticatedManager();
         Employee employee = validateEmployeeBelongsToManager(employeeId, manager);
@@ -145,88 +226,136 @@ public class PresenceManagementService {
             throw new IllegalArgumentException("Presence record not found for employee.");
         }
 
+        PresenceStatus previousStatus = presence.getStatus();
         presence.setStatus(request.getPresenceStatus());
-        return EmployeePresenceDTO.mapToDTO(presenceRepository.save(presence));
+        EmployeePresenceDTO dto = EmployeePresenceDTO.mapToDTO(presenceRepository.save(presence));
+        dailyAttendanceRollupService.recordTransition(manager.getEntreprise().getId(),
+                employee.getManager() == null ? null : employee.getManager().getId(), date, previousStatus, presence.getStatus());
+        todayAttendanceCache.evictEmployees(List.of(employeeId));
+        eventPublisher.publishEvent(new TenantDataChangedEvent(manager.getEntreprise().getId()));
+        return dto;
     }
 
     // Get number of presence till now
     public Integer getNumberOfPresenceTillNow() {
         Manager manager = getAuthenticatedManager();
-        LocalDate today = LocalDate.now();
-        List<PresenceStatus> statuses = List.of(PresenceStatus.PRESENT, PresenceStatus.LATE);
-        List<Employee> employees = manager.getEmployees();
-        return presenceRepository.countByEmployeeInAndDateAndStatusIn(employees, today, statuses);
+        LocalDate today = LocalDate.now(TimeZones.zoneOf(manager.getEntreprise().getTimeZone()));
+        return dailyAttendanceRollupService.getCheckedInCount(manager.getEntreprise().getId(), today);
+    }
+
+    // Recompute the manager's rollup rows of a date range from the raw presences, a year at most per call
+    public int rebuildRollup(LocalDate from, LocalDate to) {
+        DateRanges.validate(from, to);
+        Manager manager = getAuthenticatedManager();
+        return dailyAttendanceRollupService.rebuild(manager.getEntreprise().getId(), from, to);
     }
 
     // Get Week stats (Dashboard)
     public List<DayPresenceStatsDTO> getWeekPresenceStats() {
         Manager manager = getAuthenticatedManager();
-        List<Employee> employees = manager.getEmployees();
-        List<DayPresenceStatsDTO> result = new ArrayList<>();
-
-        for(int i = 6; i >= 1; i--) {
-            LocalDate date = LocalDate.now().minusDays(i);
-            String day = date.getDayOfWeek().name();
-
-            int present = presenceRepository.countByEmployeeInAndDateAndStatusIn(employees, date, List.of(PresenceStatus.PRESENT));
-            int late = presenceRepository.countByEmployeeInAndDateAndStatusIn(employees, date, List.of(PresenceStatus.LATE));
-            int absent = presenceRepository.countByEmployeeInAndDateAndStatusIn(employees, date, List.of(PresenceStatus.ABSENT));
-            int free = presenceRepository.countByEmployeeInAndDateAndStatusIn(employees, date, List.of(PresenceStatus.FREE));
+        LocalDate today = LocalDate.now(TimeZones.zoneOf(manager.getEntreprise().getTimeZone()));
+        return dailyAttendanceRollupService.getClosedDaysStats(manager.getEntreprise().getId(), today, 6);
+    }
 
-            result.add(new DayPresenceStatsDTO(day, present, absent, late, free));
+    // Get stats over a longer window of closed days
+    public List<DayPresenceStatsDTO> getPresenceStats(int days) {
+        if (!STATS_WINDOWS.contains(days)) {
+            throw new IllegalArgumentException("Stats window must be 7, 30 or 90 days.");
         }
-        return result;
+        Manager manager = getAuthenticatedManager();
+        LocalDate today = LocalDate.now(TimeZones.zoneOf(manager.getEntreprise().getTimeZone()));
+        return dailyAttendanceRollupService.getClosedDaysStats(manager.getEntreprise().getId(), today, days);
     }
 
-    // Mark absent employees
-    @Scheduled(cron = "0 */10 * * * *")
+    // Mark absent employees. Deadlines are applied on time by the AbsenceDeadlineScheduler,
+    // this hourly sweep only catches what it missed (restart, failed write).
+    // Each replica sweeps the entreprises of its own cluster shard.
+    @Scheduled(cron = "0 30 * * * *")
     public void markAbsentEmployeesAfterThreshold() {
+        ClusterMembership.Shard shard = clusterMembership.currentShard();
+        if (shard == null) {
+            log.info("Absence sweep skipped, node {} owns no shard", clusterMembership.getNodeId());
+            return;
+        }
+        long start = System.nanoTime();
+        Instant now = Instant.now();
         LocalDate today = LocalDate.now();
-        LocalTime now = LocalTime.now();
-
-        List<Employee> employees = employeeRepository.findAll();
-
-        for (Employee employee : employees) {
-            Schedule schedule = scheduleRepository.findByEmployeeIdAndDate(employee.getId(), today).orElse(null);
-            if (schedule == null || Boolean.TRUE.equals(schedule.getIsDayOff())) continue;
-
-            // Get manager's threshold (in minutes)
-            ManagerSettings settings = managerSettingsRepository.findByManager(employee.getManager())
-                    .orElse(null);
-            if (settings == null) continue;
-
-            LocalTime checkinTime = schedule.getCheckinTime();
-            int thresholdMinutes = settings.getAbsenceThresholdMinutes();
-
-            if (now.isBefore(checkinTime.plusMinutes(thresholdMinutes))) continue;
-
-            Presence presence = presenceRepository.findByEmployeeIdAndDate(employee.getId(), today);
-            if (presence == null) {
-                presence = new Presence();
-                presence.setEmployee(employee);
-                presence.setDate(today);
-                presence.setStatus(PresenceStatus.ABSENT);
-                presenceRepository.save(presence);
-            } else if (presence.getStatus() == PresenceStatus.NOT_OPENED) {
-                presence.setStatus(PresenceStatus.ABSENT);
-                presenceRepository.save(presence);
+
+        // Yesterday to tomorrow on the server clock covers the current day of every tenant zone
+        List<PresenceJdbcRepository.AbsenceCandidate> candidates = presenceJdbcRepository.findAbsenceCandidatesOfShard(
+                List.of(today.minusDays(1), today, today.plusDays(1)), shard.count(), shard.index());
+
+        List<PresenceJdbcRepository.AbsenceCandidate> due = new ArrayList<>();
+        for (PresenceJdbcRepository.AbsenceCandidate candidate : candidates) {
+            long eventSecond = PresenceRuleEngine.secondsIntoDate(now, candidate.zone(), candidate.date());
+            if (PresenceRuleEngine.isAbsent(PresenceRuleEngine.checkinSecond(candidate.checkinTime()),
+                    candidate.absenceThresholdMinutes(), eventSecond)) {
+                due.add(candidate);
             }
         }
+
+        // Each write moves its presence in the day's counters, like a deadline firing
+        int marked = due.isEmpty() ? 0 : absenceDeadlineScheduler.markAbsent(due, now);
+
+        log.info("Absence sweep around {} (shard {} of {}): {} candidates, {} marked absent in {} ms",
+                today, shard.index(), shard.count(), candidates.size(), marked, (System.nanoTime() - start) / 1_000_000);
     }
 
-    // Create presence objects at the beginning of the day
-    @Scheduled(cron = "0 0 6 * * *")
+    // Create presence objects at the beginning of each tenant's day.
+    // Runs every hour so every zone is covered shortly after its midnight, rows that already exist are skipped.
+    // Rows are only inserted for the entreprises of this replica's shard.
+    @Scheduled(cron = "0 0 * * * *")
     public void createPresenceObjects() {
-        LocalDate today = LocalDate.now();
-        for (Employee employee : employeeRepository.findAll()) {
-            if (presenceRepository.existsByEmployeeAndDate(employee, today)) continue;
-
-            Schedule schedule = scheduleRepository.findByEmployeeIdAndDate(employee.getId(), today).orElse(null);
-            Presence presence = new Presence();
-            presence.setEmployee(employee);
-            presence.setDate(today);
-            presence.setStatus((schedule == null || Boolean.TRUE.equals(schedule.getIsDayOff())) ? PresenceStatus.FREE : PresenceStatus.NOT_OPENED);
-            presenceRepository.save(presence);
+        long start = System.nanoTime();
+        Instant now = Instant.now();
+
+        // One INSERT ... SELECT per owned tenant, on the tenant's own date
+        int inserted = 0;
+        TreeSet<LocalDate> dates = new TreeSet<>();
+        for (EntrepriseRepository.TenantZone tenant : entrepriseRepository.findAllTimeZones()) {
+            LocalDate date = LocalDate.ofInstant(now, TimeZones.zoneOf(tenant.getTimeZone()));
+            dates.add(date);
+            if (!clusterMembership.owns(tenant.getId())) continue;
+
+            // A failing tenant is retried on the next run and does not hold up the others
+            try {
+                // Recurring schedules are only stored for the tenant's today and tomorrow
+                effectiveScheduleResolver.materialize(tenant.getId(), List.of(date, date.plusDays(1)));
+                int rows = insertDailyPresences(tenant.getId(), date);
+                if (rows > 0) {
+                    inserted += rows;
+                    eventPublisher.publishEvent(new TenantDataChangedEvent(tenant.getId()));
+                }
+            } catch (RuntimeException e) {
+                log.warn("Presence materialization of entreprise {} for {} failed: {}", tenant.getId(), date, e.getMessage());
+            }
         }
+
+        log.info("Presence materialization for {}: {} rows inserted in {} ms",
+                dates, inserted, (System.nanoTime() - start) / 1_000_000);
+
+        // Every replica reloads the current days, rows of the other shards were inserted by other nodes
+        dates.forEach(todayAttendanceCache::warm);
+        // The deadline window follows the day
+        absenceDeadlineScheduler.rebuild();
+    }
+
+    // Insert the tenant's missing rows of the day and count them in the day's counters, in one transaction. The rows
+    // this statement inserted are the difference between the FREE/NOT_OPENED counts after and before it: both reads
+    // come from the transaction's snapshot plus its own writes, so rows other transactions insert or flip meanwhile
+    // (check-ins, absences) are in neither count and keep the delta they committed themselves.
+    private int insertDailyPresences(int entrepriseId, LocalDate date) {
+        Integer inserted = transactionTemplate.execute(tx -> {
+            Map<PresenceJdbcRepository.ManagerStatus, Integer> before = presenceJdbcRepository.countMaterializedStatuses(entrepriseId, date);
+            int rows = presenceJdbcRepository.insertDailyPresences(entrepriseId, date);
+            if (rows == 0) {
+                return 0;
+            }
+            presenceJdbcRepository.countMaterializedStatuses(entrepriseId, date).forEach((group, count) ->
+                    dailyAttendanceRollupService.recordAdded(entrepriseId, group.managerId(), date, group.status(),
+                            count - before.getOrDefault(group, 0)));
+            return rows;
+        });
+        return inserted == null ? 0 : inserted;
     }
 }
@@ -0,0 +1,120 @@
+package com.magiclogon.attendancebackend.service;
+
+import com.magiclogon.attendancebackend.model.PresenceStatus;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+
+// Pure presence rules: no clock, no repositories, no allocation on the decision path.
+// Times are seconds since midnight of the shift date, on the entreprise's wall clock. A shift whose checkout is
+// not after its check-in ends the next day, so its checkout second is above one day.
+public final class PresenceRuleEngine {
+
+    public static final int EARLY_CHECKIN_MINUTES = 20;
+    private static final int SECONDS_PER_DAY = 86_400;
+
+    public enum Decision {
+        CHECK_IN_PRESENT, CHECK_IN_LATE, CHECK_OUT,
+        TOO_EARLY_TO_CHECK_IN, TOO_LATE_TO_CHECK_IN, TOO_EARLY_TO_CHECK_OUT,
+        ALREADY_CHECKED_IN, ALREADY_CHECKED_OUT;
+
+        public boolean isAccepted() {
+            return this == CHECK_IN_PRESENT || this == CHECK_IN_LATE || this == CHECK_OUT;
+        }
+    }
+
+    private PresenceRuleEngine() {
+    }
+
+    // Check-in, checkout or the reason the event is refused
+    public static Decision evaluate(int checkinSecond, int checkoutSecond, int lateThresholdMinutes,
+                                    PresenceStatus status, boolean checkedIn, boolean checkedOut, long eventSecond) {
+        // Already checked in (PRESENT or LATE): the only move left is the checkout
+        if (status == PresenceStatus.PRESENT || status == PresenceStatus.LATE) {
+            if (eventSecond <= checkoutSecond) {
+                return Decision.TOO_EARLY_TO_CHECK_OUT;
+            }
+            return checkedOut ? Decision.ALREADY_CHECKED_OUT : Decision.CHECK_OUT;
+        }
+        if (checkedIn) {
+            return Decision.ALREADY_CHECKED_IN;
+        }
+        if (eventSecond < checkinSecond - EARLY_CHECKIN_MINUTES * 60L) {
+            return Decision.TOO_EARLY_TO_CHECK_IN;
+        }
+        if (eventSecond < checkinSecond + lateThresholdMinutes * 60L) {
+            return Decision.CHECK_IN_PRESENT;
+        }
+        if (eventSecond < checkoutSecond) {
+            return Decision.CHECK_IN_LATE;
+        }
+        return Decision.TOO_LATE_TO_CHECK_IN;
+    }
+
+    // An employee without check-in becomes absent once the absence threshold after the shift start has passed
+    public static boolean isAbsent(int checkinSecond, int absenceThresholdMinutes, long eventSecond) {
+        return eventSecond >= checkinSecond + absenceThresholdMinutes * 60L;
+    }
+
+    // Earliest second a check-in of the shift is accepted
+    public static long checkinOpensAt(int checkinSecond) {
+        return checkinSecond - EARLY_CHECKIN_MINUTES * 60L;
+    }
+
+    public static int checkinSecond(LocalTime checkin) {
+        return checkin.toSecondOfDay();
+    }
+
+    // Overnight shifts (checkout not after check-in) end on the next day
+    public static int checkoutSecond(LocalTime checkin, LocalTime checkout) {
+        int second = checkout.toSecondOfDay();
+        return second <= checkin.toSecondOfDay() ? second + SECONDS_PER_DAY : second;
+    }
+
+    public static boolean isOvernight(LocalTime checkin, LocalTime checkout) {
+        return !checkout.isAfter(checkin);
+    }
+
+    // Minutes the check-in came after the shift start, 0 when on time or early
+    public static int lateMinutes(LocalTime scheduleCheckin, LocalTime checkin) {
+        long late = shiftSecond(scheduleCheckin.toSecondOfDay(), checkin) - scheduleCheckin.toSecondOfDay();
+        return (int) Math.max(0, late / 60);
+    }
+
+    // Minutes between check-in and checkout, less the part of the break they cover. Without a schedule the
+    // check-in anchors the day; a checkout not after the check-in is on the next day.
+    public static int workedMinutes(LocalTime scheduleCheckin, LocalTime checkin, LocalTime checkout,
+                                    LocalTime breakStart, LocalTime breakEnd) {
+        int anchor = scheduleCheckin == null ? checkin.toSecondOfDay() : scheduleCheckin.toSecondOfDay();
+        long start = shiftSecond(anchor, checkin);
+        long end = checkout.toSecondOfDay() + (start / SECONDS_PER_DAY) * (long) SECONDS_PER_DAY;
+        if (end <= start) {
+            end += SECONDS_PER_DAY;
+        }
+        long worked = end - start;
+        if (breakStart != null && breakEnd != null) {
+            long pauseStart = shiftSecond(anchor, breakStart);
+            long pauseEnd = breakEnd.toSecondOfDay() + (pauseStart / SECONDS_PER_DAY) * (long) SECONDS_PER_DAY;
+            if (pauseEnd < pauseStart) {
+                pauseEnd += SECONDS_PER_DAY;
+            }
+            worked -= Math.max(0, Math.min(end, pauseEnd) - Math.max(start, pauseStart));
+        }
+        return (int) (worked / 60);
+    }
+
+    // Second of a wall-clock time on the timeline of a shift starting at the anchor: times before the
+    // check-in window opens are after midnight, on the next day
+    private static long shiftSecond(int anchorSecond, LocalTime time) {
+        int second = time.toSecondOfDay();
+        return second < checkinOpensAt(anchorSecond) ? second + (long) SECONDS_PER_DAY : second;
+    }
+
+    // Wall-clock seconds of the instant in the zone, counted from midnight of the shift date
+    public static long secondsIntoDate(Instant instant, ZoneId zone, LocalDate date) {
+        long localSeconds = instant.getEpochSecond() + zone.getRules().getOffset(instant).getTotalSeconds();
+        return localSeconds - date.toEpochDay() * SECONDS_PER_DAY;
+    }
+}
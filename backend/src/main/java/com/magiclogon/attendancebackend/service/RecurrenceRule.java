@@ -0,0 +1,155 @@
+package com.magiclogon.attendancebackend.service;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+import java.util.EnumSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+// Subset of the iCalendar RRULE: FREQ=DAILY|WEEKLY, INTERVAL=n, BYDAY=MO,TU,... (weekly only), UNTIL=yyyymmdd.
+// Occurrences are computed on demand from the start date, nothing is expanded ahead of time.
+public final class RecurrenceRule {
+
+    public enum Frequency { DAILY, WEEKLY }
+
+    private static final DateTimeFormatter BASIC_DATE = DateTimeFormatter.BASIC_ISO_DATE;
+
+    private final Frequency frequency;
+    private final int interval;
+    private final Set<DayOfWeek> byDays;
+    private final LocalDate until;
+
+    private RecurrenceRule(Frequency frequency, int interval, Set<DayOfWeek> byDays, LocalDate until) {
+        this.frequency = frequency;
+        this.interval = interval;
+        this.byDays = byDays;
+        this.until = until;
+    }
+
+    // Parse "FREQ=WEEKLY;INTERVAL=2;BYDAY=MO,WE;UNTIL=20261231", an optional "RRULE:" prefix is accepted
+    public static RecurrenceRule parse(String rule) {
+        if (rule == null || rule.isBlank()) {
+            throw new IllegalArgumentException("Recurrence rule is required.");
+        }
+        String body = rule.trim().toUpperCase(Locale.ROOT);
+        if (body.startsWith("RRULE:")) {
+            body = body.substring("RRULE:".length());
+        }
+
+        Frequency frequency = null;
+        int interval = 1;
+        Set<DayOfWeek> byDays = EnumSet.noneOf(DayOfWeek.class);
+        LocalDate until = null;
+        for (String part : body.split(";")) {
+            if (part.isEmpty()) continue;
+            int separator = part.indexOf('=');
+            if (separator <= 0) {
+                throw new IllegalArgumentException("Invalid recurrence rule part: " + part);
+            }
+            String value = part.substring(separator + 1);
+            switch (part.substring(0, separator)) {
+                case "FREQ" -> frequency = parseFrequency(value);
+                case "INTERVAL" -> interval = parseInterval(value);
+                case "BYDAY" -> {
+                    for (String day : value.split(",")) {
+                        byDays.add(parseDay(day));
+                    }
+                }
+                case "UNTIL" -> until = parseUntil(value);
+                default -> throw new IllegalArgumentException("Unsupported recurrence rule part: " + part);
+            }
+        }
+        if (frequency == null) {
+            throw new IllegalArgumentException("Recurrence rule must define FREQ.");
+        }
+        if (frequency == Frequency.DAILY && !byDays.isEmpty()) {
+            throw new IllegalArgumentException("BYDAY is only supported with FREQ=WEEKLY.");
+        }
+        return new RecurrenceRule(frequency, interval, byDays, until);
+    }
+
+    // Whether a series starting at the start date has an occurrence on the date
+    public boolean occursOn(LocalDate start, LocalDate date) {
+        if (date.isBefore(start) || (until != null && date.isAfter(until))) {
+            return false;
+        }
+        if (frequency == Frequency.DAILY) {
+            return ChronoUnit.DAYS.between(start, date) % interval == 0;
+        }
+        // Weekly: count whole weeks between the Mondays of both dates, BYDAY defaults to the start's weekday
+        Set<DayOfWeek> days = byDays.isEmpty() ? EnumSet.of(start.getDayOfWeek()) : byDays;
+        if (!days.contains(date.getDayOfWeek())) {
+            return false;
+        }
+        long weeks = ChronoUnit.WEEKS.between(
+                start.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY)),
+                date.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY)));
+        return weeks % interval == 0;
+    }
+
+    public LocalDate getUntil() {
+        return until;
+    }
+
+    // Canonical form, what gets stored
+    @Override
+    public String toString() {
+        StringBuilder rule = new StringBuilder("FREQ=").append(frequency);
+        if (interval != 1) {
+            rule.append(";INTERVAL=").append(interval);
+        }
+        if (!byDays.isEmpty()) {
+            rule.append(";BYDAY=").append(byDays.stream()
+                    .map(day -> day.name().substring(0, 2))
+                    .collect(Collectors.joining(",")));
+        }
+        if (until != null) {
+            rule.append(";UNTIL=").append(until.format(BASIC_DATE));
+        }
+        return rule.toString();
+    }
+
+    private static Frequency parseFrequency(String value) {
+        try {
+            return Frequency.valueOf(value);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unsupported recurrence frequency: " + value);
+        }
+    }
+
+    private static int parseInterval(String value) {
+        try {
+            int interval = Integer.parseInt(value);
+            if (interval < 1 || interval > 52) {
+                throw new IllegalArgumentException("Recurrence interval must be between 1 and 52.");
+            }
+            return interval;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid recurrence interval: " + value);
+        }
+    }
+
+    private static DayOfWeek parseDay(String value) {
+        for (DayOfWeek day : DayOfWeek.values()) {
+            if (day.name().startsWith(value) && value.length() == 2) {
+                return day;
+            }
+        }
+        throw new IllegalArgumentException("Invalid recurrence day: " + value);
+    }
+
+    private static LocalDate parseUntil(String value) {
+        // UNTIL=20261231, UNTIL=20261231T235959Z or UNTIL=2026-12-31
+        String date = value.length() >= 8 && value.charAt(4) != '-' ? value.substring(0, 8) : value;
+        try {
+            return date.length() == 8 ? LocalDate.parse(date, BASIC_DATE) : LocalDate.parse(date);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid recurrence end date: " + value);
+        }
+    }
+}
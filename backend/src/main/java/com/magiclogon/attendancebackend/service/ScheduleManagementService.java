@@ -1,39 +1,57 @@
 package com.magiclogon.attendancebackend.service;
 
 import com.magiclogon.attendancebackend.dto.CreateScheduleDTO;
+import com.magiclogon.attendancebackend.dto.CreateScheduleTemplateDTO;
 import com.magiclogon.attendancebackend.dto.ScheduleOfEmployeeResponseDTO;
+import com.magiclogon.attendancebackend.dto.ScheduleTemplateResponseDTO;
+import com.magiclogon.attendancebackend.event.TenantDataChangedEvent;
 import com.magiclogon.attendancebackend.model.Employee;
 import com.magiclogon.attendancebackend.model.Manager;
-import com.magiclogon.attendancebackend.model.RecurringType;
 import com.magiclogon.attendancebackend.model.Schedule;
+import com.magiclogon.attendancebackend.model.ScheduleTemplate;
 import com.magiclogon.attendancebackend.repository.EmployeeRepository;
-import com.magiclogon.attendancebackend.repository.ManagerRepository;
+import com.magiclogon.attendancebackend.repository.ScheduleJdbcRepository;
 import com.magiclogon.attendancebackend.repository.ScheduleRepository;
+import com.magiclogon.attendancebackend.repository.ScheduleTemplateRepository;
+import com.magiclogon.attendancebackend.security.TenantContext;
+import com.magiclogon.attendancebackend.utils.TimeZones;
 import lombok.RequiredArgsConstructor;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
-import java.util.Objects;
-import java.util.Optional;
-import java.util.stream.Collectors;
+import java.util.Set;
+import java.util.stream.IntStream;
 
 @Service
 @RequiredArgsConstructor
 public class ScheduleManagementService {
 
     private final ScheduleRepository scheduleRepository;
-    private final ManagerRepository managerRepository;
+    private final ScheduleJdbcRepository scheduleJdbcRepository;
+    private final ScheduleTemplateRepository scheduleTemplateRepository;
+    private final EffectiveScheduleResolver effectiveScheduleResolver;
+    private final TenantContext tenantContext;
     private final EmployeeRepository employeeRepository;
+    private final TodayAttendanceCache todayAttendanceCache;
+    private final KioskService kioskService;
+    private final AbsenceDeadlineScheduler absenceDeadlineScheduler;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TenantChangeBroadcast tenantChangeBroadcast;
 
     // Authentication
     private Manager getAuthenticatedManager() {
-        String username = SecurityContextHolder.getContext().getAuthentication().getName();
-        return managerRepository.findByUsername(username)
-                .orElseThrow(() -> new IllegalArgumentException("Manager not found."));
+        return tenantContext.getManager();
     }
 
     // VAlidate that employee is bien du Manager
@@ -45,57 +63,123 @@ public class ScheduleManagementService {
         return employee;
     }
 
-    // Add the schedule to multiple Employees
+    // Add the schedule to multiple Employees.
+    // Ids are validated in one query, then every (employee, date) pair is replaced in bulk within one transaction.
     public ArrayList<Integer> addScheduleToMultipleEmployees(List<Integer> employees_ids, CreateScheduleDTO request) {
         Manager manager = getAuthenticatedManager();
+
         ArrayList<Integer> unsuccessful_ids = new ArrayList<>();
+        Set<Integer> valid = validEmployeeIds(manager, employees_ids, unsuccessful_ids);
 
-        for(Integer employee_id : employees_ids) {
-            Optional<Employee> employee = employeeRepository.findById(employee_id);
-            if(!employee.isPresent()) {
-                unsuccessful_ids.add(employee_id);
-                continue;
-            }
+        scheduleJdbcRepository.replaceSchedules(List.copyOf(valid), scheduleDates(request), request);
 
-            if (!employee.get().getEntreprise().equals(manager.getEntreprise())) {
-                unsuccessful_ids.add(employee_id);
-                continue;
-            }
+        schedulesChanged(manager, employees_ids);
+        return unsuccessful_ids;
+    }
 
-            // See if there's a schedule like that one.
-            if(request.getRecurringType() == RecurringType.NONE) {
-                scheduleRepository.findByEmployeeIdAndDate(employee_id, request.getDate()).ifPresent(scheduleRepository::delete);
+    // Add a recurring schedule to multiple employees. Only its occurrences of today and tomorrow are written,
+    // the other days are resolved from the template when they are read.
+    public ArrayList<Integer> addScheduleTemplate(CreateScheduleTemplateDTO request) {
+        Manager manager = getAuthenticatedManager();
+        if (request.getCheckinTime() == null || request.getCheckoutTime() == null || request.getStartDate() == null) {
+            throw new IllegalArgumentException("Check-in time, checkout time and start date are required.");
+        }
+        RecurrenceRule rule = RecurrenceRule.parse(request.getRecurrenceRule());
+        if (rule.getUntil() != null && rule.getUntil().isBefore(request.getStartDate())) {
+            throw new IllegalArgumentException("Recurrence end date is before the start date.");
+        }
 
-                Schedule schedule = new Schedule(employee.get(), request.getScheduleName(), request.getDate(), request.getCheckinTime(), request.getCheckoutTime(),
-                        request.getBreakStartTime(), request.getBreakEndTime(), request.getIsDayOff());
+        List<Integer> employees_ids = request.getEmployees_ids() == null ? List.of() : request.getEmployees_ids();
+        ArrayList<Integer> unsuccessful_ids = new ArrayList<>();
+        Set<Integer> valid = validEmployeeIds(manager, employees_ids, unsuccessful_ids);
 
-                scheduleRepository.save(schedule);
+        List<ScheduleTemplate> templates = new ArrayList<>();
+        for (Integer employee_id : valid) {
+            ScheduleTemplate template = new ScheduleTemplate();
+            template.setEmployee(employeeRepository.getReferenceById(employee_id));
+            template.setScheduleName(request.getScheduleName());
+            template.setCheckinTime(request.getCheckinTime());
+            template.setCheckoutTime(request.getCheckoutTime());
+            template.setBreakStartTime(request.getBreakStartTime());
+            template.setBreakEndTime(request.getBreakEndTime());
+            template.setIsDayOff(Boolean.TRUE.equals(request.getIsDayOff()));
+            template.setStartDate(request.getStartDate());
+            template.setRecurrenceRule(rule.toString());
+            if (request.getExceptions() != null) {
+                template.setExceptions(new HashSet<>(request.getExceptions()));
             }
+            templates.add(template);
+        }
+        scheduleTemplateRepository.saveAll(templates);
 
-            else if(request.getRecurringType() == RecurringType.DAILY) {
-                for(int i = 0; i < 7; i++) {
-                    scheduleRepository.findByEmployeeIdAndDate(employee_id, request.getDate().plusDays(i)).ifPresent(scheduleRepository::delete);
-
-                    Schedule schedule = new Schedule(employee.get(), request.getScheduleName(), request.getDate().plusDays(i), request.getCheckinTime(), request.getCheckoutTime(),
-                            request.getBreakStartTime(), request.getBreakEndTime(), request.getIsDayOff());
+        rematerialize(manager, valid);
+        schedulesChanged(manager, employees_ids);
+        return unsuccessful_ids;
+    }
 
-                    scheduleRepository.save(schedule);
-                }
-            }
+    // Get the recurring schedules of an employee, newest first
+    public List<ScheduleTemplateResponseDTO> getScheduleTemplatesOfEmployee(Integer employee_id) {
+        Manager manager = getAuthenticatedManager();
+        validateEmployeeBelongsToManager(employee_id, manager);
+        return scheduleTemplateRepository.findByEmployeeIdOrderByIdDesc(employee_id).stream()
+                .map(ScheduleTemplateResponseDTO::mapToDTO)
+                .toList();
+    }
 
-            else if(request.getRecurringType() == RecurringType.WEEKLY) {
-                for(int i = 0; i < 4; i++) {
-                    scheduleRepository.findByEmployeeIdAndDate(employee_id, request.getDate().plusWeeks(i)).ifPresent(scheduleRepository::delete);
+    // Remove a recurring schedule, its future occurrences go with it (days already passed are kept)
+    public void deleteScheduleTemplate(Integer template_id) {
+        Manager manager = getAuthenticatedManager();
+        ScheduleTemplate template = scheduleTemplateRepository.findById(template_id)
+                .orElseThrow(() -> new IllegalArgumentException("Schedule template not found."));
+        if (!template.getEmployee().getEntreprise().equals(manager.getEntreprise())) {
+            throw new IllegalArgumentException("Employee does not belong to this manager.");
+        }
+        scheduleTemplateRepository.delete(template);
 
-                    Schedule schedule = new Schedule(employee.get(), request.getScheduleName(), request.getDate().plusWeeks(i), request.getCheckinTime(), request.getCheckoutTime(),
-                            request.getBreakStartTime(), request.getBreakEndTime(), request.getIsDayOff());
+        List<Integer> employees_ids = List.of(template.getEmployee().getId());
+        rematerialize(manager, employees_ids);
+        schedulesChanged(manager, employees_ids);
+    }
 
-                    scheduleRepository.save(schedule);
-                }
+    // Unknown ids and employees of another entreprise are reported back, in the order they were sent
+    private Set<Integer> validEmployeeIds(Manager manager, List<Integer> employees_ids, List<Integer> unsuccessful_ids) {
+        Set<Integer> valid = new HashSet<>(employees_ids.isEmpty() ? List.of()
+                : employeeRepository.findIdsByEntrepriseIdAndIdIn(manager.getEntreprise().getId(), new HashSet<>(employees_ids)));
+        for (Integer employee_id : employees_ids) {
+            if (!valid.contains(employee_id)) {
+                unsuccessful_ids.add(employee_id);
             }
         }
+        return valid;
+    }
 
-        return unsuccessful_ids;
+    // Redo the stored occurrences of the entreprise's today and tomorrow after templates changed
+    private void rematerialize(Manager manager, Collection<Integer> employees_ids) {
+        if (employees_ids.isEmpty()) {
+            return;
+        }
+        LocalDate today = LocalDate.now(TimeZones.zoneOf(manager.getEntreprise().getTimeZone()));
+        effectiveScheduleResolver.rematerialize(manager.getEntreprise().getId(), employees_ids, List.of(today, today.plusDays(1)));
+    }
+
+    private void schedulesChanged(Manager manager, List<Integer> employees_ids) {
+        todayAttendanceCache.evictEmployees(employees_ids);
+        kioskService.evictRoster(manager.getEntreprise().getId());
+        absenceDeadlineScheduler.rescheduleEmployees(employees_ids);
+        tenantChangeBroadcast.changed(manager.getEntreprise().getId());
+        eventPublisher.publishEvent(new TenantDataChangedEvent(manager.getEntreprise().getId()));
+    }
+
+    // Dates covered by the recurrence: the day itself, the next 7 days or the same weekday of the next 4 weeks
+    private static List<LocalDate> scheduleDates(CreateScheduleDTO request) {
+        if (request.getRecurringType() == null) {
+            return List.of();
+        }
+        return switch (request.getRecurringType()) {
+            case NONE -> List.of(request.getDate());
+            case DAILY -> IntStream.range(0, 7).mapToObj(i -> request.getDate().plusDays(i)).toList();
+            case WEEKLY -> IntStream.range(0, 4).mapToObj(i -> request.getDate().plusWeeks(i)).toList();
+        };
     }
 
     // Get schedules of an employee
@@ -103,32 +187,81 @@ public class ScheduleManagementService {
         Manager manager = getAuthenticatedManager();
         Employee employee = validateEmployeeBelongsToManager(employee_id, manager);
 
-        return scheduleRepository.findByEmployeeIdAndDate(employee_id, date)
+        return effectiveScheduleResolver.resolve(employee_id, date)
                 .map(ScheduleOfEmployeeResponseDTO::mapToDTO)
                 .orElse(null);
                 
     }
     
-    // Get all employees schedules
-    public List<ScheduleOfEmployeeResponseDTO> getSchedulesOfAllEmployees(LocalDate date) {
+    // Get all employees schedules: the stored rows in one query, plus the template occurrences of days that
+    // are not materialized. Sorted by name, status (working days first) or checkinTime, then paged.
+    public Page<ScheduleOfEmployeeResponseDTO> getSchedulesOfAllEmployees(LocalDate date, Pageable pageable) {
         Manager manager = getAuthenticatedManager();
-        List<Employee> employees = manager.getEmployees();
+        int entrepriseId = manager.getEntreprise().getId();
+        Comparator<ScheduleOfEmployeeResponseDTO> order = scheduleOrder(pageable.getSort());
 
-        return employees.stream()
-                .flatMap(employee -> scheduleRepository.findByEmployeeIdAndDate(employee.getId(), date).stream())
+        // Today and tomorrow are materialized, other days may have template occurrences not stored yet
+        LocalDate today = LocalDate.now(TimeZones.zoneOf(manager.getEntreprise().getTimeZone()));
+        List<ScheduleOfEmployeeResponseDTO> pending = date.equals(today) || date.equals(today.plusDays(1))
+                ? List.of() : pendingOccurrences(entrepriseId, date);
+        if (pending.isEmpty()) {
+            return scheduleJdbcRepository.findSchedulesOfEntreprise(entrepriseId, date, pageable);
+        }
+
+        // Only the stored rows up to the end of the page can land on it once merged with the occurrences
+        Pageable head = pageable.isPaged()
+                ? PageRequest.of(0, (int) (pageable.getOffset() + pageable.getPageSize()), pageable.getSort())
+                : pageable;
+        Page<ScheduleOfEmployeeResponseDTO> stored = scheduleJdbcRepository.findSchedulesOfEntreprise(entrepriseId, date, head);
+        List<ScheduleOfEmployeeResponseDTO> merged = new ArrayList<>(stored.getContent());
+        merged.addAll(pending);
+        merged.sort(order);
+        long total = stored.getTotalElements() + pending.size();
+        if (pageable.isUnpaged()) {
+            return new PageImpl<>(merged, pageable, total);
+        }
+        int from = (int) Math.min(pageable.getOffset(), merged.size());
+        int to = Math.min(from + pageable.getPageSize(), merged.size());
+        return new PageImpl<>(merged.subList(from, to), pageable, total);
+    }
+
+    // Template occurrences of the day for the employees without a stored schedule, which would win over them
+    private List<ScheduleOfEmployeeResponseDTO> pendingOccurrences(int entrepriseId, LocalDate date) {
+        List<Schedule> occurrences = effectiveScheduleResolver.occurrences(entrepriseId, date);
+        if (occurrences.isEmpty()) {
+            return List.of();
+        }
+        Set<Integer> scheduled = scheduleJdbcRepository.findScheduledEmployeeIds(
+                occurrences.stream().map(schedule -> schedule.getEmployee().getId()).toList(), date);
+        return occurrences.stream()
+                .filter(schedule -> !scheduled.contains(schedule.getEmployee().getId()))
                 .map(ScheduleOfEmployeeResponseDTO::mapToDTO)
-                .filter(Objects::nonNull)
-                .collect(Collectors.toList());
+                .toList();
     }
 
-    public Integer getTodaySchedulesNumber() {
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        String managerUsername = authentication.getName();
-        Manager manager = managerRepository.findByUsername(managerUsername).orElseThrow(() -> new IllegalArgumentException("Manager not found."));
+    // Same order as the ORDER BY of the stored rows (MySQL sorts NULLs first ascending), so both merge
+    private static Comparator<ScheduleOfEmployeeResponseDTO> scheduleOrder(Sort sort) {
+        Comparator<ScheduleOfEmployeeResponseDTO> order = null;
+        for (Sort.Order property : sort) {
+            Comparator<ScheduleOfEmployeeResponseDTO> next = switch (property.getProperty()) {
+                case "name" -> Comparator.comparing(ScheduleOfEmployeeResponseDTO::getEmployeeLastName, Comparator.nullsFirst(String.CASE_INSENSITIVE_ORDER))
+                        .thenComparing(ScheduleOfEmployeeResponseDTO::getEmployeeFirstName, Comparator.nullsFirst(String.CASE_INSENSITIVE_ORDER));
+                case "status" -> Comparator.comparing(ScheduleOfEmployeeResponseDTO::getIsDayOff, Comparator.nullsFirst(Comparator.naturalOrder()));
+                case "checkinTime" -> Comparator.comparing(ScheduleOfEmployeeResponseDTO::getCheckinTime, Comparator.nullsFirst(Comparator.naturalOrder()));
+                default -> throw new IllegalArgumentException("Cannot sort by " + property.getProperty() + ".");
+            };
+            next = property.isAscending() ? next : next.reversed();
+            order = order == null ? next : order.thenComparing(next);
+        }
+        // The employee id keeps pages stable
+        Comparator<ScheduleOfEmployeeResponseDTO> byEmployee = Comparator.comparingInt(ScheduleOfEmployeeResponseDTO::getEmployeeId);
+        return order == null ? byEmployee : order.thenComparing(byEmployee);
+    }
 
-        LocalDate today = LocalDate.now();
-        List<Employee> employees = manager.getEmployees();
+    public Integer getTodaySchedulesNumber() {
+        Manager manager = getAuthenticatedManager();
 
-        return scheduleRepository.countByEmployeeInAndDateAndIsDayOffFalse(employees, today);
+        LocalDate today = LocalDate.now(TimeZones.zoneOf(manager.getEntreprise().getTimeZone()));
+        return scheduleRepository.countByEmployeeEntrepriseIdAndDateAndIsDayOffFalse(manager.getEntreprise().getId(), today);
     }
 }
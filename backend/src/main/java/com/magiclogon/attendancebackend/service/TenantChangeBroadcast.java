@@ -0,0 +1,87 @@
+package com.magiclogon.attendancebackend.service;
+
+import com.magiclogon.attendancebackend.event.TenantDataChangedEvent;
+import com.magiclogon.attendancebackend.repository.TenantVersionJdbcRepository;
+import com.magiclogon.attendancebackend.security.PrincipalCache;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Objects;
+
+// Carries the cache evictions of one replica to the others. A change to an entreprise's schedules, settings or
+// employees, or to the credentials of one of its users, bumps its tenant_version row; every replica reads the
+// versions at the cluster heartbeat period and, for each tenant whose version moved, drops the cached principals,
+// day states and kiosk roster and reloads its deadlines.
+// The replica that made the change sees its own bump too, which only costs it one more reload.
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class TenantChangeBroadcast {
+
+    // Row of the users that belong to no entreprise yet (managers before they create theirs)
+    static final int NO_ENTREPRISE = 0;
+
+    private final TenantVersionJdbcRepository tenantVersionJdbcRepository;
+    private final TodayAttendanceCache todayAttendanceCache;
+    private final KioskService kioskService;
+    private final AbsenceDeadlineScheduler absenceDeadlineScheduler;
+    private final ApplicationEventPublisher eventPublisher;
+    private final PrincipalCache principalCache;
+
+    // Versions read by the last poll, null until the first one succeeds
+    private volatile Map<Integer, Long> versions;
+
+    // Tell the other replicas, after the local caches of the change were already evicted
+    public void changed(int entrepriseId) {
+        tenantVersionJdbcRepository.bump(entrepriseId);
+    }
+
+    // Password, username or account of a user changed: the other replicas must stop using its cached principal
+    public void credentialsChanged(Integer entrepriseId) {
+        tenantVersionJdbcRepository.bump(entrepriseId == null ? NO_ENTREPRISE : entrepriseId);
+    }
+
+    @Scheduled(fixedDelayString = "${cluster.heartbeat-ms:10000}")
+    public void poll() {
+        Map<Integer, Long> current;
+        try {
+            current = tenantVersionJdbcRepository.findAll();
+        } catch (DataAccessException e) {
+            log.warn("Tenant versions could not be read: {}", e.getMessage());
+            return;
+        }
+        Map<Integer, Long> previous = versions;
+        versions = current;
+        // The first poll runs as the context starts, before the caches are loaded: nothing to drop yet
+        if (previous == null) {
+            return;
+        }
+        current.forEach((entrepriseId, version) -> {
+            if (!Objects.equals(version, previous.get(entrepriseId))) {
+                evict(entrepriseId);
+            }
+        });
+    }
+
+    private void evict(int entrepriseId) {
+        // First, so a token refused on the replica that made the change is refused here too
+        principalCache.evictEntreprise(entrepriseId == NO_ENTREPRISE ? null : entrepriseId);
+        if (entrepriseId == NO_ENTREPRISE) {
+            return;
+        }
+        try {
+            todayAttendanceCache.evictEntreprise(entrepriseId);
+            kioskService.evictRoster(entrepriseId);
+            absenceDeadlineScheduler.rescheduleEntreprise(entrepriseId);
+            eventPublisher.publishEvent(new TenantDataChangedEvent(entrepriseId));
+        } catch (RuntimeException e) {
+            // The day states and the roster are gone already, the deadlines are checked again when they fire
+            log.warn("Changes of entreprise {} could not be applied: {}", entrepriseId, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.magiclogon.attendancebackend.service;
+
+import com.magiclogon.attendancebackend.repository.PresenceJdbcRepository;
+import com.magiclogon.attendancebackend.repository.PresenceJdbcRepository.DayState;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// In-memory attendance states around the current day, keyed by date then employee id.
+// Yesterday to tomorrow are kept so tenants in other zones and overnight shifts are served from memory.
+// Warmed by the materialization and kept in sync by every write that goes through the services; changes made on
+// another replica arrive through the TenantChangeBroadcast.
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class TodayAttendanceCache {
+
+    private final PresenceJdbcRepository presenceJdbcRepository;
+
+    private final Map<LocalDate, Map<Integer, DayState>> days = new ConcurrentHashMap<>();
+
+    // Load every employee's state for the date in one query
+    public void warm(LocalDate date) {
+        List<DayState> loaded = presenceJdbcRepository.findDayStates(date);
+        Map<Integer, DayState> states = new ConcurrentHashMap<>();
+        loaded.forEach(state -> states.put(state.employeeId(), state));
+        if (isCached(date)) {
+            days.put(date, states);
+        }
+        log.info("Attendance cache warmed for {} with {} employees", date, loaded.size());
+    }
+
+    // State of an employee for the date, loaded on a miss. Returns null if the employee does not exist.
+    public DayState get(int employeeId, LocalDate date) {
+        Map<Integer, DayState> states = statesOf(date);
+        if (states == null) {
+            // Dates outside the window are read through, they must not push out the current ones
+            return presenceJdbcRepository.findDayState(employeeId, date).orElse(null);
+        }
+        DayState state = states.get(employeeId);
+        if (state != null) {
+            return state;
+        }
+        state = presenceJdbcRepository.findDayState(employeeId, date).orElse(null);
+        if (state != null) {
+            states.putIfAbsent(employeeId, state);
+        }
+        return state;
+    }
+
+    // Record the result of a write so the next check-in does not need to read it back
+    public void put(LocalDate date, DayState state) {
+        Map<Integer, DayState> states = statesOf(date);
+        if (states != null) {
+            states.put(state.employeeId(), state);
+        }
+    }
+
+    public void evictEmployees(Collection<Integer> employeeIds) {
+        days.values().forEach(states -> employeeIds.forEach(states::remove));
+    }
+
+    public void evictManager(int managerId) {
+        days.values().forEach(states -> states.values().removeIf(state -> state.managerId() != null && state.managerId() == managerId));
+    }
+
+    public void evictEntreprise(int entrepriseId) {
+        days.values().forEach(states -> states.values().removeIf(state -> state.entrepriseId() != null && state.entrepriseId() == entrepriseId));
+    }
+
+    private Map<Integer, DayState> statesOf(LocalDate date) {
+        if (!isCached(date)) {
+            return null;
+        }
+        if (days.size() > 3) {
+            days.keySet().removeIf(day -> !isCached(day));
+        }
+        return days.computeIfAbsent(date, day -> new ConcurrentHashMap<>());
+    }
+
+    private static boolean isCached(LocalDate date) {
+        LocalDate today = LocalDate.now();
+        return !date.isBefore(today.minusDays(1)) && !date.isAfter(today.plusDays(1));
+    }
+}
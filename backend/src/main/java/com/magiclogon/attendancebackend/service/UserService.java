@@ -2,21 +2,18 @@ package com.magiclogon.attendancebackend.service;
 
 import com.magiclogon.attendancebackend.dto.UserResponseDTO;
 import com.magiclogon.attendancebackend.model.User;
-import com.magiclogon.attendancebackend.repository.UserRepository;
+import com.magiclogon.attendancebackend.security.TenantContext;
 import lombok.RequiredArgsConstructor;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 
 @Service
 @RequiredArgsConstructor
 public class UserService {
 
-    private final UserRepository userRepository;
+    private final TenantContext tenantContext;
 
     private User getAuthenticatedUser() {
-        String username = SecurityContextHolder.getContext().getAuthentication().getName();
-        return userRepository.findByUsername(username)
-                .orElseThrow(() -> new IllegalArgumentException("User not found."));
+        return tenantContext.getUser();
     }
 
     // Get user details
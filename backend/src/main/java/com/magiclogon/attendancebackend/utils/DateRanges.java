@@ -0,0 +1,22 @@
+package com.magiclogon.attendancebackend.utils;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+
+public final class DateRanges {
+
+    public static final int MAX_RANGE_DAYS = 366;
+
+    private DateRanges() {
+    }
+
+    // Inclusive range of at most a year, for the reports that read every presence of it
+    public static void validate(LocalDate from, LocalDate to) {
+        if (to.isBefore(from)) {
+            throw new IllegalArgumentException("End date is before the start date.");
+        }
+        if (ChronoUnit.DAYS.between(from, to) >= MAX_RANGE_DAYS) {
+            throw new IllegalArgumentException("Date range cannot exceed " + MAX_RANGE_DAYS + " days.");
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.magiclogon.attendancebackend.utils;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.ResponseEntity;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+public final class PageRequests {
+
+    public static final String TOTAL_COUNT_HEADER = "X-Total-Count";
+    // Keyset pages: the value to send back as the cursor, absent on the last page
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    public static final int MAX_PAGE_SIZE = 500;
+
+    private PageRequests() {
+    }
+
+    // page/size/sort request parameters, sort as "property" or "property,desc". Without a size everything is
+    // returned (still sorted), which is what clients written before paging expect.
+    public static Pageable of(Integer page, Integer size, String sort) {
+        Sort order = parseSort(sort);
+        if (size == null) {
+            return Pageable.unpaged(order);
+        }
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Page size must be between 1 and " + MAX_PAGE_SIZE + ".");
+        }
+        if (page != null && page < 0) {
+            throw new IllegalArgumentException("Page must not be negative.");
+        }
+        return PageRequest.of(page == null ? 0 : page, size, order);
+    }
+
+    // The rows of the page in the body, the total in a header so the body stays a plain list
+    public static <T> ResponseEntity<List<T>> toResponse(Page<T> page) {
+        return ResponseEntity.ok()
+                .header(TOTAL_COUNT_HEADER, String.valueOf(page.getTotalElements()))
+                .body(page.getContent());
+    }
+
+    // Slice of a list that is already sorted, for results that are not paged by the database
+    public static <T> Page<T> slice(List<T> sorted, Pageable pageable) {
+        if (pageable.isUnpaged()) {
+            return new PageImpl<>(sorted, pageable, sorted.size());
+        }
+        int from = (int) Math.min(pageable.getOffset(), sorted.size());
+        int to = Math.min(from + pageable.getPageSize(), sorted.size());
+        return new PageImpl<>(sorted.subList(from, to), pageable, sorted.size());
+    }
+
+    // ORDER BY of whitelisted properties only (column templates taking the direction as %1$s), the sort comes
+    // from request parameters. The tie-breaker keeps pages stable.
+    public static String orderBy(Sort sort, Map<String, String> columns, String tieBreaker) {
+        List<String> terms = new ArrayList<>();
+        for (Sort.Order order : sort) {
+            String column = columns.get(order.getProperty());
+            if (column == null) {
+                throw new IllegalArgumentException("Cannot sort by " + order.getProperty() + ".");
+            }
+            terms.add(column.formatted(order.isAscending() ? "ASC" : "DESC"));
+        }
+        terms.add(tieBreaker);
+        return " ORDER BY " + String.join(", ", terms);
+    }
+
+    private static Sort parseSort(String sort) {
+        if (sort == null || sort.isBlank()) {
+            return Sort.unsorted();
+        }
+        String[] parts = sort.split(",");
+        String property = parts[0].trim();
+        if (parts.length == 1) {
+            return Sort.by(property);
+        }
+        return switch (parts[1].trim().toLowerCase()) {
+            case "asc" -> Sort.by(Sort.Direction.ASC, property);
+            case "desc" -> Sort.by(Sort.Direction.DESC, property);
+            default -> throw new IllegalArgumentException("Sort direction must be asc or desc.");
+        };
+    }
+}
@@ -0,0 +1,22 @@
+package com.magiclogon.attendancebackend.utils;
+
+import java.time.DateTimeException;
+import java.time.ZoneId;
+
+public final class TimeZones {
+
+    private TimeZones() {
+    }
+
+    // Zone of an entreprise, the server zone when none (or an unknown one) is configured
+    public static ZoneId zoneOf(String timeZone) {
+        if (timeZone == null || timeZone.isBlank()) {
+            return ZoneId.systemDefault();
+        }
+        try {
+            return ZoneId.of(timeZone);
+        } catch (DateTimeException e) {
+            return ZoneId.systemDefault();
+        }
+    }
+}
@@ -0,0 +1,71 @@
+-- Schema as ddl-auto=update left it before the versioned scripts. Every statement is IF NOT EXISTS so existing databases adopt it unchanged.
+
+CREATE TABLE IF NOT EXISTS entreprise (
+    id INT NOT NULL AUTO_INCREMENT,
+    name VARCHAR(255) NOT NULL,
+    email VARCHAR(255),
+    phone_number VARCHAR(255),
+    website VARCHAR(255),
+    sector VARCHAR(255),
+    address VARCHAR(255),
+    created_at DATETIME(6),
+    camera_code VARCHAR(255),
+    PRIMARY KEY (id),
+    CONSTRAINT uk_entreprise_name UNIQUE (name)
+) ENGINE = InnoDB;
+
+CREATE TABLE IF NOT EXISTS `user` (
+    id INT NOT NULL AUTO_INCREMENT,
+    user_type VARCHAR(31) NOT NULL,
+    username VARCHAR(255) NOT NULL,
+    first_name VARCHAR(255) NOT NULL,
+    last_name VARCHAR(255) NOT NULL,
+    email VARCHAR(255) NOT NULL,
+    phone_number VARCHAR(255) NOT NULL,
+    password VARCHAR(255) NOT NULL,
+    role VARCHAR(32),
+    enabled BIT NOT NULL,
+    entreprise_id INT,
+    manager_id INT,
+    position_title VARCHAR(255) DEFAULT 'NONE',
+    has_registered_face BOOLEAN DEFAULT FALSE,
+    PRIMARY KEY (id),
+    CONSTRAINT uk_user_username UNIQUE (username),
+    CONSTRAINT fk_user_entreprise FOREIGN KEY (entreprise_id) REFERENCES entreprise (id),
+    CONSTRAINT fk_user_manager FOREIGN KEY (manager_id) REFERENCES `user` (id)
+) ENGINE = InnoDB;
+
+CREATE TABLE IF NOT EXISTS manager_settings (
+    id INT NOT NULL AUTO_INCREMENT,
+    manager_id INT,
+    absence_threshold_minutes INT NOT NULL,
+    late_threshold_minutes INT NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT uk_manager_settings_manager UNIQUE (manager_id),
+    CONSTRAINT fk_manager_settings_manager FOREIGN KEY (manager_id) REFERENCES `user` (id)
+) ENGINE = InnoDB;
+
+CREATE TABLE IF NOT EXISTS schedule (
+    id INT NOT NULL AUTO_INCREMENT,
+    employee_id INT,
+    schedule_name VARCHAR(255),
+    date DATE NOT NULL,
+    checkin_time TIME(6) NOT NULL,
+    checkout_time TIME(6) NOT NULL,
+    break_start_time TIME(6),
+    break_end_time TIME(6),
+    is_day_off BIT,
+    PRIMARY KEY (id),
+    CONSTRAINT fk_schedule_employee FOREIGN KEY (employee_id) REFERENCES `user` (id)
+) ENGINE = InnoDB;
+
+CREATE TABLE IF NOT EXISTS presence (
+    id INT NOT NULL AUTO_INCREMENT,
+    employee_id INT,
+    checkin_time TIME(6),
+    checkout_time TIME(6),
+    date DATE,
+    status VARCHAR(32),
+    PRIMARY KEY (id),
+    CONSTRAINT fk_presence_employee FOREIGN KEY (employee_id) REFERENCES `user` (id)
+) ENGINE = InnoDB;
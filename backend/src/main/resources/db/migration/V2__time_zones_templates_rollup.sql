@@ -0,0 +1,62 @@
+-- Columns and tables that ddl-auto=update would have added after the baseline, so V3 onwards find them on every database.
+
+ALTER TABLE entreprise ADD COLUMN time_zone VARCHAR(255);
+
+ALTER TABLE schedule ADD COLUMN template_id INT;
+
+CREATE TABLE IF NOT EXISTS schedule_template (
+    id INT NOT NULL AUTO_INCREMENT,
+    employee_id INT NOT NULL,
+    schedule_name VARCHAR(255),
+    checkin_time TIME(6) NOT NULL,
+    checkout_time TIME(6) NOT NULL,
+    break_start_time TIME(6),
+    break_end_time TIME(6),
+    is_day_off BIT,
+    start_date DATE NOT NULL,
+    recurrence_rule VARCHAR(255) NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT fk_schedule_template_employee FOREIGN KEY (employee_id) REFERENCES `user` (id)
+) ENGINE = InnoDB;
+
+CREATE TABLE IF NOT EXISTS schedule_template_exception (
+    template_id INT NOT NULL,
+    date DATE,
+    CONSTRAINT fk_schedule_template_exception_template FOREIGN KEY (template_id) REFERENCES schedule_template (id)
+) ENGINE = InnoDB;
+
+CREATE TABLE IF NOT EXISTS daily_attendance_rollup (
+    id INT NOT NULL AUTO_INCREMENT,
+    entreprise_id INT NOT NULL,
+    manager_id INT,
+    date DATE NOT NULL,
+    present_count INT NOT NULL,
+    late_count INT NOT NULL,
+    absent_count INT NOT NULL,
+    free_count INT NOT NULL,
+    not_opened_count INT NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT uk_rollup_entreprise_manager_date UNIQUE (entreprise_id, manager_id, date),
+    CONSTRAINT fk_rollup_entreprise FOREIGN KEY (entreprise_id) REFERENCES entreprise (id),
+    CONSTRAINT fk_rollup_manager FOREIGN KEY (manager_id) REFERENCES `user` (id)
+) ENGINE = InnoDB;
+
+CREATE TABLE IF NOT EXISTS checkin_event (
+    id INT NOT NULL AUTO_INCREMENT,
+    entreprise_id INT NOT NULL,
+    idempotency_key VARCHAR(64) NOT NULL,
+    employee_id INT NOT NULL,
+    event_time DATETIME(6) NOT NULL,
+    status VARCHAR(32) NOT NULL,
+    message VARCHAR(255),
+    received_at DATETIME(6) NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT uk_checkin_event_entreprise_key UNIQUE (entreprise_id, idempotency_key)
+) ENGINE = InnoDB;
+
+CREATE TABLE IF NOT EXISTS cluster_node (
+    node_id VARCHAR(64) NOT NULL,
+    started_at DATETIME(6) NOT NULL,
+    heartbeat_at DATETIME(6) NOT NULL,
+    PRIMARY KEY (node_id)
+) ENGINE = InnoDB;
@@ -0,0 +1,49 @@
+-- One presence and one schedule per employee and day, plus the indexes of the date-keyed queries.
+
+-- Keep the presence that went furthest (checked in, then anything but NOT_OPENED, then the oldest)
+DELETE FROM presence WHERE id IN (
+    SELECT id FROM (
+        SELECT id, ROW_NUMBER() OVER (
+                   PARTITION BY employee_id, date
+                   ORDER BY checkin_time IS NULL, status = 'NOT_OPENED', id) AS position
+        FROM presence
+    ) ranked
+    WHERE position > 1
+);
+
+-- Keep the explicit schedule over a materialized one, then the latest written
+DELETE FROM schedule WHERE id IN (
+    SELECT id FROM (
+        SELECT id, ROW_NUMBER() OVER (
+                   PARTITION BY employee_id, date
+                   ORDER BY template_id IS NOT NULL, id DESC) AS position
+        FROM schedule
+    ) ranked
+    WHERE position > 1
+);
+
+-- findByEmployeeIdAndDate, existsByEmployeeAndDate and the per-employee date ranges all seek on (employee_id, date)
+ALTER TABLE presence
+    ADD CONSTRAINT uk_presence_employee_date UNIQUE (employee_id, date),
+    ADD INDEX idx_presence_date_status (date, status);
+
+-- Day scans (materialization, absence candidates, rosters) start from the date
+ALTER TABLE schedule
+    ADD CONSTRAINT uk_schedule_employee_date UNIQUE (employee_id, date),
+    ADD INDEX idx_schedule_date_employee (date, employee_id);
+
+-- Employees of an entreprise, joined by every tenant-scoped query
+ALTER TABLE `user`
+    ADD INDEX idx_user_entreprise_type (entreprise_id, user_type);
+
+-- Removed duplicates were counted in the rollups: recompute them from the presences
+DELETE FROM daily_attendance_rollup;
+INSERT INTO daily_attendance_rollup
+    (entreprise_id, manager_id, date, present_count, late_count, absent_count, free_count, not_opened_count)
+SELECT e.entreprise_id, e.manager_id, p.date,
+       SUM(p.status = 'PRESENT'), SUM(p.status = 'LATE'), SUM(p.status = 'ABSENT'),
+       SUM(p.status = 'FREE'), SUM(p.status = 'NOT_OPENED')
+FROM presence p
+JOIN `user` e ON e.id = p.employee_id
+WHERE e.entreprise_id IS NOT NULL
+GROUP BY e.entreprise_id, e.manager_id, p.date;
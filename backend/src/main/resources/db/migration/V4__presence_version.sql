@@ -0,0 +1,3 @@
+-- Row version of presences: bumped by check-in, checkout and absence writes, checked by JPA on manual edits
+ALTER TABLE presence
+    ADD COLUMN version INT NOT NULL DEFAULT 0;
@@ -0,0 +1,20 @@
+-- Employees without a manager were rolled up under manager_id NULL. NULLs never collide in a unique key, so every
+-- transition of those employees inserted a new row instead of adding to the day's row: store 0 instead.
+ALTER TABLE daily_attendance_rollup
+    DROP FOREIGN KEY fk_rollup_manager;
+
+DELETE FROM daily_attendance_rollup;
+
+ALTER TABLE daily_attendance_rollup
+    MODIFY manager_id INT NOT NULL DEFAULT 0;
+
+-- Recompute the rows removed above from the presences
+INSERT INTO daily_attendance_rollup
+    (entreprise_id, manager_id, date, present_count, late_count, absent_count, free_count, not_opened_count)
+SELECT e.entreprise_id, COALESCE(e.manager_id, 0), p.date,
+       SUM(p.status = 'PRESENT'), SUM(p.status = 'LATE'), SUM(p.status = 'ABSENT'),
+       SUM(p.status = 'FREE'), SUM(p.status = 'NOT_OPENED')
+FROM presence p
+JOIN `user` e ON e.id = p.employee_id
+WHERE e.entreprise_id IS NOT NULL
+GROUP BY e.entreprise_id, e.manager_id, p.date;
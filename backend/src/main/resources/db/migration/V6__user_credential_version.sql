@@ -0,0 +1,3 @@
+-- Bumped on every password change; tokens carrying an older version are refused
+ALTER TABLE `user`
+    ADD COLUMN credential_version INT NOT NULL DEFAULT 0;
@@ -0,0 +1,8 @@
+-- One counter per entreprise, bumped when its schedules, settings or employees change. Every replica polls the
+-- counters and drops what it cached of a tenant whose counter moved.
+
+CREATE TABLE tenant_version (
+    entreprise_id INT NOT NULL,
+    version BIGINT NOT NULL,
+    PRIMARY KEY (entreprise_id)
+) ENGINE = InnoDB;
@@ -0,0 +1,91 @@
+package com.magiclogon.attendancebackend.benchmark;
+
+import com.magiclogon.attendancebackend.model.PresenceStatus;
+import com.magiclogon.attendancebackend.repository.PresenceJdbcRepository.AttendanceRow;
+import com.magiclogon.attendancebackend.service.AttendanceAnalytics;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// A year of attendance of a large tenant summarized in one pass, the rows already in memory so only the
+// analytics are measured. Run with: mvn -Pbenchmark test-compile exec:exec -Dbenchmark=AttendanceAnalyticsBenchmark
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class AttendanceAnalyticsBenchmark {
+
+    private static final LocalDate FROM = LocalDate.of(2025, 1, 1);
+    private static final LocalTime SCHEDULE_CHECKIN = LocalTime.of(9, 0);
+    private static final LocalTime SCHEDULE_CHECKOUT = LocalTime.of(17, 0);
+    private static final LocalTime BREAK_START = LocalTime.of(12, 0);
+    private static final LocalTime BREAK_END = LocalTime.of(13, 0);
+
+    @Param({"10000"})
+    private int employees;
+
+    @Param({"365"})
+    private int days;
+
+    private List<AttendanceRow> rows;
+    private LocalDate to;
+
+    @Setup
+    public void generate() {
+        Random random = new Random(42);
+        to = FROM.plusDays(days - 1);
+        rows = new ArrayList<>(employees * days);
+        for (int employeeId = 1; employeeId <= employees; employeeId++) {
+            String firstName = "First" + employeeId;
+            String lastName = "Last" + employeeId;
+            for (int day = 0; day < days; day++) {
+                LocalDate date = FROM.plusDays(day);
+                rows.add(row(random, employeeId, firstName, lastName, date));
+            }
+        }
+    }
+
+    // Weekends off; weekdays mostly on time, some late, a few absent
+    private static AttendanceRow row(Random random, int employeeId, String firstName, String lastName, LocalDate date) {
+        if (date.getDayOfWeek() == DayOfWeek.SATURDAY || date.getDayOfWeek() == DayOfWeek.SUNDAY) {
+            return new AttendanceRow(employeeId, firstName, lastName, date, PresenceStatus.FREE,
+                    null, null, null, null, null, null, true);
+        }
+        int draw = random.nextInt(100);
+        if (draw < 5) {
+            return new AttendanceRow(employeeId, firstName, lastName, date, PresenceStatus.ABSENT,
+                    null, null, SCHEDULE_CHECKIN, SCHEDULE_CHECKOUT, BREAK_START, BREAK_END, false);
+        }
+        boolean late = draw < 15;
+        LocalTime checkin = late
+                ? SCHEDULE_CHECKIN.plusMinutes(16 + random.nextInt(75))
+                : SCHEDULE_CHECKIN.minusMinutes(15).plusMinutes(random.nextInt(30));
+        LocalTime checkout = SCHEDULE_CHECKOUT.plusMinutes(random.nextInt(45));
+        return new AttendanceRow(employeeId, firstName, lastName, date, late ? PresenceStatus.LATE : PresenceStatus.PRESENT,
+                checkin, checkout, SCHEDULE_CHECKIN, SCHEDULE_CHECKOUT, BREAK_START, BREAK_END, false);
+    }
+
+    @Benchmark
+    public long summarizeTenantYear(Blackhole blackhole) {
+        return AttendanceAnalytics.summarize(rows.iterator(), FROM, to, blackhole::consume);
+    }
+}
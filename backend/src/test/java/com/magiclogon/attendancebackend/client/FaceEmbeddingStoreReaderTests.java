@@ -0,0 +1,69 @@
+package com.magiclogon.attendancebackend.client;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class FaceEmbeddingStoreReaderTests {
+
+    private static final int DIMENSION = 3;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void latestLiveRecordOfEachRequestedEmployeeWins() throws IOException {
+        Path file = directory.resolve("embeddings.bin");
+        ByteBuffer buffer = ByteBuffer.allocate(16 + 5 * recordBytes() + 7).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.put("FEMBLOG1".getBytes(StandardCharsets.US_ASCII)).putInt(DIMENSION).putInt(0);
+        record(buffer, "1", 0, 1, 0, 0);
+        record(buffer, "2", 0, 0, 1, 0);
+        record(buffer, "1", 0, 0, 0, 1);
+        record(buffer, "2", 1, 0, 0, 0);
+        record(buffer, "3", 0, 1, 1, 1);
+        // Partial append left by a crash
+        buffer.put(new byte[7]);
+        Files.write(file, buffer.array());
+
+        Map<String, float[]> embeddings = new FaceEmbeddingStoreReader(file.toString()).read(List.of(1, 2));
+
+        assertEquals(1, embeddings.size());
+        assertArrayEquals(new float[]{0, 0, 1}, embeddings.get("1"));
+        assertFalse(embeddings.containsKey("2"));
+    }
+
+    @Test
+    void rejectsFilesWithoutTheStoreHeader() throws IOException {
+        Path file = directory.resolve("face_embeddings.pkl");
+        Files.write(file, new byte[32]);
+
+        assertThrows(IOException.class, () -> new FaceEmbeddingStoreReader(file.toString()).read(List.of(1)));
+    }
+
+    private static int recordBytes() {
+        return 64 + 8 + 4 + 4 + DIMENSION * Float.BYTES;
+    }
+
+    private static void record(ByteBuffer buffer, String id, int flags, float... vector) {
+        byte[] idBytes = new byte[64];
+        byte[] raw = id.getBytes(StandardCharsets.UTF_8);
+        System.arraycopy(raw, 0, idBytes, 0, raw.length);
+        buffer.put(idBytes).putDouble(0).putInt(flags).putInt(0);
+        for (float value : vector) {
+            buffer.putFloat(value);
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package com.magiclogon.attendancebackend.client;
+
+import com.magiclogon.attendancebackend.dto.FaceVerificationResponseDTO;
+import com.magiclogon.attendancebackend.utils.CircuitBreaker;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FaceRecognitionClientTests {
+
+    private HttpServer server;
+    private final AtomicInteger calls = new AtomicInteger();
+    private final AtomicReference<String> lastBody = new AtomicReference<>();
+    private volatile int status = 200;
+    private volatile String response = "{}";
+    private volatile long delayMs = 0;
+
+    private final MockMultipartFile image = new MockMultipartFile("file", "face.jpg", "image/jpeg", new byte[]{1, 2, 3, 4});
+
+    @BeforeEach
+    void startStub() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", exchange -> {
+            calls.incrementAndGet();
+            lastBody.set(new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.ISO_8859_1));
+            try {
+                Thread.sleep(delayMs);
+            } catch (InterruptedException ignored) {
+                Thread.currentThread().interrupt();
+            }
+            byte[] bytes = response.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(status, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        });
+        server.start();
+    }
+
+    @AfterEach
+    void stopStub() {
+        server.stop(0);
+    }
+
+    private FaceRecognitionClient client(long readTimeoutMs, int failureThreshold) {
+        return new FaceRecognitionClient("http://127.0.0.1:" + server.getAddress().getPort(), HttpClient.Version.HTTP_1_1,
+                1000, readTimeoutMs, 4, 100, failureThreshold, 60_000, 1024);
+    }
+
+    @Test
+    void verifyFaceSendsMultipartAndParsesResponse() throws IOException {
+        response = "{\"success\": true, \"match\": true, \"confidence\": 0.21, \"threshold\": 0.4, \"employee_id\": \"42\"}";
+
+        FaceVerificationResponseDTO result = client(2000, 3).verifyFace("42", image);
+
+        assertTrue(result.isMatch());
+        assertEquals("42", result.getEmployee_id());
+        assertTrue(lastBody.get().contains("name=\"employee_id\"\r\n\r\n42\r\n"));
+        assertTrue(lastBody.get().contains("filename=\"face.jpg\""));
+    }
+
+    @Test
+    void uploadedFilenameCannotInjectPartHeaders() throws IOException {
+        response = "{\"success\": true, \"match\": true, \"employee_id\": \"42\"}";
+        MockMultipartFile crafted = new MockMultipartFile("file", "a\"b.jpg\r\nX-Injected: 1", "image/jpeg\r\nX-Other: 2", new byte[]{1});
+
+        client(2000, 3).verifyFace("42", crafted);
+
+        assertTrue(lastBody.get().contains("filename=\"a\\\"b.jpgX-Injected: 1\"\r\n"));
+        assertTrue(lastBody.get().contains("Content-Type: image/jpegX-Other: 2\r\n"));
+    }
+
+    // Bytes allocated by the calling thread to produce the whole request body of a 4 MiB image: the streamed body
+    // only allocates the chunks it hands to the connection, the former byte[] body copied the whole image several times.
+    @Test
+    void streamedBodyAllocatesLessThanTheBufferedOne() throws IOException {
+        byte[] content = new byte[4 * 1024 * 1024];
+        MockMultipartFile large = new MockMultipartFile("file", "face.jpg", "image/jpeg", content);
+
+        long streamed = Long.MAX_VALUE;
+        long buffered = Long.MAX_VALUE;
+        // Best of a few runs, the first ones also load classes
+        for (int run = 0; run < 5; run++) {
+            long before = allocatedBytes();
+            assertTrue(drain(FaceRecognitionClient.multipartBody("b", "1", "face.jpg", "image/jpeg",
+                    content.length, () -> new ByteArrayInputStream(content))) > content.length);
+            streamed = Math.min(streamed, allocatedBytes() - before);
+
+            before = allocatedBytes();
+            assertTrue(drain(HttpRequest.BodyPublishers.ofByteArray(bufferedBody(large))) > content.length);
+            buffered = Math.min(buffered, allocatedBytes() - before);
+        }
+
+        assertTrue(streamed < content.length * 1.5, "streamed body allocated " + streamed + " bytes");
+        assertTrue(buffered > content.length * 2.5, "buffered body allocated " + buffered + " bytes");
+    }
+
+    // The multipart body as it was built before streaming
+    private static byte[] bufferedBody(MockMultipartFile file) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(("--b\r\nContent-Disposition: form-data; name=\"employee_id\"\r\n\r\n1\r\n"
+                + "--b\r\nContent-Disposition: form-data; name=\"image\"; filename=\"face.jpg\"\r\n"
+                + "Content-Type: image/jpeg\r\n\r\n").getBytes(StandardCharsets.UTF_8));
+        out.write(file.getBytes());
+        out.write("\r\n--b--\r\n".getBytes(StandardCharsets.UTF_8));
+        return out.toByteArray();
+    }
+
+    private static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean()).getCurrentThreadAllocatedBytes();
+    }
+
+    // Pulls the whole body on the calling thread, as the connection would, and returns its length
+    private static long drain(HttpRequest.BodyPublisher body) {
+        AtomicLong length = new AtomicLong();
+        body.subscribe(new Flow.Subscriber<>() {
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                subscription.request(Long.MAX_VALUE);
+            }
+
+            @Override
+            public void onNext(ByteBuffer item) {
+                length.addAndGet(item.remaining());
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                fail(throwable);
+            }
+
+            @Override
+            public void onComplete() {
+            }
+        });
+        return length.get();
+    }
+
+    @Test
+    void oversizedImageIsRejectedBeforeAnyCall() {
+        MockMultipartFile large = new MockMultipartFile("file", "face.jpg", "image/jpeg", new byte[2048]);
+
+        assertThrows(IllegalArgumentException.class, () -> client(2000, 3).verifyFace("1", large));
+        assertEquals(0, calls.get());
+    }
+
+    @Test
+    void clientErrorIsReportedWithoutOpeningTheCircuit() {
+        status = 404;
+        response = "{\"success\": false, \"error\": \"Employee not registered\"}";
+        FaceRecognitionClient client = client(2000, 1);
+
+        FaceRecognitionException error = assertThrows(FaceRecognitionException.class, () -> client.verifyFace("7", image));
+
+        assertEquals(404, error.getStatus());
+        assertEquals(CircuitBreaker.State.CLOSED, client.getCircuitState());
+    }
+
+    @Test
+    void slowServiceTimesOutAndOpensTheCircuit() {
+        delayMs = 500;
+        FaceRecognitionClient client = client(100, 2);
+
+        assertThrows(FaceRecognitionUnavailableException.class, () -> client.verifyFace("1", image));
+        assertThrows(FaceRecognitionUnavailableException.class, () -> client.verifyFace("1", image));
+        assertEquals(CircuitBreaker.State.OPEN, client.getCircuitState());
+
+        // Once open, calls fail fast without reaching the service
+        int before = calls.get();
+        assertThrows(FaceRecognitionUnavailableException.class, () -> client.verifyFace("1", image));
+        assertEquals(before, calls.get());
+    }
+}
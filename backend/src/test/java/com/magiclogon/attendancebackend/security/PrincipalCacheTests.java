@@ -0,0 +1,97 @@
+package com.magiclogon.attendancebackend.security;
+
+import com.magiclogon.attendancebackend.model.Employee;
+import com.magiclogon.attendancebackend.model.Entreprise;
+import com.magiclogon.attendancebackend.model.Role;
+import com.magiclogon.attendancebackend.repository.UserRepository;
+import io.jsonwebtoken.Claims;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class PrincipalCacheTests {
+
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private final PrincipalCache cache = new PrincipalCache(userRepository);
+
+    @Test
+    void userIsLoadedOnceUntilEvicted() {
+        when(userRepository.findByUsername("sam")).thenReturn(Optional.of(employee(12, 4, true)));
+
+        UserPrincipal principal = cache.get("sam");
+        cache.get("sam");
+        cache.get("sam");
+
+        assertEquals(new UserPrincipal(12, "sam", Role.ROLE_EMPLOYEE, 4, true, 0), principal);
+        verify(userRepository, times(1)).findByUsername("sam");
+
+        cache.evict("sam");
+        cache.get("sam");
+        verify(userRepository, times(2)).findByUsername("sam");
+        assertNull(cache.get("nobody"));
+    }
+
+    @Test
+    void evictingAnEntrepriseKeepsTheOthers() {
+        Employee kim = employee(13, 5, true);
+        kim.setUsername("kim");
+        when(userRepository.findByUsername("sam")).thenReturn(Optional.of(employee(12, 4, true)));
+        when(userRepository.findByUsername("kim")).thenReturn(Optional.of(kim));
+        cache.get("sam");
+        cache.get("kim");
+
+        cache.evictEntreprise(4);
+        cache.get("sam");
+        cache.get("kim");
+
+        verify(userRepository, times(2)).findByUsername("sam");
+        verify(userRepository, times(1)).findByUsername("kim");
+    }
+
+    @Test
+    void tokenCarriesClaimsAndOnlyMatchesItsAccount() {
+        JwtUtil jwtUtil = new JwtUtil();
+        ReflectionTestUtils.setField(jwtUtil, "secretKey", "a-test-secret-key-long-enough-for-hmac-sha-256");
+        ReflectionTestUtils.setField(jwtUtil, "jwtExpirationMs", 60_000L);
+        UserPrincipal principal = UserPrincipal.of(employee(12, 4, true));
+
+        Claims claims = jwtUtil.extractAllClaims(jwtUtil.generateToken(principal));
+
+        assertEquals("sam", claims.getSubject());
+        assertEquals(12, claims.get(JwtUtil.USER_ID_CLAIM, Integer.class));
+        assertEquals("ROLE_EMPLOYEE", claims.get(JwtUtil.ROLE_CLAIM, String.class));
+        assertEquals(4, claims.get(JwtUtil.ENTREPRISE_ID_CLAIM, Integer.class));
+        assertTrue(jwtUtil.validateToken(claims, principal));
+        // Same username, another account (renamed and taken again), or the account disabled
+        assertFalse(jwtUtil.validateToken(claims, UserPrincipal.of(employee(13, 4, true))));
+        assertFalse(jwtUtil.validateToken(claims, UserPrincipal.of(employee(12, 4, false))));
+
+        // The password changed since the token was issued
+        Employee changed = employee(12, 4, true);
+        changed.setCredentialVersion(1);
+        assertFalse(jwtUtil.validateToken(claims, UserPrincipal.of(changed)));
+        assertTrue(jwtUtil.validateToken(jwtUtil.extractAllClaims(jwtUtil.generateToken(UserPrincipal.of(changed))), UserPrincipal.of(changed)));
+    }
+
+    private static Employee employee(int id, int entrepriseId, boolean enabled) {
+        Entreprise entreprise = new Entreprise();
+        entreprise.setId(entrepriseId);
+        Employee employee = new Employee();
+        employee.setId(id);
+        employee.setUsername("sam");
+        employee.setRole(Role.ROLE_EMPLOYEE);
+        employee.setEnabled(enabled);
+        employee.setEntreprise(entreprise);
+        return employee;
+    }
+}
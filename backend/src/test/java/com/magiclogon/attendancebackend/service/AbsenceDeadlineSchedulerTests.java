@@ -0,0 +1,147 @@
+package com.magiclogon.attendancebackend.service;
+
+import com.magiclogon.attendancebackend.event.TenantDataChangedEvent;
+import com.magiclogon.attendancebackend.model.PresenceStatus;
+import com.magiclogon.attendancebackend.repository.PresenceJdbcRepository;
+import com.magiclogon.attendancebackend.repository.PresenceJdbcRepository.AbsenceCandidate;
+import com.magiclogon.attendancebackend.repository.PresenceJdbcRepository.AbsenceWrite;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class AbsenceDeadlineSchedulerTests {
+
+    private static final int ENTREPRISE_ID = 7;
+    private static final Instant NOW = Instant.now();
+
+    private final PresenceJdbcRepository presenceJdbcRepository = mock(PresenceJdbcRepository.class);
+    private final DailyAttendanceRollupService dailyAttendanceRollupService = mock(DailyAttendanceRollupService.class);
+    private final TodayAttendanceCache todayAttendanceCache = mock(TodayAttendanceCache.class);
+    private final ClusterMembership clusterMembership = mock(ClusterMembership.class);
+    private final ApplicationEventPublisher eventPublisher = mock(ApplicationEventPublisher.class);
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+    private final AbsenceDeadlineScheduler scheduler = new AbsenceDeadlineScheduler(presenceJdbcRepository,
+            dailyAttendanceRollupService, todayAttendanceCache, clusterMembership, eventPublisher,
+            new TransactionTemplate(transactionManager));
+
+    @BeforeEach
+    void setUp() {
+        when(clusterMembership.owns(anyInt())).thenReturn(true);
+        when(clusterMembership.currentShard()).thenReturn(new ClusterMembership.Shard(2, 1));
+    }
+
+    @AfterEach
+    void tearDown() {
+        scheduler.stop();
+    }
+
+    @Test
+    void pastDueDeadlineMarksAbsentAndRefreshesTheDay() {
+        AbsenceCandidate candidate = candidate(1, LocalDate.now().minusDays(1));
+        when(presenceJdbcRepository.findAbsenceCandidatesOfShard(anyList(), eq(2), eq(1))).thenReturn(List.of(candidate));
+        when(presenceJdbcRepository.markAbsentIfNotCheckedIn(eq(List.of(candidate)), any())).thenReturn(new AbsenceWrite[]{AbsenceWrite.FLIPPED});
+
+        scheduler.rebuild();
+        scheduler.start();
+
+        verify(presenceJdbcRepository, timeout(2000)).markAbsentIfNotCheckedIn(eq(List.of(candidate)), any());
+        // The NOT_OPENED row moved to ABSENT in the day's counters, the day is not rebuilt
+        verify(dailyAttendanceRollupService, timeout(2000)).recordTransition(ENTREPRISE_ID, 3, candidate.date(),
+                PresenceStatus.NOT_OPENED, PresenceStatus.ABSENT);
+        verify(dailyAttendanceRollupService, never()).rebuild(any(), any(), any());
+        verify(eventPublisher, timeout(2000)).publishEvent(any(TenantDataChangedEvent.class));
+        verify(todayAttendanceCache, timeout(2000)).evictEmployees(List.of(1));
+        assertEquals(0, scheduler.pendingCount());
+    }
+
+    @Test
+    void cancelledDeadlineDoesNotFire() {
+        AbsenceCandidate candidate = candidate(1, LocalDate.now().minusDays(1));
+        when(presenceJdbcRepository.findAbsenceCandidatesOfShard(anyList(), eq(2), eq(1))).thenReturn(List.of(candidate));
+
+        scheduler.rebuild();
+        scheduler.cancel(1, candidate.date());
+        scheduler.start();
+
+        verify(presenceJdbcRepository, after(300).never()).markAbsentIfNotCheckedIn(anyList(), any());
+    }
+
+    @Test
+    void rescheduledEmployeeOnlyFiresItsNewDeadline() {
+        AbsenceCandidate future = candidate(1, LocalDate.now().plusDays(2));
+        AbsenceCandidate due = candidate(1, LocalDate.now().minusDays(1));
+        when(presenceJdbcRepository.findAbsenceCandidatesOfShard(anyList(), eq(2), eq(1))).thenReturn(List.of(future));
+        when(presenceJdbcRepository.findAbsenceCandidatesOfEmployees(anyList(), anyCollection())).thenReturn(List.of(due));
+        when(presenceJdbcRepository.markAbsentIfNotCheckedIn(eq(List.of(due)), any())).thenReturn(new AbsenceWrite[]{AbsenceWrite.NONE});
+
+        scheduler.rebuild();
+        assertEquals(1, scheduler.pendingCount());
+        scheduler.rescheduleEmployees(List.of(1));
+        scheduler.start();
+
+        verify(presenceJdbcRepository, timeout(2000)).markAbsentIfNotCheckedIn(eq(List.of(due)), any());
+        // Nothing was written (checked in meanwhile): no rollup work
+        verify(dailyAttendanceRollupService, after(200).never()).recordTransition(anyInt(), any(), any(), any(), any());
+        assertEquals(0, scheduler.pendingCount());
+    }
+
+    @Test
+    void nodeWithoutShardLoadsNoDeadline() {
+        when(clusterMembership.currentShard()).thenReturn(null);
+
+        scheduler.rebuild();
+
+        verify(presenceJdbcRepository, never()).findAbsenceCandidatesOfShard(anyList(), anyInt(), anyInt());
+        assertEquals(0, scheduler.pendingCount());
+    }
+
+    @Test
+    void absenceAndItsRollupTransitionCommitTogether() {
+        AbsenceCandidate flipped = candidate(1, LocalDate.now());
+        AbsenceCandidate inserted = candidate(2, LocalDate.now());
+        AbsenceCandidate checkedIn = candidate(4, LocalDate.now());
+        List<AbsenceCandidate> candidates = List.of(flipped, inserted, checkedIn);
+        when(presenceJdbcRepository.markAbsentIfNotCheckedIn(candidates, NOW))
+                .thenReturn(new AbsenceWrite[]{AbsenceWrite.FLIPPED, AbsenceWrite.INSERTED, AbsenceWrite.NONE});
+
+        assertEquals(2, scheduler.markAbsent(candidates, NOW));
+
+        InOrder order = inOrder(transactionManager, presenceJdbcRepository, dailyAttendanceRollupService, todayAttendanceCache);
+        order.verify(transactionManager).getTransaction(any());
+        order.verify(presenceJdbcRepository).markAbsentIfNotCheckedIn(candidates, NOW);
+        order.verify(dailyAttendanceRollupService).recordTransition(ENTREPRISE_ID, 3, flipped.date(), PresenceStatus.NOT_OPENED, PresenceStatus.ABSENT);
+        order.verify(dailyAttendanceRollupService).recordTransition(ENTREPRISE_ID, 3, inserted.date(), null, PresenceStatus.ABSENT);
+        order.verify(transactionManager).commit(any());
+        // The day is only reloaded once the write is visible
+        order.verify(todayAttendanceCache).evictEmployees(List.of(1, 2));
+        verify(dailyAttendanceRollupService, never()).rebuild(any(), any(), any());
+    }
+
+    private static AbsenceCandidate candidate(int employeeId, LocalDate date) {
+        return new AbsenceCandidate(employeeId, ENTREPRISE_ID, 3, null, date, ZoneId.systemDefault(), LocalTime.of(9, 0), 30);
+    }
+}
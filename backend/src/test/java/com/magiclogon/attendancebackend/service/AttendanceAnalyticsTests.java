@@ -0,0 +1,79 @@
+package com.magiclogon.attendancebackend.service;
+
+import com.magiclogon.attendancebackend.dto.AttendanceStatsDTO;
+import com.magiclogon.attendancebackend.model.PresenceStatus;
+import com.magiclogon.attendancebackend.repository.PresenceJdbcRepository.AttendanceRow;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class AttendanceAnalyticsTests {
+
+    private static final LocalDate FROM = LocalDate.of(2026, 3, 2);
+    private static final LocalDate TO = LocalDate.of(2026, 3, 8);
+
+    @Test
+    void workedHoursLatenessAndBreaksAreSummed() {
+        List<AttendanceStatsDTO> stats = AttendanceAnalytics.summarize(List.of(
+                day(1, 0, PresenceStatus.PRESENT, LocalTime.of(8, 55), LocalTime.of(17, 5)),
+                day(1, 1, PresenceStatus.LATE, LocalTime.of(9, 40), LocalTime.of(17, 0)),
+                day(1, 2, PresenceStatus.LATE, LocalTime.of(9, 10), LocalTime.of(17, 0))).iterator(), FROM, TO);
+
+        assertEquals(1, stats.size());
+        AttendanceStatsDTO employee = stats.get(0);
+        assertEquals(3, employee.getWorkingDays());
+        assertEquals(1, employee.getPresentDays());
+        assertEquals(2, employee.getLateDays());
+        // 8h shift less the hour of break
+        assertEquals(3 * 420, employee.getScheduledMinutes());
+        assertEquals(430 + 380 + 410, employee.getWorkedMinutes());
+        assertEquals(180, employee.getBreakMinutes());
+        assertEquals(50, employee.getLateMinutes());
+        assertEquals(40, employee.getMaxLateMinutes());
+        assertEquals(1.0, employee.getAttendanceRate());
+        assertEquals(1.0 / 3, employee.getPunctualityRate(), 1e-9);
+    }
+
+    @Test
+    void daysOffDoNotBreakStreaks() {
+        List<AttendanceStatsDTO> stats = AttendanceAnalytics.summarize(List.of(
+                day(1, 0, PresenceStatus.ABSENT, null, null),
+                day(1, 1, PresenceStatus.ABSENT, null, null),
+                dayOff(1, 2),
+                day(1, 3, PresenceStatus.ABSENT, null, null),
+                day(1, 4, PresenceStatus.PRESENT, LocalTime.of(9, 0), LocalTime.of(17, 0)),
+                day(1, 5, PresenceStatus.ABSENT, null, null),
+                day(2, 0, PresenceStatus.PRESENT, LocalTime.of(9, 0), LocalTime.of(17, 0)),
+                dayOff(2, 1),
+                day(2, 2, PresenceStatus.PRESENT, LocalTime.of(9, 0), LocalTime.of(17, 0)),
+                day(2, 3, PresenceStatus.NOT_OPENED, null, null)).iterator(), FROM, TO);
+
+        assertEquals(2, stats.size());
+        AttendanceStatsDTO first = stats.get(0);
+        assertEquals(5, first.getWorkingDays());
+        assertEquals(1, first.getDaysOff());
+        assertEquals(3, first.getLongestAbsenceStreak());
+        assertEquals(1, first.getCurrentAbsenceStreak());
+        assertEquals(0.2, first.getAttendanceRate(), 1e-9);
+        AttendanceStatsDTO second = stats.get(1);
+        assertEquals(2, second.getEmployeeId());
+        assertEquals(3, second.getWorkingDays());
+        assertEquals(2, second.getLongestOnTimeStreak());
+        assertEquals(0, second.getLongestAbsenceStreak());
+        assertEquals(1.0, second.getAttendanceRate());
+    }
+
+    private static AttendanceRow day(int employeeId, int offset, PresenceStatus status, LocalTime checkin, LocalTime checkout) {
+        return new AttendanceRow(employeeId, "First " + employeeId, "Last " + employeeId, FROM.plusDays(offset), status,
+                checkin, checkout, LocalTime.of(9, 0), LocalTime.of(17, 0), LocalTime.of(12, 0), LocalTime.of(13, 0), false);
+    }
+
+    private static AttendanceRow dayOff(int employeeId, int offset) {
+        return new AttendanceRow(employeeId, "First " + employeeId, "Last " + employeeId, FROM.plusDays(offset), PresenceStatus.FREE,
+                null, null, null, null, null, null, true);
+    }
+}
@@ -0,0 +1,85 @@
+package com.magiclogon.attendancebackend.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.magiclogon.attendancebackend.model.PresenceStatus;
+import com.magiclogon.attendancebackend.repository.PresenceJdbcRepository;
+import com.magiclogon.attendancebackend.repository.PresenceJdbcRepository.AttendanceRow;
+import com.magiclogon.attendancebackend.security.TenantContext;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class AttendanceExportServiceTests {
+
+    private static final int ENTREPRISE_ID = 4;
+    private static final LocalDate FROM = LocalDate.of(2026, 3, 1);
+    private static final LocalDate TO = LocalDate.of(2026, 3, 31);
+
+    private final PresenceJdbcRepository presenceJdbcRepository = mock(PresenceJdbcRepository.class);
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final AttendanceExportService service = new AttendanceExportService(mock(TenantContext.class), presenceJdbcRepository, objectMapper);
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    @Test
+    void csvHasOneLinePerPresenceWithComputedMinutes() throws Exception {
+        when(presenceJdbcRepository.streamAttendance(ENTREPRISE_ID, FROM, TO)).thenReturn(rows());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        service.export(ENTREPRISE_ID, FROM, TO, AttendanceExportService.Format.CSV, out);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\r\n");
+        assertEquals(3, lines.length);
+        assertEquals("employee_id,first_name,last_name,date,status,scheduled_checkin,scheduled_checkout,checkin,checkout,worked_minutes,late_minutes", lines[0]);
+        assertEquals("1,\"Ana, Maria\",\"O\"\"Neil\",2026-03-02,LATE,09:00,17:00,09:20,17:30,430,20", lines[1]);
+        assertEquals("2,Sam,Lee,2026-03-02,ABSENT,09:00,17:00,,,,", lines[2]);
+        assertTrue(closed.get());
+    }
+
+    @Test
+    void ndjsonHasOneObjectPerLine() throws Exception {
+        when(presenceJdbcRepository.streamAttendance(ENTREPRISE_ID, FROM, TO)).thenReturn(rows());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        service.export(ENTREPRISE_ID, FROM, TO, AttendanceExportService.Format.NDJSON, out);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(2, lines.length);
+        JsonNode first = objectMapper.readTree(lines[0]);
+        assertEquals("Ana, Maria", first.get("firstName").asText());
+        assertEquals(430, first.get("workedMinutes").asInt());
+        assertEquals(20, first.get("lateMinutes").asInt());
+        JsonNode second = objectMapper.readTree(lines[1]);
+        assertTrue(second.get("workedMinutes").isNull());
+        assertTrue(closed.get());
+    }
+
+    @Test
+    void rangeAndFormatAreValidated() {
+        assertThrows(IllegalArgumentException.class, () -> AttendanceExportService.validateRange(TO, FROM));
+        assertThrows(IllegalArgumentException.class, () -> AttendanceExportService.validateRange(FROM, FROM.plusDays(366)));
+        assertThrows(IllegalArgumentException.class, () -> AttendanceExportService.parseFormat("xlsx"));
+        assertEquals(AttendanceExportService.Format.NDJSON, AttendanceExportService.parseFormat("ndjson"));
+    }
+
+    private Stream<AttendanceRow> rows() {
+        LocalDate day = LocalDate.of(2026, 3, 2);
+        return Stream.of(
+                new AttendanceRow(1, "Ana, Maria", "O\"Neil", day, PresenceStatus.LATE, LocalTime.of(9, 20), LocalTime.of(17, 30),
+                        LocalTime.of(9, 0), LocalTime.of(17, 0), LocalTime.of(12, 0), LocalTime.of(13, 0), false),
+                new AttendanceRow(2, "Sam", "Lee", day, PresenceStatus.ABSENT, null, null,
+                        LocalTime.of(9, 0), LocalTime.of(17, 0), null, null, false))
+                .onClose(() -> closed.set(true));
+    }
+}
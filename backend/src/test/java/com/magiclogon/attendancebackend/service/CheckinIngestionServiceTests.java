@@ -0,0 +1,120 @@
+package com.magiclogon.attendancebackend.service;
+
+import com.magiclogon.attendancebackend.client.FaceRecognitionClient;
+import com.magiclogon.attendancebackend.dto.CheckinEventDTO;
+import com.magiclogon.attendancebackend.dto.CheckinEventResultDTO;
+import com.magiclogon.attendancebackend.dto.CheckinEventResultDTO.Outcome;
+import com.magiclogon.attendancebackend.model.CheckinEvent;
+import com.magiclogon.attendancebackend.model.CheckinEventStatus;
+import com.magiclogon.attendancebackend.repository.CheckinEventRepository;
+import com.magiclogon.attendancebackend.repository.PresenceJdbcRepository.DayState;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CheckinIngestionServiceTests {
+
+    private static final int ENTREPRISE_ID = 7;
+
+    private final PresenceManagementService presenceManagementService = mock(PresenceManagementService.class);
+    private final CheckinEventRepository checkinEventRepository = mock(CheckinEventRepository.class);
+    private final TodayAttendanceCache todayAttendanceCache = mock(TodayAttendanceCache.class);
+    private final FaceRecognitionClient faceRecognitionClient = mock(FaceRecognitionClient.class);
+    private CheckinIngestionService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new CheckinIngestionService(presenceManagementService, checkinEventRepository, todayAttendanceCache,
+                faceRecognitionClient, 2, 48);
+        when(todayAttendanceCache.get(anyInt(), any())).thenAnswer(invocation -> new DayState(invocation.getArgument(0),
+                ENTREPRISE_ID, 1, ZoneId.systemDefault(), true, false, null, null, 10, 30, null, null, null, null));
+        when(checkinEventRepository.findByEntrepriseIdAndIdempotencyKeyIn(eq(ENTREPRISE_ID), anyCollection())).thenReturn(List.of());
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+    }
+
+    @Test
+    void appliesEventsInEventTimeOrderWithTheirOwnTimestamp() {
+        Instant checkin = Instant.now().minus(Duration.ofHours(9));
+        Instant checkout = Instant.now().minus(Duration.ofHours(1));
+
+        List<CheckinEventResultDTO> results = service.ingest(ENTREPRISE_ID, List.of(
+                new CheckinEventDTO("b", 3, checkout, true, null),
+                new CheckinEventDTO("a", 3, checkin, true, null)));
+
+        assertEquals(List.of(Outcome.APPLIED, Outcome.APPLIED), results.stream().map(CheckinEventResultDTO::getOutcome).toList());
+        var order = inOrder(presenceManagementService);
+        order.verify(presenceManagementService).handleEmployeePresence(3, checkin);
+        order.verify(presenceManagementService).handleEmployeePresence(3, checkout);
+    }
+
+    @Test
+    void retriedEventsAreReportedAsDuplicatesWithoutBeingApplied() {
+        Instant occurredAt = Instant.now().minus(Duration.ofMinutes(5));
+        CheckinEvent recorded = new CheckinEvent(ENTREPRISE_ID, "a", 3, occurredAt, CheckinEventStatus.APPLIED, null, Instant.now());
+        when(checkinEventRepository.findByEntrepriseIdAndIdempotencyKeyIn(eq(ENTREPRISE_ID), anyCollection())).thenReturn(List.of(recorded));
+
+        List<CheckinEventResultDTO> results = service.ingest(ENTREPRISE_ID, List.of(new CheckinEventDTO("a", 3, occurredAt, true, null)));
+
+        assertEquals(Outcome.DUPLICATE, results.get(0).getOutcome());
+        verify(presenceManagementService, never()).handleEmployeePresence(anyInt(), any());
+    }
+
+    @Test
+    void refusedEventsAreRecordedAsRejected() {
+        Instant occurredAt = Instant.now().minus(Duration.ofMinutes(5));
+        doThrow(new IllegalArgumentException("Too early to check in.")).when(presenceManagementService).handleEmployeePresence(3, occurredAt);
+
+        List<CheckinEventResultDTO> results = service.ingest(ENTREPRISE_ID, List.of(new CheckinEventDTO("a", 3, occurredAt, true, null)));
+
+        assertEquals(Outcome.REJECTED, results.get(0).getOutcome());
+        assertEquals("Too early to check in.", results.get(0).getMessage());
+        verify(checkinEventRepository).save(any(CheckinEvent.class));
+    }
+
+    @Test
+    void eventIsRecordedOnlyAfterThePresenceWrite() {
+        Instant occurredAt = Instant.now().minus(Duration.ofMinutes(5));
+        when(checkinEventRepository.save(any(CheckinEvent.class))).thenThrow(new DataIntegrityViolationException("uk_checkin_event"));
+
+        List<CheckinEventResultDTO> results = service.ingest(ENTREPRISE_ID, List.of(new CheckinEventDTO("a", 3, occurredAt, true, null)));
+
+        assertEquals(Outcome.DUPLICATE, results.get(0).getOutcome());
+        var order = inOrder(presenceManagementService, checkinEventRepository);
+        order.verify(presenceManagementService).handleEmployeePresence(3, occurredAt);
+        order.verify(checkinEventRepository).save(any(CheckinEvent.class));
+    }
+
+    @Test
+    void eventsFromAnotherEntrepriseOrFromTheFutureAreRejected() {
+        when(todayAttendanceCache.get(eq(4), any())).thenReturn(new DayState(4, 99, 1, ZoneId.systemDefault(), true, false, null, null, 10, 30, null, null, null, null));
+
+        List<CheckinEventResultDTO> results = service.ingest(ENTREPRISE_ID, List.of(
+                new CheckinEventDTO("a", 4, Instant.now(), true, null),
+                new CheckinEventDTO("b", 3, Instant.now().plus(Duration.ofHours(1)), true, null)));
+
+        assertEquals(List.of(Outcome.REJECTED, Outcome.REJECTED), results.stream().map(CheckinEventResultDTO::getOutcome).toList());
+        verify(presenceManagementService, never()).handleEmployeePresence(anyInt(), any());
+    }
+}
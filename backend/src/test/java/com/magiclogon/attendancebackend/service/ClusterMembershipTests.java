@@ -0,0 +1,168 @@
+package com.magiclogon.attendancebackend.service;
+
+import com.magiclogon.attendancebackend.repository.ClusterNodeJdbcRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessResourceFailureException;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.mock;
+
+// Several nodes in one JVM sharing one cluster_node table (kept in memory, on a clock the test moves)
+class ClusterMembershipTests {
+
+    private static final int LEASE_SECONDS = 30;
+
+    private final MutableClock clock = new MutableClock();
+    private final InMemoryClusterNodes table = new InMemoryClusterNodes(clock);
+
+    @Test
+    void liveNodesSplitTheEntreprisesWithoutOverlap() {
+        List<ClusterMembership> nodes = List.of(node("a"), node("b"), node("c"));
+        nodes.forEach(ClusterMembership::heartbeat);
+        nodes.forEach(ClusterMembership::heartbeat);
+
+        assertEachEntrepriseOwnedOnce(nodes);
+        assertEquals(3, nodes.get(0).currentShard().count());
+    }
+
+    @Test
+    void shardsOfAStoppedNodeMoveToTheOthersAfterItsLease() {
+        ClusterMembership a = node("a");
+        ClusterMembership b = node("b");
+        ClusterMembership c = node("c");
+        List.of(a, b, c).forEach(ClusterMembership::heartbeat);
+
+        // c crashes: it never renews again. The views agree again after one round of heartbeats
+        clock.advance(Duration.ofSeconds(LEASE_SECONDS + 1));
+        a.heartbeat();
+        b.heartbeat();
+        a.heartbeat();
+
+        assertEachEntrepriseOwnedOnce(List.of(a, b));
+        assertNull(c.currentShard());
+    }
+
+    @Test
+    void leavingHandsTheShardsOverOnTheNextHeartbeat() {
+        ClusterMembership a = node("a");
+        ClusterMembership b = node("b");
+        a.heartbeat();
+        b.heartbeat();
+
+        b.leave();
+        a.heartbeat();
+
+        assertEachEntrepriseOwnedOnce(List.of(a));
+        assertFalse(b.owns(1));
+    }
+
+    @Test
+    void nodeThatLostTheDatabaseStopsBeforeItsLeaseExpires() {
+        ClusterMembership a = node("a");
+        ClusterMembership b = node("b");
+        a.heartbeat();
+        b.heartbeat();
+
+        table.failing = true;
+        clock.advance(Duration.ofSeconds(LEASE_SECONDS / 2 + 1));
+        a.heartbeat();
+
+        // Still inside its lease for the other nodes, but it already owns nothing
+        assertNull(a.currentShard());
+        assertEquals(List.of("a", "b"), table.live(LEASE_SECONDS));
+    }
+
+    private ClusterMembership node(String id) {
+        return new ClusterMembership(table, mock(ApplicationEventPublisher.class), id, LEASE_SECONDS, clock);
+    }
+
+    private static void assertEachEntrepriseOwnedOnce(List<ClusterMembership> nodes) {
+        IntStream.rangeClosed(1, 1000).forEach(entrepriseId ->
+                assertEquals(1, nodes.stream().filter(node -> node.owns(entrepriseId)).count(), "entreprise " + entrepriseId));
+    }
+
+    private static final class InMemoryClusterNodes extends ClusterNodeJdbcRepository {
+        private final Map<String, Instant> heartbeats = new ConcurrentHashMap<>();
+        private final Clock clock;
+        private volatile boolean failing;
+
+        private InMemoryClusterNodes(Clock clock) {
+            super(null);
+            this.clock = clock;
+        }
+
+        @Override
+        public void heartbeat(String nodeId) {
+            if (failing) {
+                throw new DataAccessResourceFailureException("database unreachable");
+            }
+            heartbeats.put(nodeId, clock.instant());
+        }
+
+        @Override
+        public List<String> findLiveNodeIds(int leaseSeconds) {
+            if (failing) {
+                throw new DataAccessResourceFailureException("database unreachable");
+            }
+            return live(leaseSeconds);
+        }
+
+        @Override
+        public void delete(String nodeId) {
+            heartbeats.remove(nodeId);
+        }
+
+        @Override
+        public int deleteExpired(int seconds) {
+            Instant limit = clock.instant().minusSeconds(seconds);
+            int before = heartbeats.size();
+            heartbeats.values().removeIf(heartbeat -> heartbeat.isBefore(limit));
+            return before - heartbeats.size();
+        }
+
+        private List<String> live(int leaseSeconds) {
+            Instant limit = clock.instant().minusSeconds(leaseSeconds);
+            return heartbeats.entrySet().stream()
+                    .filter(entry -> entry.getValue().isAfter(limit))
+                    .map(Map.Entry::getKey)
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private static final class MutableClock extends Clock {
+        private volatile Instant now = Instant.parse("2026-01-05T08:00:00Z");
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
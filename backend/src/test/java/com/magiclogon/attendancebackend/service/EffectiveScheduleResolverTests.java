@@ -0,0 +1,109 @@
+package com.magiclogon.attendancebackend.service;
+
+import com.magiclogon.attendancebackend.model.Employee;
+import com.magiclogon.attendancebackend.model.Schedule;
+import com.magiclogon.attendancebackend.model.ScheduleTemplate;
+import com.magiclogon.attendancebackend.repository.ScheduleJdbcRepository;
+import com.magiclogon.attendancebackend.repository.ScheduleRepository;
+import com.magiclogon.attendancebackend.repository.ScheduleTemplateRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class EffectiveScheduleResolverTests {
+
+    private static final int EMPLOYEE_ID = 5;
+    // A Monday
+    private static final LocalDate MONDAY = LocalDate.of(2026, 3, 2);
+
+    private final ScheduleRepository scheduleRepository = mock(ScheduleRepository.class);
+    private final ScheduleTemplateRepository scheduleTemplateRepository = mock(ScheduleTemplateRepository.class);
+    private final ScheduleJdbcRepository scheduleJdbcRepository = mock(ScheduleJdbcRepository.class);
+    private final EffectiveScheduleResolver resolver = new EffectiveScheduleResolver(
+            scheduleRepository, scheduleTemplateRepository, scheduleJdbcRepository);
+    private final Employee employee = new Employee();
+
+    @BeforeEach
+    void setUp() {
+        employee.setId(EMPLOYEE_ID);
+        when(scheduleRepository.findByEmployeeIdAndDate(anyInt(), any())).thenReturn(Optional.empty());
+        when(scheduleRepository.findByEmployeeIdAndDateIsAfterOrderByDateAsc(anyInt(), any(), any())).thenReturn(List.of());
+    }
+
+    @Test
+    void storedScheduleWinsOverTheTemplate() {
+        Schedule stored = new Schedule(employee, "Override", MONDAY, LocalTime.of(6, 0), LocalTime.of(12, 0), null, null, false);
+        when(scheduleRepository.findByEmployeeIdAndDate(EMPLOYEE_ID, MONDAY)).thenReturn(Optional.of(stored));
+        when(scheduleTemplateRepository.findByEmployeeIdOrderByIdDesc(EMPLOYEE_ID)).thenReturn(List.of(template(1, "FREQ=DAILY")));
+
+        assertEquals("Override", resolver.resolve(EMPLOYEE_ID, MONDAY).orElseThrow().getScheduleName());
+    }
+
+    @Test
+    void newestTemplateWinsAndExceptionsAreSkipped() {
+        ScheduleTemplate weekdays = template(1, "FREQ=WEEKLY;BYDAY=MO,TU,WE,TH,FR");
+        ScheduleTemplate mondays = template(2, "FREQ=WEEKLY;BYDAY=MO");
+        mondays.setExceptions(Set.of(MONDAY.plusWeeks(1)));
+        when(scheduleTemplateRepository.findByEmployeeIdOrderByIdDesc(EMPLOYEE_ID)).thenReturn(List.of(mondays, weekdays));
+
+        assertEquals(2, resolver.resolve(EMPLOYEE_ID, MONDAY).orElseThrow().getTemplateId());
+        assertEquals(1, resolver.resolve(EMPLOYEE_ID, MONDAY.plusWeeks(1)).orElseThrow().getTemplateId());
+        assertTrue(resolver.resolve(EMPLOYEE_ID, MONDAY.plusDays(5)).isEmpty());
+        // Templates are read once and reused
+        verify(scheduleTemplateRepository, times(1)).findByEmployeeIdOrderByIdDesc(EMPLOYEE_ID);
+    }
+
+    @Test
+    void upcomingMergesStoredRowsAndOccurrencesByDate() {
+        Schedule stored = new Schedule(employee, "Override", MONDAY.plusDays(2), LocalTime.of(6, 0), LocalTime.of(12, 0), null, null, false);
+        when(scheduleRepository.findByEmployeeIdAndDateIsAfterOrderByDateAsc(eq(EMPLOYEE_ID), eq(MONDAY), any())).thenReturn(List.of(stored));
+        when(scheduleTemplateRepository.findByEmployeeIdOrderByIdDesc(EMPLOYEE_ID)).thenReturn(List.of(template(1, "FREQ=WEEKLY;BYDAY=MO,WE,FR")));
+
+        List<Schedule> upcoming = resolver.upcoming(EMPLOYEE_ID, MONDAY, 3);
+
+        assertEquals(List.of(MONDAY.plusDays(2), MONDAY.plusDays(4), MONDAY.plusDays(7)), upcoming.stream().map(Schedule::getDate).toList());
+        assertEquals("Override", upcoming.get(0).getScheduleName());
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    void materializeWritesOneOccurrencePerEmployeeAndDay() {
+        when(scheduleTemplateRepository.findByEmployeeEntrepriseIdOrderByIdDesc(9))
+                .thenReturn(List.of(template(2, "FREQ=WEEKLY;BYDAY=TU"), template(1, "FREQ=DAILY")));
+
+        resolver.materialize(9, List.of(MONDAY, MONDAY.plusDays(1)));
+
+        ArgumentCaptor<List<Schedule>> occurrences = ArgumentCaptor.forClass(List.class);
+        verify(scheduleJdbcRepository).insertOccurrences(occurrences.capture());
+        assertEquals(List.of(1, 2), occurrences.getValue().stream().map(Schedule::getTemplateId).toList());
+    }
+
+    private ScheduleTemplate template(int id, String rule) {
+        ScheduleTemplate template = new ScheduleTemplate();
+        template.setId(id);
+        template.setEmployee(employee);
+        template.setScheduleName("Template " + id);
+        template.setCheckinTime(LocalTime.of(9, 0));
+        template.setCheckoutTime(LocalTime.of(17, 0));
+        template.setIsDayOff(false);
+        template.setStartDate(MONDAY.minusWeeks(4));
+        template.setRecurrenceRule(rule);
+        return template;
+    }
+}
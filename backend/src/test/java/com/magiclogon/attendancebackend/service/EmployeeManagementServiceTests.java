@@ -0,0 +1,115 @@
+package com.magiclogon.attendancebackend.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.magiclogon.attendancebackend.dto.EmployeeDetailedResponseDTO;
+import com.magiclogon.attendancebackend.dto.EmployeePresenceDTO;
+import com.magiclogon.attendancebackend.dto.EmployeeResponseDTO;
+import com.magiclogon.attendancebackend.model.Employee;
+import com.magiclogon.attendancebackend.model.Schedule;
+import com.magiclogon.attendancebackend.repository.EmployeeJdbcRepository;
+import com.magiclogon.attendancebackend.repository.EmployeeRepository;
+import com.magiclogon.attendancebackend.repository.EntrepriseRepository;
+import com.magiclogon.attendancebackend.repository.PresenceJdbcRepository;
+import com.magiclogon.attendancebackend.repository.ScheduleJdbcRepository;
+import com.magiclogon.attendancebackend.security.PrincipalCache;
+import com.magiclogon.attendancebackend.security.TenantContext;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.io.ByteArrayOutputStream;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class EmployeeManagementServiceTests {
+
+    private static final int ENTREPRISE_ID = 4;
+    // A day ahead of most server clocks for half of the day
+    private static final ZoneId ZONE = ZoneId.of("Pacific/Kiritimati");
+
+    private final EmployeeJdbcRepository employeeJdbcRepository = mock(EmployeeJdbcRepository.class);
+    private final PresenceJdbcRepository presenceJdbcRepository = mock(PresenceJdbcRepository.class);
+    private final ScheduleJdbcRepository scheduleJdbcRepository = mock(ScheduleJdbcRepository.class);
+    private final EffectiveScheduleResolver effectiveScheduleResolver = mock(EffectiveScheduleResolver.class);
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules()
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+    private final EmployeeManagementService service = new EmployeeManagementService(mock(EmployeeRepository.class),
+            employeeJdbcRepository, mock(TenantContext.class), presenceJdbcRepository, scheduleJdbcRepository,
+            mock(PasswordEncoder.class), mock(EntrepriseRepository.class), mock(TodayAttendanceCache.class), mock(KioskService.class),
+            mock(FaceEmbeddingIndex.class), effectiveScheduleResolver, mock(AbsenceDeadlineScheduler.class),
+            mock(ApplicationEventPublisher.class), objectMapper, mock(PrincipalCache.class), mock(TenantChangeBroadcast.class));
+
+    @Test
+    void batchOfEmployeesTakesOneQueryPerKindOfDetail() {
+        when(employeeJdbcRepository.findEmployeesOfEntreprise(ENTREPRISE_ID, 0, 50)).thenReturn(List.of(employee(1), employee(2)));
+        when(effectiveScheduleResolver.upcoming(anyMap(), anyCollection(), any(), eq(7)))
+                .thenReturn(Map.of(1, List.of(schedule(1))));
+        when(presenceJdbcRepository.findLatestPresencesOfEmployees(List.of(1, 2), LocalDate.now(ZONE).minusDays(1), 7))
+                .thenReturn(Map.of(2, List.of(presence(2))));
+
+        List<EmployeeDetailedResponseDTO> details = service.getEmployeesWithDetails(ENTREPRISE_ID, ZONE, 0, 50);
+
+        assertEquals(2, details.size());
+        assertEquals(1, details.get(0).getEmployeeSchedules().size());
+        assertEquals(List.of(), details.get(0).getEmployeeAttendances());
+        assertEquals(List.of(), details.get(1).getEmployeeSchedules());
+        assertEquals(1, details.get(1).getEmployeeAttendances().size());
+        // Schedules from the entreprise's today on, the same day on both sides of the merge
+        verify(scheduleJdbcRepository).findUpcomingSchedulesOfEmployees(List.of(1, 2), LocalDate.now(ZONE), 7);
+        verify(effectiveScheduleResolver).upcoming(anyMap(), anyCollection(), eq(LocalDate.now(ZONE)), eq(7));
+    }
+
+    @Test
+    void wholeEntrepriseIsStreamedBatchAfterBatch() throws Exception {
+        when(employeeJdbcRepository.findEmployeesOfEntreprise(ENTREPRISE_ID, 0, 200))
+                .thenReturn(IntStream.rangeClosed(1, 200).mapToObj(EmployeeManagementServiceTests::employee).toList());
+        when(employeeJdbcRepository.findEmployeesOfEntreprise(ENTREPRISE_ID, 200, 200)).thenReturn(List.of(employee(201)));
+        when(effectiveScheduleResolver.upcoming(anyMap(), anyCollection(), any(), anyInt())).thenReturn(Map.of());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        service.writeAllEmployeesWithDetails(ENTREPRISE_ID, ZONE, out);
+
+        JsonNode array = objectMapper.readTree(out.toByteArray());
+        assertEquals(201, array.size());
+        assertEquals(201, array.get(200).get("employeeDetails").get("id").asInt());
+        verify(presenceJdbcRepository, times(2)).findLatestPresencesOfEmployees(anyCollection(), any(), anyInt());
+        verify(scheduleJdbcRepository, times(2)).findUpcomingSchedulesOfEmployees(anyCollection(), any(), anyInt());
+    }
+
+    private static EmployeeResponseDTO employee(int id) {
+        EmployeeResponseDTO dto = new EmployeeResponseDTO();
+        dto.setId(id);
+        dto.setEmployeeLastName("Employee " + id);
+        return dto;
+    }
+
+    private static Schedule schedule(int employeeId) {
+        Employee employee = new Employee();
+        employee.setId(employeeId);
+        return new Schedule(employee, "Morning", LocalDate.now(), LocalTime.of(9, 0), LocalTime.of(17, 0), null, null, false);
+    }
+
+    private static EmployeePresenceDTO presence(int employeeId) {
+        EmployeePresenceDTO dto = new EmployeePresenceDTO();
+        dto.setEmployeeId(employeeId);
+        dto.setDate(LocalDate.now().minusDays(2));
+        return dto;
+    }
+}
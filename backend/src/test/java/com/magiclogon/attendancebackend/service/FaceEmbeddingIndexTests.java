@@ -0,0 +1,74 @@
+package com.magiclogon.attendancebackend.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static com.magiclogon.attendancebackend.service.FaceEmbeddingIndex.Metric.COSINE;
+import static com.magiclogon.attendancebackend.service.FaceEmbeddingIndex.Metric.EUCLIDEAN;
+import static com.magiclogon.attendancebackend.service.FaceEmbeddingIndex.Metric.EUCLIDEAN_L2;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FaceEmbeddingIndexTests {
+
+    private final FaceEmbeddingIndex.Segment segment = FaceEmbeddingIndex.Segment.of(Map.of(
+            "1", new float[]{1, 0, 0, 0, 0},
+            "2", new float[]{0, 1, 0, 0, 0},
+            "3", new float[]{0.9f, 0.1f, 0, 0, 0},
+            "4", new float[]{0, 0, 0, 0, 3}
+    ));
+
+    @Test
+    void returnsClosestEmployeesFirst() {
+        List<FaceEmbeddingIndex.Match> matches = segment.topK(new float[]{2, 0, 0, 0, 0}, COSINE, 2);
+
+        assertEquals(2, matches.size());
+        assertEquals(1, matches.get(0).employeeId());
+        assertEquals(0.0, matches.get(0).distance(), 1e-6);
+        assertEquals(3, matches.get(1).employeeId());
+        assertTrue(matches.get(1).distance() > 0);
+    }
+
+    @Test
+    void cosineDistanceIgnoresVectorLength() {
+        FaceEmbeddingIndex.Match best = segment.topK(new float[]{0, 0, 0, 0, 0.01f}, COSINE, 1).get(0);
+
+        assertEquals(4, best.employeeId());
+        assertEquals(0.0, best.distance(), 1e-6);
+    }
+
+    @Test
+    void euclideanDistancesFollowTheServiceMetric() {
+        // Employee 4 points the same way but is 3 long: only the plain euclidean distance ranks it last
+        List<FaceEmbeddingIndex.Match> euclidean = segment.topK(new float[]{0, 0, 0, 0, 1}, EUCLIDEAN, 4);
+        assertEquals(3, euclidean.get(0).employeeId());
+        assertEquals(Math.sqrt(1.82), euclidean.get(0).distance(), 1e-6);
+        assertEquals(4, euclidean.get(3).employeeId());
+        assertEquals(2.0, euclidean.get(3).distance(), 1e-6);
+
+        FaceEmbeddingIndex.Match normalized = segment.topK(new float[]{0, 0, 0, 0, 1}, EUCLIDEAN_L2, 1).get(0);
+        assertEquals(4, normalized.employeeId());
+        assertEquals(0.0, normalized.distance(), 1e-3);
+    }
+
+    @Test
+    void metricsOfTheServiceAreMappedAndOthersRefused() {
+        assertEquals(COSINE, FaceEmbeddingIndex.Metric.of("cosine"));
+        assertEquals(COSINE, FaceEmbeddingIndex.Metric.of(null));
+        assertEquals(EUCLIDEAN_L2, FaceEmbeddingIndex.Metric.of("euclidean_l2"));
+        assertThrows(IllegalStateException.class, () -> FaceEmbeddingIndex.Metric.of("manhattan"));
+    }
+
+    @Test
+    void topKIsCappedBySegmentSize() {
+        assertEquals(4, segment.topK(new float[]{1, 1, 1, 1, 1}, COSINE, 10).size());
+    }
+
+    @Test
+    void embeddingsOfAnotherDimensionAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> segment.topK(new float[]{1, 0}, COSINE, 1));
+    }
+}
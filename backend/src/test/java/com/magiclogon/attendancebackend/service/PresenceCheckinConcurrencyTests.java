@@ -0,0 +1,211 @@
+package com.magiclogon.attendancebackend.service;
+
+import com.magiclogon.attendancebackend.model.PresenceStatus;
+import com.magiclogon.attendancebackend.repository.EmployeeRepository;
+import com.magiclogon.attendancebackend.repository.EntrepriseRepository;
+import com.magiclogon.attendancebackend.repository.PresenceJdbcRepository;
+import com.magiclogon.attendancebackend.repository.PresenceJdbcRepository.DayState;
+import com.magiclogon.attendancebackend.repository.PresenceRepository;
+import com.magiclogon.attendancebackend.security.TenantContext;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+// Concurrent check-ins of the same employee against the conditional writes. The database is replaced by an
+// in-memory table with the same guarantees (unique employee/date, compare-and-set updates).
+class PresenceCheckinConcurrencyTests {
+
+    private static final int ENTREPRISE_ID = 7;
+    // The service picks the day cache of an event on the server clock
+    private static final ZoneId ZONE = ZoneId.systemDefault();
+    private static final LocalDate TODAY = LocalDate.now(ZONE);
+    private static final Instant NOON = TODAY.atTime(12, 0).atZone(ZONE).toInstant();
+
+    private final InMemoryPresences presences = new InMemoryPresences();
+    private final DailyAttendanceRollupService dailyAttendanceRollupService = mock(DailyAttendanceRollupService.class);
+    private final PresenceManagementService service = new PresenceManagementService(
+            mock(PresenceRepository.class), mock(TenantContext.class), mock(EmployeeRepository.class), presences,
+            mock(EntrepriseRepository.class), new TodayAttendanceCache(presences), dailyAttendanceRollupService,
+            mock(AbsenceDeadlineScheduler.class), mock(ClusterMembership.class), mock(EffectiveScheduleResolver.class),
+            mock(ApplicationEventPublisher.class), new TransactionTemplate(mock(PlatformTransactionManager.class)));
+    private final ExecutorService pool = Executors.newFixedThreadPool(32);
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdownNow();
+    }
+
+    @Test
+    void exactlyOneOfConcurrentCheckinsWins() throws Exception {
+        List<Outcome> outcomes = race(1, 32);
+
+        assertEquals(1, outcomes.stream().filter(outcome -> outcome == Outcome.RECORDED).count());
+        assertEquals(31, outcomes.stream().filter(outcome -> outcome == Outcome.REFUSED).count());
+        Row row = presences.rows.get(1);
+        assertEquals(PresenceStatus.PRESENT, row.status());
+        assertEquals(LocalTime.NOON, row.checkin());
+        assertEquals(0, row.version());
+        verify(dailyAttendanceRollupService, times(1)).recordTransition(eq(ENTREPRISE_ID), anyInt(), eq(TODAY), isNull(), eq(PresenceStatus.PRESENT));
+    }
+
+    @Test
+    void materializedRowIsCheckedInOnce() throws Exception {
+        presences.rows.put(1, new Row(1, PresenceStatus.NOT_OPENED, null, 0));
+
+        List<Outcome> outcomes = race(1, 32);
+
+        assertEquals(1, outcomes.stream().filter(outcome -> outcome == Outcome.RECORDED).count());
+        assertEquals(1, presences.rows.get(1).version());
+        verify(dailyAttendanceRollupService, times(1)).recordTransition(eq(ENTREPRISE_ID), anyInt(), eq(TODAY),
+                eq(PresenceStatus.NOT_OPENED), eq(PresenceStatus.PRESENT));
+    }
+
+    @Test
+    void oneWinnerPerEmployeeUnderContention() throws Exception {
+        int employees = 2_000;
+        int attemptsPerEmployee = 4;
+        for (int employeeId = 1; employeeId <= employees; employeeId += 2) {
+            // Half the day is materialized (NOT_OPENED update), the other half has no row yet (insert)
+            presences.rows.put(employeeId, new Row(employeeId, PresenceStatus.NOT_OPENED, null, 0));
+        }
+
+        List<Integer> requests = new ArrayList<>(employees * attemptsPerEmployee);
+        for (int employeeId = 1; employeeId <= employees; employeeId++) {
+            for (int attempt = 0; attempt < attemptsPerEmployee; attempt++) {
+                requests.add(employeeId);
+            }
+        }
+        Collections.shuffle(requests);
+
+        Map<Integer, AtomicInteger> wins = new ConcurrentHashMap<>();
+        AtomicInteger losses = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>(requests.size());
+        for (Integer employeeId : requests) {
+            futures.add(pool.submit(() -> {
+                start.await();
+                Outcome outcome = checkin(employeeId);
+                if (outcome == Outcome.RECORDED) {
+                    wins.computeIfAbsent(employeeId, id -> new AtomicInteger()).incrementAndGet();
+                } else {
+                    losses.incrementAndGet();
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+
+        assertEquals(employees, wins.size());
+        wins.forEach((employeeId, count) -> assertEquals(1, count.get(), "employee " + employeeId));
+        presences.rows.values().forEach(row -> assertEquals(PresenceStatus.PRESENT, row.status()));
+        // Every other attempt was refused as a repeat or lost the write
+        assertEquals(requests.size() - employees, losses.get());
+    }
+
+    private enum Outcome { RECORDED, REFUSED, CONFLICT }
+
+    private List<Outcome> race(int employeeId, int threads) throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Outcome>> futures = new ArrayList<>(threads);
+        for (int i = 0; i < threads; i++) {
+            futures.add(pool.submit(() -> {
+                start.await();
+                return checkin(employeeId);
+            }));
+        }
+        start.countDown();
+        List<Outcome> outcomes = new ArrayList<>(threads);
+        for (Future<Outcome> future : futures) {
+            Outcome outcome = future.get(10, TimeUnit.SECONDS);
+            assertNotNull(outcome);
+            outcomes.add(outcome);
+        }
+        return outcomes;
+    }
+
+    private Outcome checkin(int employeeId) {
+        try {
+            service.handleEmployeePresence(employeeId, NOON);
+            return Outcome.RECORDED;
+        } catch (IllegalArgumentException e) {
+            return Outcome.REFUSED;
+        } catch (ConcurrencyFailureException e) {
+            return Outcome.CONFLICT;
+        }
+    }
+
+    private record Row(int id, PresenceStatus status, LocalTime checkin, int version) {}
+
+    // Presence table of the day: one row per employee, writes are atomic per row like InnoDB row locks
+    private static class InMemoryPresences extends PresenceJdbcRepository {
+
+        private final Map<Integer, Row> rows = new ConcurrentHashMap<>();
+
+        InMemoryPresences() {
+            super(null);
+        }
+
+        @Override
+        public List<DayState> findDayStates(LocalDate date) {
+            return List.of();
+        }
+
+        @Override
+        public Optional<DayState> findDayState(int employeeId, LocalDate date) {
+            if (!date.equals(TODAY)) {
+                return Optional.empty();
+            }
+            Row row = rows.get(employeeId);
+            return Optional.of(new DayState(employeeId, ENTREPRISE_ID, 3, ZONE, true, false,
+                    LocalTime.of(11, 55), LocalTime.of(20, 0), 15, 30,
+                    row == null ? null : row.id(), row == null ? null : row.status(), row == null ? null : row.checkin(), null));
+        }
+
+        @Override
+        public Integer insertCheckin(int employeeId, LocalDate date, PresenceStatus status, LocalTime checkin) {
+            Row row = new Row(employeeId, status, checkin, 0);
+            return rows.putIfAbsent(employeeId, row) == null ? row.id() : null;
+        }
+
+        @Override
+        public boolean recordCheckin(int employeeId, LocalDate date, PresenceStatus expected, PresenceStatus status, LocalTime checkin) {
+            Row current = rows.get(employeeId);
+            if (current == null || current.status() != expected || current.checkin() != null) {
+                return false;
+            }
+            return rows.replace(employeeId, current, new Row(current.id(), status, checkin, current.version() + 1));
+        }
+    }
+}
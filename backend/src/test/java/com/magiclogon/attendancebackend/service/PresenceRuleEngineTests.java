@@ -0,0 +1,132 @@
+package com.magiclogon.attendancebackend.service;
+
+import com.magiclogon.attendancebackend.model.PresenceStatus;
+import com.magiclogon.attendancebackend.service.PresenceRuleEngine.Decision;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PresenceRuleEngineTests {
+
+    private static final LocalDate DAY = LocalDate.of(2025, 3, 10);
+    private static final ZoneId TOKYO = ZoneId.of("Asia/Tokyo");
+
+    @Test
+    void checkinStatusFollowsTheLateThreshold() {
+        assertEquals(Decision.TOO_EARLY_TO_CHECK_IN, dayShift(NOT_CHECKED_IN, at("08:39")));
+        assertEquals(Decision.CHECK_IN_PRESENT, dayShift(NOT_CHECKED_IN, at("08:40")));
+        assertEquals(Decision.CHECK_IN_PRESENT, dayShift(NOT_CHECKED_IN, at("09:14:59")));
+        assertEquals(Decision.CHECK_IN_LATE, dayShift(NOT_CHECKED_IN, at("09:15")));
+        assertEquals(Decision.TOO_LATE_TO_CHECK_IN, dayShift(NOT_CHECKED_IN, at("17:00")));
+    }
+
+    @Test
+    void absentEmployeesCanStillCheckInLate() {
+        assertEquals(Decision.CHECK_IN_LATE, PresenceRuleEngine.evaluate(second("09:00"), second("17:00"), 15,
+                PresenceStatus.ABSENT, false, false, at("11:00")));
+    }
+
+    @Test
+    void checkoutIsOnlyAcceptedAfterTheShiftEnds() {
+        assertEquals(Decision.TOO_EARLY_TO_CHECK_OUT, dayShift(PresenceStatus.PRESENT, at("17:00")));
+        assertEquals(Decision.CHECK_OUT, dayShift(PresenceStatus.LATE, at("17:00:01")));
+        assertEquals(Decision.ALREADY_CHECKED_OUT, PresenceRuleEngine.evaluate(second("09:00"), second("17:00"), 15,
+                PresenceStatus.PRESENT, true, true, at("18:00")));
+        assertEquals(Decision.ALREADY_CHECKED_IN, PresenceRuleEngine.evaluate(second("09:00"), second("17:00"), 15,
+                PresenceStatus.FREE, true, false, at("10:00")));
+    }
+
+    @Test
+    void overnightShiftsEndOnTheNextDay() {
+        LocalTime checkin = LocalTime.of(22, 0);
+        LocalTime checkout = LocalTime.of(6, 0);
+        int checkinSecond = PresenceRuleEngine.checkinSecond(checkin);
+        int checkoutSecond = PresenceRuleEngine.checkoutSecond(checkin, checkout);
+
+        assertTrue(PresenceRuleEngine.isOvernight(checkin, checkout));
+        assertEquals(30 * 3600, checkoutSecond);
+
+        long nextDay = 24 * 3600L;
+        assertEquals(Decision.CHECK_IN_LATE, PresenceRuleEngine.evaluate(checkinSecond, checkoutSecond, 15,
+                PresenceStatus.NOT_OPENED, false, false, nextDay + at("01:00")));
+        assertEquals(Decision.TOO_EARLY_TO_CHECK_OUT, PresenceRuleEngine.evaluate(checkinSecond, checkoutSecond, 15,
+                PresenceStatus.PRESENT, true, false, nextDay + at("05:00")));
+        assertEquals(Decision.CHECK_OUT, PresenceRuleEngine.evaluate(checkinSecond, checkoutSecond, 15,
+                PresenceStatus.PRESENT, true, false, nextDay + at("06:30")));
+    }
+
+    @Test
+    void eventsAreEvaluatedOnTheEntrepriseClock() {
+        // 00:30 UTC is 09:30 in Tokyo, on the same date
+        Instant instant = ZonedDateTime.of(DAY, LocalTime.of(0, 30), ZoneId.of("UTC")).toInstant();
+
+        assertEquals(at("09:30"), PresenceRuleEngine.secondsIntoDate(instant, TOKYO, DAY));
+        assertEquals(at("09:30") - 24 * 3600L, PresenceRuleEngine.secondsIntoDate(instant, TOKYO, DAY.plusDays(1)));
+        assertEquals(Decision.CHECK_IN_LATE, dayShift(NOT_CHECKED_IN, PresenceRuleEngine.secondsIntoDate(instant, TOKYO, DAY)));
+    }
+
+    @Test
+    void wallClockIsUsedAcrossDaylightSavingChanges() {
+        ZoneId paris = ZoneId.of("Europe/Paris");
+        LocalDate change = LocalDate.of(2025, 3, 30);
+        Instant nine = ZonedDateTime.of(change, LocalTime.of(9, 0), paris).toInstant();
+
+        // Clocks jumped at 02:00, the shift still starts at 09:00 local time
+        assertEquals(at("09:00"), PresenceRuleEngine.secondsIntoDate(nine, paris, change));
+    }
+
+    @Test
+    void absenceStartsOnceTheThresholdHasPassed() {
+        assertFalse(PresenceRuleEngine.isAbsent(second("09:00"), 30, at("09:29:59")));
+        assertTrue(PresenceRuleEngine.isAbsent(second("09:00"), 30, at("09:30")));
+    }
+
+    @Test
+    void workedMinutesLeaveOutTheBreak() {
+        assertEquals(435, PresenceRuleEngine.workedMinutes(time("09:00"), time("08:50"), time("17:05"), time("12:00"), time("13:00")));
+        // Left during the break: only the part of it that was covered is removed
+        assertEquals(180, PresenceRuleEngine.workedMinutes(time("09:00"), time("09:00"), time("12:30"), time("12:00"), time("13:00")));
+        assertEquals(480, PresenceRuleEngine.workedMinutes(null, time("09:00"), time("17:00"), null, null));
+    }
+
+    @Test
+    void overnightShiftsAreMeasuredAcrossMidnight() {
+        assertEquals(455, PresenceRuleEngine.workedMinutes(time("22:00"), time("21:55"), time("06:00"), time("02:00"), time("02:30")));
+        assertEquals(150, PresenceRuleEngine.lateMinutes(time("22:00"), time("00:30")));
+        assertEquals(0, PresenceRuleEngine.lateMinutes(time("22:00"), time("21:45")));
+    }
+
+    @Test
+    void lateMinutesCountFromTheShiftStart() {
+        assertEquals(0, PresenceRuleEngine.lateMinutes(time("09:00"), time("08:45")));
+        assertEquals(0, PresenceRuleEngine.lateMinutes(time("09:00"), time("09:00:59")));
+        assertEquals(20, PresenceRuleEngine.lateMinutes(time("09:00"), time("09:20")));
+    }
+
+    private static final PresenceStatus NOT_CHECKED_IN = PresenceStatus.NOT_OPENED;
+
+    private static Decision dayShift(PresenceStatus status, long eventSecond) {
+        boolean checkedIn = status == PresenceStatus.PRESENT || status == PresenceStatus.LATE;
+        return PresenceRuleEngine.evaluate(second("09:00"), second("17:00"), 15, status, checkedIn, false, eventSecond);
+    }
+
+    private static int second(String time) {
+        return LocalTime.parse(time).toSecondOfDay();
+    }
+
+    private static LocalTime time(String time) {
+        return LocalTime.parse(time);
+    }
+
+    private static long at(String time) {
+        return LocalTime.parse(time).toSecondOfDay();
+    }
+}
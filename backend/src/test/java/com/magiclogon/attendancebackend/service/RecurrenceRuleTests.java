@@ -0,0 +1,63 @@
+package com.magiclogon.attendancebackend.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RecurrenceRuleTests {
+
+    // A Monday
+    private static final LocalDate START = LocalDate.of(2026, 3, 2);
+
+    @Test
+    void weeklyRuleFollowsItsDaysAndInterval() {
+        RecurrenceRule rule = RecurrenceRule.parse("RRULE:FREQ=WEEKLY;INTERVAL=2;BYDAY=MO,WE");
+
+        assertTrue(rule.occursOn(START, START));
+        assertTrue(rule.occursOn(START, START.plusDays(2)));
+        assertFalse(rule.occursOn(START, START.plusDays(1)));
+        assertFalse(rule.occursOn(START, START.plusWeeks(1)));
+        assertTrue(rule.occursOn(START, START.plusWeeks(2).plusDays(2)));
+        assertFalse(rule.occursOn(START, START.minusWeeks(2)));
+    }
+
+    @Test
+    void weeklyRuleWithoutDaysRepeatsTheStartDay() {
+        RecurrenceRule rule = RecurrenceRule.parse("FREQ=WEEKLY");
+
+        assertTrue(rule.occursOn(START, START.plusWeeks(30)));
+        assertFalse(rule.occursOn(START, START.plusDays(3)));
+    }
+
+    @Test
+    void dailyRuleStopsAfterUntil() {
+        RecurrenceRule rule = RecurrenceRule.parse("FREQ=DAILY;INTERVAL=3;UNTIL=20260311");
+
+        assertTrue(rule.occursOn(START, START.plusDays(6)));
+        assertFalse(rule.occursOn(START, START.plusDays(7)));
+        assertTrue(rule.occursOn(START, START.plusDays(9)));
+        assertFalse(rule.occursOn(START, START.plusDays(12)));
+    }
+
+    @Test
+    void canonicalFormRoundTrips() {
+        RecurrenceRule rule = RecurrenceRule.parse("freq=weekly;byday=fr,mo;until=2026-12-31");
+
+        assertEquals("FREQ=WEEKLY;BYDAY=MO,FR;UNTIL=20261231", rule.toString());
+        assertEquals(rule.toString(), RecurrenceRule.parse(rule.toString()).toString());
+    }
+
+    @Test
+    void rejectsUnsupportedRules() {
+        assertThrows(IllegalArgumentException.class, () -> RecurrenceRule.parse("INTERVAL=2"));
+        assertThrows(IllegalArgumentException.class, () -> RecurrenceRule.parse("FREQ=MONTHLY"));
+        assertThrows(IllegalArgumentException.class, () -> RecurrenceRule.parse("FREQ=WEEKLY;COUNT=4"));
+        assertThrows(IllegalArgumentException.class, () -> RecurrenceRule.parse("FREQ=DAILY;BYDAY=MO"));
+        assertThrows(IllegalArgumentException.class, () -> RecurrenceRule.parse("FREQ=WEEKLY;INTERVAL=0"));
+    }
+}
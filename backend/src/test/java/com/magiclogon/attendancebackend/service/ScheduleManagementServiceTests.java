@@ -0,0 +1,158 @@
+package com.magiclogon.attendancebackend.service;
+
+import com.magiclogon.attendancebackend.dto.CreateScheduleDTO;
+import com.magiclogon.attendancebackend.dto.ScheduleOfEmployeeResponseDTO;
+import com.magiclogon.attendancebackend.model.Employee;
+import com.magiclogon.attendancebackend.model.Entreprise;
+import com.magiclogon.attendancebackend.model.Manager;
+import com.magiclogon.attendancebackend.model.RecurringType;
+import com.magiclogon.attendancebackend.model.Schedule;
+import com.magiclogon.attendancebackend.repository.EmployeeRepository;
+import com.magiclogon.attendancebackend.repository.ScheduleJdbcRepository;
+import com.magiclogon.attendancebackend.repository.ScheduleRepository;
+import com.magiclogon.attendancebackend.repository.ScheduleTemplateRepository;
+import com.magiclogon.attendancebackend.security.TenantContext;
+import com.magiclogon.attendancebackend.utils.PageRequests;
+import com.magiclogon.attendancebackend.utils.TimeZones;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class ScheduleManagementServiceTests {
+
+    private static final int ENTREPRISE_ID = 4;
+
+    private final ScheduleRepository scheduleRepository = mock(ScheduleRepository.class);
+    private final ScheduleJdbcRepository scheduleJdbcRepository = mock(ScheduleJdbcRepository.class);
+    private final TenantContext tenantContext = mock(TenantContext.class);
+    private final EmployeeRepository employeeRepository = mock(EmployeeRepository.class);
+    private final EffectiveScheduleResolver effectiveScheduleResolver = mock(EffectiveScheduleResolver.class);
+    private final ScheduleManagementService service = new ScheduleManagementService(scheduleRepository, scheduleJdbcRepository,
+            mock(ScheduleTemplateRepository.class), effectiveScheduleResolver, tenantContext, employeeRepository, mock(TodayAttendanceCache.class), mock(KioskService.class),
+            mock(AbsenceDeadlineScheduler.class), mock(ApplicationEventPublisher.class), mock(TenantChangeBroadcast.class));
+
+    @BeforeEach
+    void setUp() {
+        Entreprise entreprise = new Entreprise();
+        entreprise.setId(ENTREPRISE_ID);
+        Manager manager = new Manager();
+        manager.setEntreprise(entreprise);
+        when(tenantContext.getManager()).thenReturn(manager);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    void validatesIdsInOneQueryAndWritesEveryWeekInOneCall() {
+        when(employeeRepository.findIdsByEntrepriseIdAndIdIn(eq(ENTREPRISE_ID), anyCollection())).thenReturn(List.of(1, 3));
+        CreateScheduleDTO request = schedule(RecurringType.WEEKLY);
+
+        List<Integer> failed = service.addScheduleToMultipleEmployees(List.of(1, 2, 3, 9), request);
+
+        assertEquals(List.of(2, 9), failed);
+        ArgumentCaptor<List<Integer>> employees = ArgumentCaptor.forClass(List.class);
+        verify(scheduleJdbcRepository).replaceSchedules(employees.capture(),
+                eq(List.of(request.getDate(), request.getDate().plusWeeks(1), request.getDate().plusWeeks(2), request.getDate().plusWeeks(3))),
+                eq(request));
+        assertEquals(Set.of(1, 3), Set.copyOf(employees.getValue()));
+        verifyNoInteractions(scheduleRepository);
+    }
+
+    @Test
+    void dailyScheduleCoversSevenDays() {
+        when(employeeRepository.findIdsByEntrepriseIdAndIdIn(eq(ENTREPRISE_ID), anyCollection())).thenReturn(List.of(1));
+        CreateScheduleDTO request = schedule(RecurringType.DAILY);
+
+        service.addScheduleToMultipleEmployees(List.of(1), request);
+
+        verify(scheduleJdbcRepository).replaceSchedules(List.of(1),
+                List.of(0, 1, 2, 3, 4, 5, 6).stream().map(request.getDate()::plusDays).toList(), request);
+    }
+
+    @Test
+    void materializedDaysArePagedByTheDatabase() {
+        LocalDate today = LocalDate.now(TimeZones.zoneOf(null));
+        Pageable pageable = PageRequests.of(3, 20, "name");
+        Page<ScheduleOfEmployeeResponseDTO> page = new PageImpl<>(List.of(stored(61, "Adam")), pageable, 61);
+        when(scheduleJdbcRepository.findSchedulesOfEntreprise(ENTREPRISE_ID, today, pageable)).thenReturn(page);
+
+        assertSame(page, service.getSchedulesOfAllEmployees(today, pageable));
+        verifyNoInteractions(effectiveScheduleResolver);
+    }
+
+    @Test
+    void allSchedulesMergeTemplateOccurrencesThenSortAndPage() {
+        LocalDate date = LocalDate.now().plusDays(10);
+        // Only the stored rows up to the end of the requested page are read
+        when(scheduleJdbcRepository.findSchedulesOfEntreprise(eq(ENTREPRISE_ID), eq(date), any()))
+                .thenAnswer(invocation -> {
+                    Pageable head = invocation.getArgument(2);
+                    assertEquals(0, head.getOffset());
+                    List<ScheduleOfEmployeeResponseDTO> sorted = head.getSort().getOrderFor("name").isAscending()
+                            ? List.of(stored(2, "Adam"), stored(1, "Zola")) : List.of(stored(1, "Zola"), stored(2, "Adam"));
+                    return new PageImpl<>(sorted.subList(0, Math.min(head.getPageSize(), 2)), head, 2);
+                });
+        // Employee 1 has a stored row that wins over its template, employee 3 only has the template
+        when(effectiveScheduleResolver.occurrences(ENTREPRISE_ID, date))
+                .thenReturn(List.of(occurrence(1, "Zola", date), occurrence(3, "Martin", date)));
+        when(scheduleJdbcRepository.findScheduledEmployeeIds(List.of(1, 3), date)).thenReturn(Set.of(1));
+
+        Page<ScheduleOfEmployeeResponseDTO> page = service.getSchedulesOfAllEmployees(date, PageRequests.of(0, 2, "name"));
+
+        assertEquals(3, page.getTotalElements());
+        assertEquals(List.of(2, 3), page.getContent().stream().map(ScheduleOfEmployeeResponseDTO::getEmployeeId).toList());
+        Page<ScheduleOfEmployeeResponseDTO> last = service.getSchedulesOfAllEmployees(date, PageRequests.of(1, 2, "name,desc"));
+        assertEquals(List.of(2), last.getContent().stream().map(ScheduleOfEmployeeResponseDTO::getEmployeeId).toList());
+    }
+
+    @Test
+    void unknownSortPropertyIsRefused() {
+        assertThrows(IllegalArgumentException.class,
+                () -> service.getSchedulesOfAllEmployees(LocalDate.now(), PageRequests.of(null, null, "password")));
+    }
+
+    private static ScheduleOfEmployeeResponseDTO stored(int employeeId, String lastName) {
+        ScheduleOfEmployeeResponseDTO dto = new ScheduleOfEmployeeResponseDTO();
+        dto.setEmployeeId(employeeId);
+        dto.setEmployeeLastName(lastName);
+        dto.setCheckinTime(LocalTime.of(9, 0));
+        return dto;
+    }
+
+    private static Schedule occurrence(int employeeId, String lastName, LocalDate date) {
+        Employee employee = new Employee();
+        employee.setId(employeeId);
+        employee.setLastName(lastName);
+        return new Schedule(employee, "Template", date, LocalTime.of(8, 0), LocalTime.of(16, 0), null, null, false);
+    }
+
+    private static CreateScheduleDTO schedule(RecurringType recurringType) {
+        CreateScheduleDTO request = new CreateScheduleDTO();
+        request.setScheduleName("Morning");
+        request.setDate(LocalDate.of(2026, 3, 2));
+        request.setCheckinTime(LocalTime.of(9, 0));
+        request.setCheckoutTime(LocalTime.of(17, 0));
+        request.setIsDayOff(false);
+        request.setRecurringType(recurringType);
+        return request;
+    }
+}
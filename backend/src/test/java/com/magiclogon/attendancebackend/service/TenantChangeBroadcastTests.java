@@ -0,0 +1,100 @@
+package com.magiclogon.attendancebackend.service;
+
+import com.magiclogon.attendancebackend.event.TenantDataChangedEvent;
+import com.magiclogon.attendancebackend.repository.TenantVersionJdbcRepository;
+import com.magiclogon.attendancebackend.security.PrincipalCache;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+// Two replicas sharing one tenant_version table (kept in memory), each with its own caches
+class TenantChangeBroadcastTests {
+
+    private final InMemoryTenantVersions table = new InMemoryTenantVersions();
+    private final Replica a = new Replica(table);
+    private final Replica b = new Replica(table);
+
+    @Test
+    void changeOnOneReplicaEvictsTheTenantOnTheOther() {
+        table.bump(9);
+        a.broadcast.poll();
+        b.broadcast.poll();
+
+        a.broadcast.changed(7);
+        b.broadcast.poll();
+
+        verify(b.todayAttendanceCache).evictEntreprise(7);
+        verify(b.kioskService).evictRoster(7);
+        verify(b.absenceDeadlineScheduler).rescheduleEntreprise(7);
+        verify(b.eventPublisher).publishEvent(new TenantDataChangedEvent(7));
+        // Tenants that did not change keep their caches
+        verify(b.todayAttendanceCache, never()).evictEntreprise(9);
+    }
+
+    @Test
+    void passwordChangeOnOneReplicaDropsThePrincipalsOnTheOther() {
+        a.broadcast.poll();
+        b.broadcast.poll();
+
+        a.broadcast.credentialsChanged(7);
+        a.broadcast.credentialsChanged(null);
+        b.broadcast.poll();
+
+        verify(b.principalCache).evictEntreprise(7);
+        // Users without an entreprise share one row, only their principals are dropped
+        verify(b.principalCache).evictEntreprise(null);
+        verify(b.todayAttendanceCache, never()).evictEntreprise(TenantChangeBroadcast.NO_ENTREPRISE);
+    }
+
+    @Test
+    void firstPollOnlyRecordsTheVersions() {
+        table.bump(7);
+
+        b.broadcast.poll();
+
+        verifyNoInteractions(b.todayAttendanceCache, b.kioskService, b.absenceDeadlineScheduler, b.principalCache);
+        b.broadcast.poll();
+        verify(b.todayAttendanceCache, never()).evictEntreprise(anyInt());
+    }
+
+    private static final class Replica {
+        private final TodayAttendanceCache todayAttendanceCache = mock(TodayAttendanceCache.class);
+        private final KioskService kioskService = mock(KioskService.class);
+        private final AbsenceDeadlineScheduler absenceDeadlineScheduler = mock(AbsenceDeadlineScheduler.class);
+        private final ApplicationEventPublisher eventPublisher = mock(ApplicationEventPublisher.class);
+        private final PrincipalCache principalCache = mock(PrincipalCache.class);
+        private final TenantChangeBroadcast broadcast;
+
+        private Replica(TenantVersionJdbcRepository table) {
+            broadcast = new TenantChangeBroadcast(table, todayAttendanceCache, kioskService, absenceDeadlineScheduler,
+                    eventPublisher, principalCache);
+        }
+    }
+
+    private static final class InMemoryTenantVersions extends TenantVersionJdbcRepository {
+        private final Map<Integer, Long> versions = new ConcurrentHashMap<>();
+
+        private InMemoryTenantVersions() {
+            super(null);
+        }
+
+        @Override
+        public void bump(int entrepriseId) {
+            versions.merge(entrepriseId, 1L, Long::sum);
+        }
+
+        @Override
+        public Map<Integer, Long> findAll() {
+            return new HashMap<>(versions);
+        }
+    }
+}
@@ -94,7 +94,9 @@ async function changePassword(passwordObject) {
             throw error;
         }
 
+        // The old token is refused once the password changed
         const feedback = await response.json();
+        localStorage.setItem("token", feedback.token)
         return feedback;
     } catch (error) {
         throw new Error('Error changing password: ' + error.message)